@@ -0,0 +1,53 @@
+package com.market.aggregator.domain;
+
+import com.market.aggregator.infrastructure.MarketLogGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Records the trades of one ticker in an AggregationRecord and in a FixedPointAggregationRecord, one trade per operation.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationRecordBenchmark {
+    private static final String TICKER = MarketLogGenerator.tickerOf(0);
+
+    private Trade[] trades;
+    private int next;
+    private AggregationRecord record;
+    private FixedPointAggregationRecord fixedPointRecord;
+
+    @Setup
+    public void generateTrades() throws IOException {
+        // A single ticker, every trade goes to the same record
+        MarketLogGenerator generator = new MarketLogGenerator(MarketLogGenerator.Settings.builder()
+                .tickerCount(1).indexTickerCount(1).tradesPerDay(10_000).days(1).build());
+        List<Trade> generated = generator.trades(new TickerSymbolTable());
+        trades = generated.toArray(new Trade[0]);
+        record = AggregationRecord.of(TICKER);
+        fixedPointRecord = FixedPointAggregationRecord.of(TICKER, 2);
+    }
+
+    @Benchmark
+    public AggregationRecord recordTrade() {
+        record.recordTrade(nextTrade());
+        return record;
+    }
+
+    @Benchmark
+    public FixedPointAggregationRecord recordTradeFixedPoint() {
+        fixedPointRecord.recordTrade(nextTrade());
+        return fixedPointRecord;
+    }
+
+    private Trade nextTrade() {
+        Trade trade = trades[next];
+        next = next + 1 == trades.length ? 0 : next + 1;
+        return trade;
+    }
+}
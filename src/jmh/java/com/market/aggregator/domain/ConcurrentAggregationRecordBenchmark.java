@@ -0,0 +1,65 @@
+package com.market.aggregator.domain;
+
+import com.market.aggregator.infrastructure.MarketLogGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Records the trades of one hot ticker from all the benchmark threads (4 by default, -t changes it) in the same
+// record, in a ConcurrentAggregationRecord and in an AggregationRecord behind a lock.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentAggregationRecordBenchmark {
+    private static final String TICKER = MarketLogGenerator.tickerOf(0);
+
+    private Trade[] trades;
+    private ConcurrentAggregationRecord concurrentRecord;
+    private AggregationRecord lockedRecord;
+
+    @Setup
+    public void generateTrades() throws IOException {
+        MarketLogGenerator generator = new MarketLogGenerator(MarketLogGenerator.Settings.builder()
+                .tickerCount(1).indexTickerCount(1).tradesPerDay(100_000).days(1).build());
+        trades = generator.trades(new TickerSymbolTable()).toArray(new Trade[0]);
+        concurrentRecord = ConcurrentAggregationRecord.of(TICKER);
+        lockedRecord = AggregationRecord.of(TICKER);
+    }
+
+    // Where every benchmark thread is in the trades, the threads start at different places
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup
+        public void start(ConcurrentAggregationRecordBenchmark benchmark) {
+            next = (int) (Thread.currentThread().threadId() * 7919 % benchmark.trades.length);
+        }
+
+        private Trade next(Trade[] trades) {
+            Trade trade = trades[next];
+            next = next + 1 == trades.length ? 0 : next + 1;
+            return trade;
+        }
+    }
+
+    @Benchmark
+    public ConcurrentAggregationRecord recordTrade(Cursor cursor) {
+        concurrentRecord.recordTrade(cursor.next(trades));
+        return concurrentRecord;
+    }
+
+    @Benchmark
+    public AggregationRecord recordTradeLocked(Cursor cursor) {
+        Trade trade = cursor.next(trades);
+        synchronized (lockedRecord) {
+            lockedRecord.recordTrade(trade);
+        }
+        return lockedRecord;
+    }
+}
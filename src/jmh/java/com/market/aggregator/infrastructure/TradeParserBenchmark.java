@@ -0,0 +1,68 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parses a whole generated log with FileTradeParser, into a list and streamed, and with MappedTradeParser.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeParserBenchmark {
+    @Param("100")
+    private int tickers;
+    @Param("100000")
+    private int tradesPerDay;
+    @Param("5")
+    private int days;
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final FileTradeParser fileTradeParser = new FileTradeParser(symbols, metrics);
+    private final MappedTradeParser mappedTradeParser = new MappedTradeParser(symbols, metrics);
+    private byte[] log;
+    private Path logFile;
+
+    @Setup
+    public void generateLog() throws IOException {
+        log = new MarketLogGenerator(MarketLogGenerator.Settings.builder()
+                .tickerCount(tickers).tradesPerDay(tradesPerDay).days(days).build()).logBytes();
+        logFile = Files.write(Files.createTempFile("market_log", ".txt"), log);
+    }
+
+    @TearDown
+    public void deleteLog() throws IOException {
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public List<Trade> parseTrades() throws IOException {
+        return fileTradeParser.parseTrades(new ByteArrayInputStream(log));
+    }
+
+    @Benchmark
+    public long parseTradesStreaming(Blackhole blackhole) throws IOException {
+        return fileTradeParser.parseTrades(new ByteArrayInputStream(log), blackhole::consume);
+    }
+
+    @Benchmark
+    public long parseMapped(Blackhole blackhole) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            return mappedTradeParser.parseRange(channel, 0, channel.size(), blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.MarketAggregatorProperties;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.infrastructure.FileMarketWeightsParser;
+import com.market.aggregator.infrastructure.FileTradeParser;
+import com.market.aggregator.infrastructure.MappedTradeParser;
+import com.market.aggregator.infrastructure.MarketLogGenerator;
+import com.market.aggregator.infrastructure.MarketWeightsCache;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Processes a whole generated log end to end, from the parsing to the printed report, in every ingestion mode.
+// The report goes to a discarding stream, so the console is not measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MarketAggregatorServiceBenchmark {
+    @Param("100")
+    private int tickers;
+    @Param("100000")
+    private int tradesPerDay;
+    @Param("5")
+    private int days;
+    @Param({"FAN_OUT", "STREAMING", "BATCHED", "RING_BUFFER", "PARALLEL_CHUNKED"})
+    private IngestionMode ingestionMode;
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private Path logFile;
+    private byte[] weights;
+    private PrintStream systemOut;
+    private AggregationExecutors executors;
+
+    @Setup
+    public void generateLog() throws IOException {
+        MarketLogGenerator generator = new MarketLogGenerator(MarketLogGenerator.Settings.builder()
+                .tickerCount(tickers).tradesPerDay(tradesPerDay).days(days).build());
+        logFile = Files.createTempFile("market_log", ".txt");
+        generator.writeLog(logFile);
+        weights = generator.weightsBytes();
+        executors = new AggregationExecutors(ThreadMode.PLATFORM, Runtime.getRuntime().availableProcessors());
+        systemOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void deleteLog() throws IOException {
+        System.setOut(systemOut);
+        executors.close();
+        Files.deleteIfExists(logFile);
+    }
+
+    // A new service every time, the aggregations of the previous run must not be reused. The threads are reused.
+    @Benchmark
+    public MarketAggregatorService processTrades() throws IOException {
+        MarketAggregatorService service = new MarketAggregatorService(new FileTradeParser(symbols, metrics),
+                new MappedTradeParser(symbols, metrics), new MarketWeightsCache(new FileMarketWeightsParser(), symbols),
+                new MarketIndexCalculator(symbols), new TickerAggregatorManager(symbols), symbols, metrics,
+                MarketAggregatorProperties.defaults(), executors);
+        service.processTrades(logFile, new ByteArrayInputStream(weights), ingestionMode);
+        return service;
+    }
+}
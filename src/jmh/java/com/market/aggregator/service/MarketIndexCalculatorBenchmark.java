@@ -0,0 +1,84 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.infrastructure.MarketLogGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Calculates the index of one day from the close prices of all the tickers, by ticker name and by ticker id,
+// and updates the incremental index one close price at a time.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketIndexCalculatorBenchmark {
+    @Param({"4", "500"})
+    private int tickers;
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MarketIndexCalculator calculator = new MarketIndexCalculator(symbols);
+    private Map<String, BigDecimal> marketWeights;
+    private Map<String, BigDecimal> closePrices;
+    private MarketWeights weightsById;
+    private BigDecimal[] closePricesById;
+    // The close prices of the next day, one cent higher
+    private BigDecimal[] nextClosePricesById;
+    private IncrementalMarketIndex incrementalIndex;
+    private int[] tickerIds;
+    private int next;
+    private boolean nextDay;
+
+    @Setup
+    public void generatePrices() throws IOException {
+        // Every ticker is in the index, and with a hundred trades per ticker every one of them has a close price
+        MarketLogGenerator generator = new MarketLogGenerator(MarketLogGenerator.Settings.builder()
+                .tickerCount(tickers).indexTickerCount(tickers).tradesPerDay(100L * tickers).days(1).build());
+        marketWeights = generator.weights();
+        closePrices = new HashMap<>();
+        generator.trades(symbols).forEach(trade -> closePrices.put(trade.getTicker(), trade.getPrice()));
+        weightsById = MarketWeights.of(marketWeights, symbols);
+        closePricesById = new BigDecimal[weightsById.tickerIdLimit()];
+        nextClosePricesById = new BigDecimal[weightsById.tickerIdLimit()];
+        tickerIds = new int[tickers];
+        for (int i = 0; i < tickers; i++) {
+            tickerIds[i] = symbols.idOf(MarketLogGenerator.tickerOf(i));
+            closePricesById[tickerIds[i]] = closePrices.get(MarketLogGenerator.tickerOf(i));
+            nextClosePricesById[tickerIds[i]] = closePricesById[tickerIds[i]].add(new BigDecimal("0.01"));
+        }
+        incrementalIndex = calculator.incrementalIndex(weightsById);
+        for (int tickerId : tickerIds) {
+            incrementalIndex.updatePrice(tickerId, closePricesById[tickerId]);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal calculate() {
+        return calculator.calculate(closePrices, marketWeights);
+    }
+
+    @Benchmark
+    public BigDecimal calculateIndex() {
+        return calculator.calculateIndex(closePricesById, weightsById);
+    }
+
+    // One ticker gets a new close price, as when the index of the next day is calculated
+    @Benchmark
+    public BigDecimal updateIncrementalIndex() {
+        int tickerId = tickerIds[next];
+        incrementalIndex.updatePrice(tickerId, nextDay ? nextClosePricesById[tickerId] : closePricesById[tickerId]);
+        if (++next == tickerIds.length) {
+            // Every price moved, the prices go back and forth between the two days
+            next = 0;
+            nextDay = !nextDay;
+        }
+        return incrementalIndex.getValue();
+    }
+}
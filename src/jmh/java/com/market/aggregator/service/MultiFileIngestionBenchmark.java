@@ -0,0 +1,103 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.MarketAggregatorProperties;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.infrastructure.FileMarketWeightsParser;
+import com.market.aggregator.infrastructure.FileTradeParser;
+import com.market.aggregator.infrastructure.MappedTradeParser;
+import com.market.aggregator.infrastructure.MarketLogGenerator;
+import com.market.aggregator.infrastructure.MarketWeightsCache;
+import com.market.aggregator.infrastructure.TradeLogFiles;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Ingests many small logs together, like one log per venue and per day, reading them on platform or on virtual threads.
+// The logs are generated in a temporary directory. Logs on the file system to compare, e.g. a network mount, are given
+// with -p logLocation=/mnt/logs/*.txt, the weights of the generated logs are used for them too.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MultiFileIngestionBenchmark {
+    @Param("200")
+    private int files;
+    @Param("100")
+    private int tickers;
+    @Param("5000")
+    private int tradesPerDay;
+    @Param("")
+    private String logLocation;
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ThreadMode readThreads;
+    // Files read at the same time, 0 for the default of the thread mode
+    @Param("0")
+    private int maxConcurrentFiles;
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private Path logDirectory;
+    private List<Path> logFiles;
+    private byte[] weights;
+    private PrintStream systemOut;
+    private AggregationExecutors executors;
+
+    @Setup
+    public void generateLogs() throws IOException {
+        MarketLogGenerator.Settings.SettingsBuilder settings = MarketLogGenerator.Settings.builder()
+                .tickerCount(tickers).tradesPerDay(tradesPerDay).days(1);
+        weights = new MarketLogGenerator(settings.build()).weightsBytes();
+        if (!logLocation.isEmpty()) {
+            logFiles = TradeLogFiles.resolve(logLocation);
+        } else {
+            logDirectory = Files.createTempDirectory("market_logs");
+            logFiles = new ArrayList<>(files);
+            for (int i = 0; i < files; i++) {
+                // Every log is a day of its own venue, with trades of its own
+                Path logFile = logDirectory.resolve(String.format("venue-%03d.txt", i));
+                new MarketLogGenerator(settings.seed(i).build()).writeLog(logFile);
+                logFiles.add(logFile);
+            }
+        }
+        executors = new AggregationExecutors(readThreads, Runtime.getRuntime().availableProcessors());
+        systemOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void deleteLogs() throws IOException {
+        System.setOut(systemOut);
+        executors.close();
+        if (logDirectory != null) {
+            try (Stream<Path> paths = Files.walk(logDirectory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    // A new service every time, the aggregations of the previous run must not be reused. The threads are reused.
+    @Benchmark
+    public MarketAggregatorService processTrades() throws IOException {
+        MarketAggregatorService service = new MarketAggregatorService(new FileTradeParser(symbols, metrics),
+                new MappedTradeParser(symbols, metrics), new MarketWeightsCache(new FileMarketWeightsParser(), symbols),
+                new MarketIndexCalculator(symbols), new TickerAggregatorManager(symbols), symbols, metrics,
+                MarketAggregatorProperties.defaults().toBuilder().maxConcurrentFiles(maxConcurrentFiles).build(), executors);
+        service.processTrades(logFiles, new ByteArrayInputStream(weights));
+        return service;
+    }
+}
@@ -0,0 +1,111 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.infrastructure.MarketLogGenerator;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Records trades in one TickerAggregatorManager shared by all the benchmark threads (4 by default, -t changes it),
+// then compares the per-trade CompletableFuture fan-out with the batched aggregation routed by ticker on a whole log.
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickerAggregatorManagerBenchmark {
+    @Param("500")
+    private int tickers;
+    @Param("200000")
+    private int tradesPerDay;
+    @Param("2")
+    private int days;
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    // Disabled, like the fan-out the batched workers are measured without their metrics
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private Trade[] trades;
+    private TickerAggregatorManager sharedManager;
+    private ExecutorService executorService;
+    private int threads;
+
+    @Setup
+    public void generateTrades() throws IOException {
+        MarketLogGenerator generator = new MarketLogGenerator(MarketLogGenerator.Settings.builder()
+                .tickerCount(tickers).tradesPerDay(tradesPerDay).days(days).build());
+        trades = generator.trades(symbols).toArray(new Trade[0]);
+        metrics.setEnabled(false);
+        sharedManager = new TickerAggregatorManager(symbols);
+        threads = Runtime.getRuntime().availableProcessors();
+        executorService = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @TearDown
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    // Where every benchmark thread is in the trades, the threads start at different places
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup
+        public void start(TickerAggregatorManagerBenchmark benchmark) {
+            next = (int) (Thread.currentThread().getId() * 7919 % benchmark.trades.length);
+        }
+
+        private Trade next(Trade[] trades) {
+            Trade trade = trades[next];
+            next = next + 1 == trades.length ? 0 : next + 1;
+            return trade;
+        }
+    }
+
+    // One trade per operation on the shared manager, the threads update its records without a lock
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(4)
+    public void recordTradeContended(Cursor cursor) {
+        sharedManager.recordTrade(cursor.next(trades));
+    }
+
+    // The FAN_OUT mode: one task per trade on a new manager
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TickerAggregatorManager fanOut() {
+        TickerAggregatorManager manager = new TickerAggregatorManager(symbols);
+        List<CompletableFuture<Void>> futures = Arrays.stream(trades)
+                .map(trade -> CompletableFuture.runAsync(() -> manager.recordTrade(trade), executorService))
+                .toList();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return manager;
+    }
+
+    // The BATCHED mode: batches routed by ticker, one writer per record
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<TickerAggregatorManager> batched() {
+        TickerPartitionedAggregator aggregator = new TickerPartitionedAggregator(executorService, threads, 1024, symbols, metrics);
+        try (aggregator) {
+            for (Trade trade : trades) {
+                aggregator.accept(trade);
+            }
+        }
+        return aggregator.getPartialAggregations();
+    }
+}
@@ -1,5 +1,9 @@
 package com.market.aggregator;
 
+import com.market.aggregator.infrastructure.TradeLogFiles;
+import com.market.aggregator.metrics.MetricsRegistry;
+import com.market.aggregator.metrics.MetricsReporter;
+import com.market.aggregator.service.IngestionMode;
 import com.market.aggregator.service.MarketAggregatorService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -7,10 +11,11 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.core.io.ClassPathResource;
 
-import java.io.FileInputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 
 @SpringBootApplication
 @Slf4j
@@ -20,8 +25,33 @@ public class MarketAggregatorApplication implements CommandLineRunner {
     //The application is a thin layer that delegates the work to the service.
     private final MarketAggregatorService aggregatorService;
 
-    public MarketAggregatorApplication(MarketAggregatorService aggregatorService) {
+    //The ingestion mode decides how the parsed trades are handed over to the aggregator.
+    private final IngestionMode ingestionMode;
+
+    //In follow mode an external log file is polled for new lines until the application is stopped.
+    private final boolean follow;
+    private final Duration followPollInterval;
+
+    //The market weights are read from this file when it is set, from market_weights.txt in the classpath otherwise.
+    private final Path weightsFile;
+
+    //The metrics recorded by the parsers and the service.
+    private final MetricsRegistry metrics;
+
+    //A summary of the metrics is logged at this interval while the trades are processed, and once they are.
+    private final Duration metricsInterval;
+
+    //The settings of the service are given to it by the context, the application only keeps the ones of the run
+    public MarketAggregatorApplication(MarketAggregatorService aggregatorService,
+                                       MetricsRegistry metrics,
+                                       MarketAggregatorProperties properties) {
         this.aggregatorService = aggregatorService;
+        this.ingestionMode = properties.ingestionMode();
+        this.follow = properties.follow();
+        this.followPollInterval = properties.followPollInterval();
+        this.weightsFile = properties.weightsFile();
+        this.metricsInterval = properties.metricsInterval();
+        this.metrics = metrics;
     }
 
     public static void main(String[] args) {
@@ -44,23 +74,43 @@ public class MarketAggregatorApplication implements CommandLineRunner {
         // Log the start of the application
         log.info("Starting MarketAggregatorApplication...");
 
-        InputStream logStream;
-        if (args.length >= 1 && Files.exists(Path.of(args[0]))) {
-            // Use the external file if provided and valid
-            log.info("Using external file: {}", args[0]);
-            logStream = new FileInputStream(args[0]);
-        } else {
-            // Fallback to the default file in the classpath
-            log.info("No valid external file provided. Using default file from classpath.");
-            logStream = getResourceAsStream("market_log.txt");
-        }
-
         // Process the trades
-        try (InputStream ls = logStream;
-             InputStream weightsStream = getResourceAsStream("market_weights.txt")) {
-            log.info("Processing trades...");
-            //Aggregator Service processes the trades
-            aggregatorService.processTrades(ls, weightsStream);
+        try (InputStream weightsStream = weightsFile == null ? getResourceAsStream("market_weights.txt") : Files.newInputStream(weightsFile);
+             MetricsReporter ignored = new MetricsReporter(metrics, metricsInterval)) {
+            // The external log can be a file, a directory of logs or a glob such as "logs/*/venue-*.txt"
+            List<Path> tradesFiles = args.length >= 1 ? TradeLogFiles.resolve(args[0]) : List.of();
+            if (follow && tradesFiles.size() == 1) {
+                // Keep aggregating the lines appended to the external file
+                log.info("Following external file: {}", tradesFiles.get(0));
+                if (weightsFile == null) {
+                    aggregatorService.followTrades(tradesFiles.get(0), weightsStream, followPollInterval);
+                } else {
+                    // The weights file is checked at every poll, the index is calculated again when it changes
+                    aggregatorService.followTrades(tradesFiles.get(0), weightsFile, followPollInterval);
+                }
+                return;
+            }
+            if (follow) {
+                log.warn("Follow mode needs a single external file, the trades are processed once");
+            }
+            if (tradesFiles.size() > 1) {
+                // Every file is parsed on its own thread and the aggregations are merged
+                log.info("Processing {} external files from {} in parallel...", tradesFiles.size(), args[0]);
+                aggregatorService.processTrades(tradesFiles, weightsStream);
+            } else if (tradesFiles.size() == 1) {
+                // Use the external file if provided and valid
+                log.info("Processing trades in {} mode...", ingestionMode);
+                log.info("Using external file: {}", tradesFiles.get(0));
+                //Aggregator Service processes the trades
+                aggregatorService.processTrades(tradesFiles.get(0), weightsStream, ingestionMode);
+            } else {
+                // Fallback to the default file in the classpath
+                log.info("Processing trades in {} mode...", ingestionMode);
+                log.info("No valid external file provided. Using default file from classpath.");
+                try (InputStream logStream = getResourceAsStream("market_log.txt")) {
+                    aggregatorService.processTrades(logStream, weightsStream, ingestionMode);
+                }
+            }
             log.info("Processing completed.");
         }
         catch (Exception e) {
@@ -0,0 +1,34 @@
+package com.market.aggregator;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.metrics.MetricsRegistry;
+import com.market.aggregator.service.AggregationExecutors;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//This class is used to declare the beans of the application that are not components of their own.
+@Configuration
+@EnableConfigurationProperties(MarketAggregatorProperties.class)
+public class MarketAggregatorConfiguration {
+
+    //One table for the whole context, so that the parsers, the stores and the weights give a ticker the same id
+    @Bean
+    public TickerSymbolTable tickerSymbolTable() {
+        return new TickerSymbolTable();
+    }
+
+    //The parsers and the service record their metrics in this registry, the application reports them
+    @Bean
+    public MetricsRegistry metricsRegistry(MarketAggregatorProperties properties) {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.setEnabled(properties.metrics());
+        return metrics;
+    }
+
+    //The thread pools of the service are created once, and shut down with the context
+    @Bean(destroyMethod = "close")
+    public AggregationExecutors aggregationExecutors(MarketAggregatorProperties properties) {
+        return new AggregationExecutors(properties.readThreads(), properties.aggregationParallelism());
+    }
+}
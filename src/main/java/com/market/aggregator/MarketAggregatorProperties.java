@@ -0,0 +1,92 @@
+package com.market.aggregator;
+
+import com.market.aggregator.domain.InstrumentTickSizes;
+import com.market.aggregator.service.IngestionMode;
+import com.market.aggregator.service.IntradayIndexAggregator;
+import com.market.aggregator.service.ThreadMode;
+import com.market.aggregator.service.WaitStrategy;
+import lombok.Builder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+//This class is used to hold the settings of the application, the market.aggregator.* properties described in
+//application.properties. They are bound and checked once at startup, so a wrong setting stops the application before
+//any trade is read. The files that are not set are null.
+@ConfigurationProperties("market.aggregator")
+@Builder(toBuilder = true)
+public record MarketAggregatorProperties(
+        @DefaultValue("STREAMING") IngestionMode ingestionMode,
+        @DefaultValue("0s") Duration intradayInterval,
+        boolean follow,
+        @DefaultValue("200ms") Duration followPollInterval,
+        Path weightsFile,
+        Path exportFile,
+        Path snapshotFile,
+        @DefaultValue("1m") Duration snapshotInterval,
+        @DefaultValue("true") boolean metrics,
+        @DefaultValue("10s") Duration metricsInterval,
+        boolean lenientParsing,
+        Path rejectFile,
+        int maxConcurrentFiles,
+        @DefaultValue("PLATFORM") ThreadMode readThreads,
+        int aggregationThreads,
+        @DefaultValue("16384") int ringBufferSize,
+        @DefaultValue("SLEEPING") WaitStrategy waitStrategy,
+        @DefaultValue("0.01") BigDecimal tickSize,
+        Map<String, BigDecimal> tickSizes) {
+
+    public MarketAggregatorProperties {
+        if (!intradayInterval.isZero()) {
+            IntradayIndexAggregator.validateInterval(intradayInterval);
+        }
+        if (maxConcurrentFiles < 0) {
+            throw new IllegalArgumentException("The number of files read at the same time cannot be negative: " + maxConcurrentFiles);
+        }
+        if (aggregationThreads < 0) {
+            throw new IllegalArgumentException("The number of aggregation threads cannot be negative: " + aggregationThreads);
+        }
+        if (ringBufferSize <= 0 || Integer.bitCount(ringBufferSize) != 1) {
+            throw new IllegalArgumentException("The size of the ring buffer must be a power of two: " + ringBufferSize);
+        }
+        tickSizes = tickSizes == null ? Map.of() : Map.copyOf(tickSizes);
+        // A tick size that is not positive fails here rather than when the store is built
+        newTickSizes(tickSize, tickSizes);
+        // An empty property, e.g. "market.aggregator.export-file=", turns the file off
+        weightsFile = emptyToNull(weightsFile);
+        exportFile = emptyToNull(exportFile);
+        snapshotFile = emptyToNull(snapshotFile);
+        rejectFile = emptyToNull(rejectFile);
+    }
+
+    // The settings of application.properties, used by the tests and the benchmarks that build the service themselves
+    public static MarketAggregatorProperties defaults() {
+        return new MarketAggregatorProperties(IngestionMode.STREAMING, Duration.ZERO, false, Duration.ofMillis(200), null,
+                null, null, Duration.ofMinutes(1), true, Duration.ofSeconds(10), false, null, 0, ThreadMode.PLATFORM, 0,
+                16_384, WaitStrategy.SLEEPING, InstrumentTickSizes.DEFAULT_TICK_SIZE, Map.of());
+    }
+
+    // The tick sizes of the fixed-point stores: tick-size for every instrument, unless tick-sizes has one of its own
+    public InstrumentTickSizes instrumentTickSizes() {
+        return newTickSizes(tickSize, tickSizes);
+    }
+
+    // Number of threads of the aggregation pool, one per core when it is not set
+    public int aggregationParallelism() {
+        return aggregationThreads == 0 ? Runtime.getRuntime().availableProcessors() : aggregationThreads;
+    }
+
+    private static InstrumentTickSizes newTickSizes(BigDecimal tickSize, Map<String, BigDecimal> tickSizes) {
+        InstrumentTickSizes instrumentTickSizes = InstrumentTickSizes.withDefault(tickSize);
+        tickSizes.forEach(instrumentTickSizes::tickSize);
+        return instrumentTickSizes;
+    }
+
+    private static Path emptyToNull(Path file) {
+        return file == null || file.toString().isEmpty() ? null : file;
+    }
+}
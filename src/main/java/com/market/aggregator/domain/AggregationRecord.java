@@ -56,4 +56,31 @@ public class AggregationRecord {
         // Add the trade's volume to the total volume.
         volumeOfTrades = volumeOfTrades.add(tradeVolume);
     }
-}
\ No newline at end of file
+
+    // Merges the partial aggregation of another set of trades of the same ticker into this record.
+    // The other record must hold trades that come after the trades of this record in the log, so that,
+    // like in recordTrade, the open and close of this record are kept when the timestamps are equal.
+    public void merge(AggregationRecord other) {
+        // Validate that both records aggregate the same ticker.
+        if (!other.getTicker().equals(ticker)) {
+            throw new IllegalArgumentException(String.format("Trying to merge ticker of type %s with type %s", other.getTicker(), ticker));
+        }
+        // Nothing to merge if the other record has not seen any trade.
+        if (other.getOpenTime() == null) {
+            return;
+        }
+        // Keep the earliest open of both records.
+        if (openTime == null || other.getOpenTime().isBefore(openTime)) {
+            openTime = other.getOpenTime();
+            openPrice = other.getOpenPrice();
+        }
+        // Keep the latest close of both records.
+        if (closeTime == null || other.getCloseTime().isAfter(closeTime)) {
+            closeTime = other.getCloseTime();
+            closePrice = other.getClosePrice();
+        }
+        highestPrice = (highestPrice == null) ? other.getHighestPrice() : highestPrice.max(other.getHighestPrice());
+        lowestPrice = (lowestPrice == null) ? other.getLowestPrice() : lowestPrice.min(other.getLowestPrice());
+        volumeOfTrades = (volumeOfTrades == null) ? other.getVolumeOfTrades() : volumeOfTrades.add(other.getVolumeOfTrades());
+    }
+}
@@ -0,0 +1,208 @@
+package com.market.aggregator.domain;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//This class is used to store the aggregation of trades for a specific ticker when many threads record trades of
+//that ticker at the same time, without a lock. The open and the close are replaced together with their time by
+//compare-and-set when a trade is earlier or later, the highest and lowest prices by compare-and-set loops that stop
+//as soon as the price does not beat them, and the volume is added to stripes once two threads collide on it.
+//BigDecimal additions are exact, so the values are the same as AggregationRecord whatever the order of the threads,
+//except that which of two trades with the same timestamp opens or closes depends on which thread gets there first.
+public class ConcurrentAggregationRecord {
+    // One stripe per thread that can run at once, rounded up to a power of two
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) << 1;
+    // Stripes are this many references apart, so two threads adding to neighbouring stripes do not share a cache line
+    private static final int STRIPE_SPACING = 16;
+
+    private static final VarHandle OPEN;
+    private static final VarHandle CLOSE;
+    private static final VarHandle HIGHEST_PRICE;
+    private static final VarHandle LOWEST_PRICE;
+    private static final VarHandle VOLUME;
+    private static final VarHandle VOLUME_STRIPES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            OPEN = lookup.findVarHandle(ConcurrentAggregationRecord.class, "open", PricePoint.class);
+            CLOSE = lookup.findVarHandle(ConcurrentAggregationRecord.class, "close", PricePoint.class);
+            HIGHEST_PRICE = lookup.findVarHandle(ConcurrentAggregationRecord.class, "highestPrice", BigDecimal.class);
+            LOWEST_PRICE = lookup.findVarHandle(ConcurrentAggregationRecord.class, "lowestPrice", BigDecimal.class);
+            VOLUME = lookup.findVarHandle(ConcurrentAggregationRecord.class, "volume", BigDecimal.class);
+            VOLUME_STRIPES = lookup.findVarHandle(ConcurrentAggregationRecord.class, "volumeStripes", AtomicReferenceArray.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Getter
+    private final String ticker;
+    private volatile PricePoint open;
+    private volatile PricePoint close;
+    private volatile BigDecimal highestPrice;
+    private volatile BigDecimal lowestPrice;
+    // The volume is added here until two threads collide, then to the stripes
+    private volatile BigDecimal volume = BigDecimal.ZERO;
+    private volatile AtomicReferenceArray<BigDecimal> volumeStripes;
+
+    private ConcurrentAggregationRecord(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public static ConcurrentAggregationRecord of(String ticker) {
+        return new ConcurrentAggregationRecord(ticker);
+    }
+
+    public void recordTrade(Trade trade) {
+        // Validate that the trade's ticker matches the record's ticker.
+        if (!trade.getTicker().equals(ticker)) {
+            throw new IllegalArgumentException(String.format("Trying to aggregate ticker of type %s with type %s", trade.getTicker(), ticker));
+        }
+        LocalDateTime timestamp = trade.getTimestamp();
+        BigDecimal price = trade.getPrice();
+        recordOpen(timestamp, price);
+        recordClose(timestamp, price);
+        recordHighestPrice(price);
+        recordLowestPrice(price);
+        addVolume(price.multiply(BigDecimal.valueOf(trade.getQuantity())));
+    }
+
+    // Merges the partial aggregation of another set of trades of the same ticker into this record, like
+    // AggregationRecord.merge the open and close of this record are kept when the timestamps are equal.
+    public void merge(AggregationRecord other) {
+        // Validate that both records aggregate the same ticker.
+        if (!other.getTicker().equals(ticker)) {
+            throw new IllegalArgumentException(String.format("Trying to merge ticker of type %s with type %s", other.getTicker(), ticker));
+        }
+        // Nothing to merge if the other record has not seen any trade.
+        if (other.getOpenTime() == null) {
+            return;
+        }
+        recordOpen(other.getOpenTime(), other.getOpenPrice());
+        recordClose(other.getCloseTime(), other.getClosePrice());
+        recordHighestPrice(other.getHighestPrice());
+        recordLowestPrice(other.getLowestPrice());
+        addVolume(other.getVolumeOfTrades());
+    }
+
+    public BigDecimal getClosePrice() {
+        PricePoint current = close;
+        return current == null ? null : current.price();
+    }
+
+    // The sum of the volume and of its stripes. Trades recorded while summing may or may not be part of it.
+    public BigDecimal getVolumeOfTrades() {
+        BigDecimal sum = volume;
+        AtomicReferenceArray<BigDecimal> stripes = volumeStripes;
+        if (stripes != null) {
+            for (int i = 0; i < stripes.length(); i += STRIPE_SPACING) {
+                BigDecimal stripe = stripes.get(i);
+                if (stripe != null) {
+                    sum = sum.add(stripe);
+                }
+            }
+        }
+        return sum;
+    }
+
+    // Returns the aggregation as an AggregationRecord. It is a copy, trades recorded afterwards are not part of it, and
+    // a trade recorded while copying may be part of some of its values only.
+    public AggregationRecord toAggregationRecord() {
+        AggregationRecord record = AggregationRecord.of(ticker);
+        PricePoint currentOpen = open;
+        PricePoint currentClose = close;
+        BigDecimal currentHighestPrice = highestPrice;
+        BigDecimal currentLowestPrice = lowestPrice;
+        // The first trade sets the open, the close, the highest and the lowest price one after the other. A record
+        // caught before all of them are set is copied as a record without trade, never with null prices.
+        if (currentOpen == null || currentClose == null || currentHighestPrice == null || currentLowestPrice == null) {
+            return record;
+        }
+        record.setOpenTime(currentOpen.time());
+        record.setOpenPrice(currentOpen.price());
+        record.setCloseTime(currentClose.time());
+        record.setClosePrice(currentClose.price());
+        record.setHighestPrice(currentHighestPrice);
+        record.setLowestPrice(currentLowestPrice);
+        record.setVolumeOfTrades(getVolumeOfTrades());
+        return record;
+    }
+
+    // An earlier trade replaces the open, a trade at the same time keeps the open that was set first
+    private void recordOpen(LocalDateTime time, BigDecimal price) {
+        for (PricePoint current = open; current == null || time.isBefore(current.time()); current = open) {
+            if (OPEN.compareAndSet(this, current, new PricePoint(time, price))) {
+                return;
+            }
+        }
+    }
+
+    // A later trade replaces the close, a trade at the same time keeps the close that was set first
+    private void recordClose(LocalDateTime time, BigDecimal price) {
+        for (PricePoint current = close; current == null || time.isAfter(current.time()); current = close) {
+            if (CLOSE.compareAndSet(this, current, new PricePoint(time, price))) {
+                return;
+            }
+        }
+    }
+
+    // Once the highest price of the day is known, most trades only read it
+    private void recordHighestPrice(BigDecimal price) {
+        for (BigDecimal current = highestPrice; current == null || price.compareTo(current) > 0; current = highestPrice) {
+            if (HIGHEST_PRICE.compareAndSet(this, current, price)) {
+                return;
+            }
+        }
+    }
+
+    private void recordLowestPrice(BigDecimal price) {
+        for (BigDecimal current = lowestPrice; current == null || price.compareTo(current) < 0; current = lowestPrice) {
+            if (LOWEST_PRICE.compareAndSet(this, current, price)) {
+                return;
+            }
+        }
+    }
+
+    // A record written by a single thread only ever adds to the volume, the stripes are created on the first collision
+    private void addVolume(BigDecimal amount) {
+        AtomicReferenceArray<BigDecimal> stripes = volumeStripes;
+        if (stripes == null) {
+            BigDecimal current = volume;
+            if (VOLUME.compareAndSet(this, current, current.add(amount))) {
+                return;
+            }
+            stripes = createVolumeStripes();
+        }
+        // Every thread starts at its own stripe and moves to the next one when another thread got there first
+        int index = stripeOf(Thread.currentThread());
+        while (true) {
+            BigDecimal current = stripes.get(index);
+            if (stripes.compareAndSet(index, current, current == null ? amount : current.add(amount))) {
+                return;
+            }
+            index = (index + STRIPE_SPACING) % stripes.length();
+        }
+    }
+
+    private AtomicReferenceArray<BigDecimal> createVolumeStripes() {
+        AtomicReferenceArray<BigDecimal> stripes = new AtomicReferenceArray<>(STRIPES * STRIPE_SPACING);
+        // Another thread may have created them first, its stripes are used then
+        return VOLUME_STRIPES.compareAndSet(this, null, stripes) ? stripes : volumeStripes;
+    }
+
+    private static int stripeOf(Thread thread) {
+        // Spreads consecutive thread ids over the stripes
+        long hash = thread.threadId() * 0x9E3779B97F4A7C15L;
+        return ((int) (hash >>> 32) & (STRIPES - 1)) * STRIPE_SPACING;
+    }
+
+    // The time and the price of the open or of the close, swapped as one
+    private record PricePoint(LocalDateTime time, BigDecimal price) {
+    }
+}
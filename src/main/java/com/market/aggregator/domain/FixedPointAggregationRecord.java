@@ -0,0 +1,118 @@
+package com.market.aggregator.domain;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+//This class is used to store the aggregation of trades for a specific ticker with primitive fields only.
+//Its fields are a single cell of FixedPointCells, updated with the same rules as the cells of the fixed-point stores,
+//so recording a trade does not allocate anything.
+//When a price has more decimals than the scale or a value overflows a long, the record falls back to a
+//BigDecimal AggregationRecord for the rest of its trades, so the results are always the same as AggregationRecord.
+public class FixedPointAggregationRecord extends FixedPointCells {
+    // The only cell of the record
+    private static final int CELL = 0;
+
+    @Getter
+    private final String ticker;
+    @Getter
+    private final int scale;
+    private final long[] fields = new long[FIELD_COUNT];
+    private byte state = EMPTY;
+
+    // Holds the aggregation once the primitive fields cannot represent it anymore
+    private AggregationRecord fallback;
+
+    private FixedPointAggregationRecord(String ticker, int scale) {
+        this.ticker = ticker;
+        this.scale = scale;
+    }
+
+    public static FixedPointAggregationRecord of(String ticker, InstrumentTickSizes tickSizes) {
+        return new FixedPointAggregationRecord(ticker, tickSizes.scaleFor(ticker));
+    }
+
+    public static FixedPointAggregationRecord of(String ticker, int scale) {
+        return new FixedPointAggregationRecord(ticker, scale);
+    }
+
+    public void recordTrade(Trade trade) {
+        // Validate that the trade's ticker matches the record's ticker.
+        if (!trade.getTicker().equals(ticker)) {
+            throw new IllegalArgumentException(String.format("Trying to aggregate ticker of type %s with type %s", trade.getTicker(), ticker));
+        }
+        if (fallback == null) {
+            try {
+                recordTrade(toEpochSecond(trade.getTimestamp()), toScaledPrice(trade.getPrice(), scale), trade.getQuantity());
+                return;
+            } catch (ArithmeticException e) {
+                // The price has more decimals than the scale or does not fit in a long
+                switchToFallback();
+            }
+        }
+        fallback.recordTrade(trade);
+    }
+
+    // Records a trade given as an epoch second, a price scaled by the scale of this record and a quantity.
+    // This is the allocation-free path, it only allocates when it has to fall back to BigDecimal.
+    public void recordTrade(long epochSecond, long scaledPrice, int quantity) {
+        if (fallback == null) {
+            try {
+                recordTrade(CELL, epochSecond, scaledPrice, quantity);
+                return;
+            } catch (ArithmeticException e) {
+                // The volume does not fit in a long, the cell was not changed
+                switchToFallback();
+            }
+        }
+        fallback.recordTrade(toTrade(epochSecond, scaledPrice, quantity));
+    }
+
+    // True once the record holds BigDecimal values instead of primitive ones
+    public boolean isFallback() {
+        return fallback != null;
+    }
+
+    // Returns the aggregation as an AggregationRecord, with the same values as recording the trades in one.
+    public AggregationRecord toAggregationRecord() {
+        if (fallback != null) {
+            AggregationRecord copy = AggregationRecord.of(ticker);
+            copy.merge(fallback);
+            return copy;
+        }
+        return toAggregationRecord(CELL, ticker, scale);
+    }
+
+    @Override
+    protected byte state(int cell) {
+        return state;
+    }
+
+    @Override
+    protected void setState(int cell, byte state) {
+        this.state = state;
+    }
+
+    @Override
+    protected long get(int cell, int field) {
+        return fields[field];
+    }
+
+    @Override
+    protected void set(int cell, int field, long value) {
+        fields[field] = value;
+    }
+
+    private void switchToFallback() {
+        fallback = toAggregationRecord();
+    }
+
+    private Trade toTrade(long epochSecond, long scaledPrice, int quantity) {
+        return Trade.builder()
+                .timestamp(toLocalDateTime(epochSecond))
+                .ticker(ticker)
+                .price(BigDecimal.valueOf(scaledPrice, scale))
+                .quantity(quantity)
+                .build();
+    }
+}
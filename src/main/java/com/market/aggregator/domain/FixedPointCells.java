@@ -0,0 +1,122 @@
+package com.market.aggregator.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+//This class holds the rules of AggregationRecord for aggregations kept in cells of primitive fields.
+//Prices and volumes are longs scaled by the tick size of the instrument (a scale of 2 keeps cents) and the
+//timestamps are epoch seconds, so recording a trade does not allocate anything.
+//A value that does not fit in a cell throws ArithmeticException before the cell is changed, the caller then keeps
+//the aggregation in a BigDecimal AggregationRecord. The subclasses decide where the cells are stored, e.g. the single
+//cell of a FixedPointAggregationRecord or one cell per ticker and day in a store.
+public abstract class FixedPointCells {
+    // Fields of a cell
+    public static final int OPEN_TIME = 0;
+    public static final int CLOSE_TIME = 1;
+    public static final int OPEN_PRICE = 2;
+    public static final int CLOSE_PRICE = 3;
+    public static final int HIGHEST_PRICE = 4;
+    public static final int LOWEST_PRICE = 5;
+    public static final int VOLUME = 6;
+    public static final int FIELD_COUNT = 7;
+    // State of a cell, new cells must be EMPTY
+    public static final byte EMPTY = 0;
+    public static final byte FIXED_POINT = 1;
+    public static final byte FALLBACK = 2;
+
+    // Storage of the cells
+    protected abstract byte state(int cell);
+
+    protected abstract void setState(int cell, byte state);
+
+    protected abstract long get(int cell, int field);
+
+    protected abstract void set(int cell, int field, long value);
+
+    // Same rules as AggregationRecord.recordTrade: the first trade read wins when the timestamps are equal.
+    protected final void recordTrade(int cell, long epochSecond, long scaledPrice, int quantity) {
+        // Calculate the trade's volume first, nothing is changed if it overflows
+        long newVolume = Math.addExact(get(cell, VOLUME), Math.multiplyExact(scaledPrice, (long) quantity));
+        if (state(cell) == EMPTY) {
+            set(cell, OPEN_TIME, epochSecond);
+            set(cell, CLOSE_TIME, epochSecond);
+            set(cell, OPEN_PRICE, scaledPrice);
+            set(cell, CLOSE_PRICE, scaledPrice);
+            set(cell, HIGHEST_PRICE, scaledPrice);
+            set(cell, LOWEST_PRICE, scaledPrice);
+            setState(cell, FIXED_POINT);
+        } else {
+            update(cell, epochSecond, scaledPrice, epochSecond, scaledPrice, scaledPrice, scaledPrice);
+        }
+        set(cell, VOLUME, newVolume);
+    }
+
+    // Same rules as AggregationRecord.merge: the cell wins when the timestamps are equal.
+    protected final void merge(int cell, AggregationRecord other, int scale) {
+        // Convert everything first, nothing is changed if a value cannot be stored in the cell
+        long otherOpenTime = toEpochSecond(other.getOpenTime());
+        long otherCloseTime = toEpochSecond(other.getCloseTime());
+        long otherOpenPrice = toScaledPrice(other.getOpenPrice(), scale);
+        long otherClosePrice = toScaledPrice(other.getClosePrice(), scale);
+        long otherHighestPrice = toScaledPrice(other.getHighestPrice(), scale);
+        long otherLowestPrice = toScaledPrice(other.getLowestPrice(), scale);
+        long newVolume = Math.addExact(get(cell, VOLUME), toScaledPrice(other.getVolumeOfTrades(), scale));
+        if (state(cell) == EMPTY) {
+            set(cell, OPEN_TIME, otherOpenTime);
+            set(cell, CLOSE_TIME, otherCloseTime);
+            set(cell, OPEN_PRICE, otherOpenPrice);
+            set(cell, CLOSE_PRICE, otherClosePrice);
+            set(cell, HIGHEST_PRICE, otherHighestPrice);
+            set(cell, LOWEST_PRICE, otherLowestPrice);
+            setState(cell, FIXED_POINT);
+        } else {
+            update(cell, otherOpenTime, otherOpenPrice, otherCloseTime, otherClosePrice, otherHighestPrice, otherLowestPrice);
+        }
+        set(cell, VOLUME, newVolume);
+    }
+
+    // Builds a new record of the ticker from an EMPTY or FIXED_POINT cell
+    protected final AggregationRecord toAggregationRecord(int cell, String ticker, int scale) {
+        AggregationRecord record = AggregationRecord.of(ticker);
+        if (state(cell) == EMPTY) {
+            return record;
+        }
+        record.setOpenTime(toLocalDateTime(get(cell, OPEN_TIME)));
+        record.setCloseTime(toLocalDateTime(get(cell, CLOSE_TIME)));
+        record.setOpenPrice(BigDecimal.valueOf(get(cell, OPEN_PRICE), scale));
+        record.setClosePrice(BigDecimal.valueOf(get(cell, CLOSE_PRICE), scale));
+        record.setHighestPrice(BigDecimal.valueOf(get(cell, HIGHEST_PRICE), scale));
+        record.setLowestPrice(BigDecimal.valueOf(get(cell, LOWEST_PRICE), scale));
+        record.setVolumeOfTrades(BigDecimal.valueOf(get(cell, VOLUME), scale));
+        return record;
+    }
+
+    // Converts a price to a long with the given number of decimals, it throws ArithmeticException if it does not fit.
+    public static long toScaledPrice(BigDecimal price, int scale) {
+        return price.movePointRight(scale).longValueExact();
+    }
+
+    // Timestamps of the log have no time zone, they are stored as seconds since the epoch in UTC.
+    public static long toEpochSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    // Moves the open and close of a non-empty cell when they are strictly earlier or later, and widens the range
+    private void update(int cell, long openTime, long openPrice, long closeTime, long closePrice, long highestPrice, long lowestPrice) {
+        if (openTime < get(cell, OPEN_TIME)) {
+            set(cell, OPEN_TIME, openTime);
+            set(cell, OPEN_PRICE, openPrice);
+        }
+        if (closeTime > get(cell, CLOSE_TIME)) {
+            set(cell, CLOSE_TIME, closeTime);
+            set(cell, CLOSE_PRICE, closePrice);
+        }
+        set(cell, HIGHEST_PRICE, Math.max(get(cell, HIGHEST_PRICE), highestPrice));
+        set(cell, LOWEST_PRICE, Math.min(get(cell, LOWEST_PRICE), lowestPrice));
+    }
+}
@@ -0,0 +1,46 @@
+package com.market.aggregator.domain;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//This class is used to store the tick size of every instrument.
+//The tick size decides how many decimals of a price are kept in the fixed-point aggregation records:
+//a tick size of 0.01 keeps prices as a long number of cents.
+public class InstrumentTickSizes {
+    // Used for the instruments without a tick size of their own
+    public static final BigDecimal DEFAULT_TICK_SIZE = new BigDecimal("0.01");
+
+    private final int defaultScale;
+    private final Map<String, Integer> scales = new ConcurrentHashMap<>();
+
+    private InstrumentTickSizes(BigDecimal defaultTickSize) {
+        this.defaultScale = scaleOf(defaultTickSize);
+    }
+
+    public static InstrumentTickSizes withDefault(BigDecimal defaultTickSize) {
+        return new InstrumentTickSizes(defaultTickSize);
+    }
+
+    public static InstrumentTickSizes defaults() {
+        return new InstrumentTickSizes(DEFAULT_TICK_SIZE);
+    }
+
+    // Sets the tick size of an instrument, e.g. 0.05 or 0.0001
+    public InstrumentTickSizes tickSize(String ticker, BigDecimal tickSize) {
+        scales.put(ticker, scaleOf(tickSize));
+        return this;
+    }
+
+    // Number of decimals kept for the prices of the ticker
+    public int scaleFor(String ticker) {
+        return scales.getOrDefault(ticker, defaultScale);
+    }
+
+    private static int scaleOf(BigDecimal tickSize) {
+        if (tickSize.signum() <= 0) {
+            throw new IllegalArgumentException("Tick size must be positive: " + tickSize);
+        }
+        return Math.max(0, tickSize.stripTrailingZeros().scale());
+    }
+}
@@ -0,0 +1,10 @@
+package com.market.aggregator.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//This class is used to store the market index at the end of an intraday interval [start, end).
+//The value is taken from the last trade price of every ticker up to the end of the interval, it is null while a
+//ticker of the index has not traded yet.
+public record IntradayIndexPoint(LocalDateTime start, LocalDateTime end, BigDecimal value) {
+}
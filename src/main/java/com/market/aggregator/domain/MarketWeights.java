@@ -0,0 +1,50 @@
+package com.market.aggregator.domain;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+//This class is used to store the market weights of the index constituents by ticker id.
+//The weight of a ticker is read from an array indexed by its TickerSymbolTable id instead of a map keyed by String.
+public final class MarketWeights {
+    private final int[] constituentIds;
+    private final BigDecimal[] weightsById;
+
+    private MarketWeights(int[] constituentIds, BigDecimal[] weightsById) {
+        this.constituentIds = constituentIds;
+        this.weightsById = weightsById;
+    }
+
+    // Gives every ticker of the weights an id in the symbol table and stores its weight at that id
+    public static MarketWeights of(Map<String, BigDecimal> marketWeights, TickerSymbolTable symbols) {
+        int[] constituentIds = new int[marketWeights.size()];
+        int constituents = 0;
+        for (String ticker : marketWeights.keySet()) {
+            constituentIds[constituents++] = symbols.idOf(ticker);
+        }
+        BigDecimal[] weightsById = new BigDecimal[symbols.size()];
+        for (Map.Entry<String, BigDecimal> entry : marketWeights.entrySet()) {
+            weightsById[symbols.idOf(entry.getKey())] = entry.getValue();
+        }
+        return new MarketWeights(constituentIds, weightsById);
+    }
+
+    // Number of tickers in the index
+    public int size() {
+        return constituentIds.length;
+    }
+
+    // Id of the constituent at the given position, from 0 to size - 1
+    public int constituentId(int index) {
+        return constituentIds[index];
+    }
+
+    // Every ticker id of the index is lower than this limit
+    public int tickerIdLimit() {
+        return weightsById.length;
+    }
+
+    // Weight of the ticker, or null if the ticker is not part of the index
+    public BigDecimal weightOf(int tickerId) {
+        return tickerId >= 0 && tickerId < weightsById.length ? weightsById[tickerId] : null;
+    }
+}
@@ -0,0 +1,145 @@
+package com.market.aggregator.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//This class is used to give every ticker a dense int id (0, 1, 2...) in the order the tickers are first seen.
+//With the ids, the aggregation, the weights and the index calculation can use arrays instead of maps keyed by
+//String, and the parsers can look a ticker up from the bytes of a line, so its String is only created once.
+//Lookups never lock, only adding a new ticker does.
+//The parsers, the stores, the weights and the index calculation must use the same table so that their ids agree:
+//the application has one table, a bean injected into them, and the tests build tables of their own.
+public final class TickerSymbolTable {
+    private final Map<String, Integer> idsByTicker = new ConcurrentHashMap<>();
+    // Open addressing table to find an id from the bytes of a ticker, it is kept at most half full
+    private volatile AtomicReferenceArray<Symbol> slots = new AtomicReferenceArray<>(64);
+    private volatile AtomicReferenceArray<String> tickersById = new AtomicReferenceArray<>(32);
+    private volatile int size;
+
+    // Returns the id of the ticker, the ticker is added if it is not known yet
+    public int idOf(String ticker) {
+        Integer id = idsByTicker.get(ticker);
+        return id != null ? id : add(ticker.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns the id of the ticker of the trade, using the id set by the parser when there is one
+    public int idOf(Trade trade) {
+        return trade.getTickerId() >= 0 ? trade.getTickerId() : idOf(trade.getTicker());
+    }
+
+    // Returns the id of the ticker held in bytes [from, to) of the buffer, without allocating when the ticker is known
+    public int idOf(ByteBuffer buffer, int from, int to) {
+        int id = find(slots, buffer, from, to);
+        if (id >= 0) {
+            return id;
+        }
+        byte[] key = new byte[to - from];
+        buffer.get(from, key);
+        return add(key);
+    }
+
+    // Returns the id of the ticker or -1 when the ticker is not known
+    public int find(String ticker) {
+        return idsByTicker.getOrDefault(ticker, -1);
+    }
+
+    public String tickerOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown ticker id: " + id);
+        }
+        return tickersById.get(id);
+    }
+
+    // Number of tickers known, the ids go from 0 to size - 1
+    public int size() {
+        return size;
+    }
+
+    private synchronized int add(byte[] key) {
+        // Another thread may have added the ticker in the meantime
+        int existing = find(slots, ByteBuffer.wrap(key), 0, key.length);
+        if (existing >= 0) {
+            return existing;
+        }
+        int id = size;
+        String ticker = new String(key, StandardCharsets.UTF_8);
+        if (id == tickersById.length()) {
+            tickersById = copyOf(tickersById, id * 2);
+        }
+        tickersById.set(id, ticker);
+        // The ticker must be readable by id before the id can be found by another thread
+        size = id + 1;
+        if ((id + 1) * 2 > slots.length()) {
+            slots = rehash(slots, slots.length() * 2);
+        }
+        insert(slots, new Symbol(key, id));
+        idsByTicker.put(ticker, id);
+        return id;
+    }
+
+    private static int find(AtomicReferenceArray<Symbol> table, ByteBuffer buffer, int from, int to) {
+        int mask = table.length() - 1;
+        for (int slot = hash(buffer, from, to) & mask; ; slot = (slot + 1) & mask) {
+            Symbol symbol = table.get(slot);
+            if (symbol == null) {
+                return -1;
+            }
+            if (symbol.matches(buffer, from, to)) {
+                return symbol.id;
+            }
+        }
+    }
+
+    private static void insert(AtomicReferenceArray<Symbol> table, Symbol symbol) {
+        int mask = table.length() - 1;
+        int slot = hash(ByteBuffer.wrap(symbol.key), 0, symbol.key.length) & mask;
+        while (table.get(slot) != null) {
+            slot = (slot + 1) & mask;
+        }
+        table.set(slot, symbol);
+    }
+
+    private static AtomicReferenceArray<Symbol> rehash(AtomicReferenceArray<Symbol> table, int capacity) {
+        AtomicReferenceArray<Symbol> resized = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < table.length(); i++) {
+            if (table.get(i) != null) {
+                insert(resized, table.get(i));
+            }
+        }
+        return resized;
+    }
+
+    private static AtomicReferenceArray<String> copyOf(AtomicReferenceArray<String> array, int capacity) {
+        AtomicReferenceArray<String> copy = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < array.length(); i++) {
+            copy.set(i, array.get(i));
+        }
+        return copy;
+    }
+
+    private static int hash(ByteBuffer buffer, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    // The bytes of a ticker with its id, immutable so it can be read without locking
+    private record Symbol(byte[] key, int id) {
+        private boolean matches(ByteBuffer buffer, int from, int to) {
+            if (key.length != to - from) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -15,6 +15,9 @@ public class Trade {
     private final String ticker;
     private final BigDecimal price;
     private final int quantity;
+    // Id of the ticker in the TickerSymbolTable, set by the parsers. -1 when the trade was built without one.
+    @Builder.Default
+    private final int tickerId = -1;
 
     public String getDate() {
         return timestamp.toLocalDate().toString();
@@ -0,0 +1,57 @@
+package com.market.aggregator.infrastructure;
+
+//This class holds the layout of the binary columnar export written by ColumnarExportWriter and read by
+//ColumnarExportReader. All the numbers are big-endian.
+//
+//  Header (32 bytes): magic, version, day count, ticker count (ints), day index offset, dictionary offset (longs)
+//  Day blocks, one per day, 8-byte aligned, the rows sorted by ticker id:
+//      open time, close time (epoch seconds, UTC), open, close, high, low, volume (unscaled values): one long column each
+//      ticker id: an int column
+//      scale of open, close, high, low, volume: one byte column each
+//  Day index, one 32 byte entry per day in date order:
+//      epoch day, row count (ints), block offset (long), index value unscaled (long), index scale, index present (ints)
+//  Ticker dictionary: for every ticker id in order, the length (short) and the UTF-8 bytes of the ticker
+//
+//A day is found by a binary search in the day index and a ticker of a day by a binary search in its ticker id column,
+//so one day or one ticker is read without going through the rest of the file.
+final class ColumnarExportFormat {
+    static final int MAGIC = 0x4D414758; // "MAGX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int DAY_ENTRY_SIZE = 32;
+
+    // Long columns of a day block
+    static final int OPEN_TIME = 0;
+    static final int CLOSE_TIME = 1;
+    static final int OPEN_PRICE = 2;
+    static final int CLOSE_PRICE = 3;
+    static final int HIGHEST_PRICE = 4;
+    static final int LOWEST_PRICE = 5;
+    static final int VOLUME = 6;
+    static final int LONG_COLUMNS = 7;
+    // Values stored with a scale, they are the long columns from OPEN_PRICE on
+    static final int SCALED_COLUMNS = 5;
+
+    private ColumnarExportFormat() {
+    }
+
+    // Bytes of a day block of the given number of rows, padded so the next block is aligned too
+    static long blockSize(int rows) {
+        long size = (long) rows * (LONG_COLUMNS * Long.BYTES + Integer.BYTES + SCALED_COLUMNS);
+        return (size + 7) & ~7L;
+    }
+
+    // Offset of a long column in a day block
+    static long longColumn(int rows, int column) {
+        return (long) column * rows * Long.BYTES;
+    }
+
+    static long tickerIdColumn(int rows) {
+        return (long) LONG_COLUMNS * rows * Long.BYTES;
+    }
+
+    // Offset of the scale column of a scaled value, the value is given as its long column
+    static long scaleColumn(int rows, int column) {
+        return tickerIdColumn(rows) + (long) rows * Integer.BYTES + (long) (column - OPEN_PRICE) * rows;
+    }
+}
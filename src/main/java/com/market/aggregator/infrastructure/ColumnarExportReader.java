@@ -0,0 +1,213 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.AggregationRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static com.market.aggregator.infrastructure.ColumnarExportFormat.*;
+
+//This class is used to read a file written by ColumnarExportWriter. The file is memory-mapped and only the header and
+//the ticker dictionary are read when it is opened: a day is found with a binary search in the day index and a ticker
+//of a day with a binary search in the ticker id column of its block, so only the pages of what is read are touched.
+public class ColumnarExportReader implements Closeable {
+    private final FileChannel channel;
+    private final MappedByteBuffer file;
+    private final int dayCount;
+    private final long dayIndexOffset;
+    private final List<String> tickers;
+    private final Map<String, Integer> tickerIds = new HashMap<>();
+
+    public ColumnarExportReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Export files larger than 2 GB are not supported: " + path);
+            }
+            this.file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (file.limit() < HEADER_SIZE || file.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a columnar export file: " + path);
+            }
+            if (file.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Unsupported columnar export version " + file.getInt(4) + ": " + path);
+            }
+            this.dayCount = file.getInt(8);
+            this.dayIndexOffset = file.getLong(16);
+            this.tickers = readDictionary(file.getInt(12), (int) file.getLong(24));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Days of the file, in date order
+    public List<LocalDate> getDates() {
+        List<LocalDate> dates = new ArrayList<>(dayCount);
+        for (int day = 0; day < dayCount; day++) {
+            dates.add(LocalDate.ofEpochDay(file.getInt(dayEntry(day))));
+        }
+        return dates;
+    }
+
+    // Tickers of the file, in ticker id order
+    public List<String> getTickers() {
+        return tickers;
+    }
+
+    // Returns the aggregations of the day by ticker, empty when the day is not in the file
+    public Map<String, AggregationRecord> readDay(LocalDate date) {
+        int day = findDay(date);
+        if (day < 0) {
+            return Map.of();
+        }
+        int rows = file.getInt(dayEntry(day) + 4);
+        Map<String, AggregationRecord> dayAggregation = new LinkedHashMap<>();
+        for (int row = 0; row < rows; row++) {
+            AggregationRecord record = readRow(day, row);
+            dayAggregation.put(record.getTicker(), record);
+        }
+        return dayAggregation;
+    }
+
+    // Returns the aggregation of the ticker for the day, or null when the ticker was not traded that day
+    public AggregationRecord readRecord(LocalDate date, String ticker) {
+        int day = findDay(date);
+        Integer tickerId = tickerIds.get(ticker);
+        if (day < 0 || tickerId == null) {
+            return null;
+        }
+        int row = findRow(day, tickerId);
+        return row < 0 ? null : readRow(day, row);
+    }
+
+    // Returns the aggregations of the ticker for every day it was traded, in date order
+    public SortedMap<LocalDate, AggregationRecord> readTicker(String ticker) {
+        Integer tickerId = tickerIds.get(ticker);
+        if (tickerId == null) {
+            return Collections.emptySortedMap();
+        }
+        SortedMap<LocalDate, AggregationRecord> records = new TreeMap<>();
+        for (int day = 0; day < dayCount; day++) {
+            int row = findRow(day, tickerId);
+            if (row >= 0) {
+                records.put(LocalDate.ofEpochDay(file.getInt(dayEntry(day))), readRow(day, row));
+            }
+        }
+        return records;
+    }
+
+    // Returns the index value of the day, or null when the day has no index or is not in the file
+    public BigDecimal getIndexValue(LocalDate date) {
+        int day = findDay(date);
+        if (day < 0) {
+            return null;
+        }
+        int entry = dayEntry(day);
+        return file.getInt(entry + 28) == 0 ? null : BigDecimal.valueOf(file.getLong(entry + 16), file.getInt(entry + 24));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<String> readDictionary(int tickerCount, int offset) {
+        List<String> names = new ArrayList<>(tickerCount);
+        for (int id = 0; id < tickerCount; id++) {
+            byte[] name = new byte[Short.toUnsignedInt(file.getShort(offset))];
+            file.get(offset + Short.BYTES, name);
+            offset += Short.BYTES + name.length;
+            names.add(new String(name, StandardCharsets.UTF_8));
+            tickerIds.put(names.get(id), id);
+        }
+        return List.copyOf(names);
+    }
+
+    private int dayEntry(int day) {
+        return (int) (dayIndexOffset + (long) day * DAY_ENTRY_SIZE);
+    }
+
+    // Binary search of the day index, the days are in date order
+    private int findDay(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int low = 0;
+        int high = dayCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleDay = file.getInt(dayEntry(middle));
+            if (middleDay < epochDay) {
+                low = middle + 1;
+            } else if (middleDay > epochDay) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // Binary search of the ticker id column of the day, the rows are in ticker id order
+    private int findRow(int day, int tickerId) {
+        int entry = dayEntry(day);
+        int rows = file.getInt(entry + 4);
+        int column = (int) (file.getLong(entry + 8) + tickerIdColumn(rows));
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = file.getInt(column + middle * Integer.BYTES);
+            if (middleId < tickerId) {
+                low = middle + 1;
+            } else if (middleId > tickerId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private AggregationRecord readRow(int day, int row) {
+        int entry = dayEntry(day);
+        int rows = file.getInt(entry + 4);
+        long block = file.getLong(entry + 8);
+        AggregationRecord record = AggregationRecord.of(tickers.get(file.getInt((int) (block + tickerIdColumn(rows)) + row * Integer.BYTES)));
+        record.setOpenTime(toLocalDateTime(readLong(block, rows, OPEN_TIME, row)));
+        record.setCloseTime(toLocalDateTime(readLong(block, rows, CLOSE_TIME, row)));
+        record.setOpenPrice(readDecimal(block, rows, OPEN_PRICE, row));
+        record.setClosePrice(readDecimal(block, rows, CLOSE_PRICE, row));
+        record.setHighestPrice(readDecimal(block, rows, HIGHEST_PRICE, row));
+        record.setLowestPrice(readDecimal(block, rows, LOWEST_PRICE, row));
+        record.setVolumeOfTrades(readDecimal(block, rows, VOLUME, row));
+        return record;
+    }
+
+    private long readLong(long block, int rows, int column, int row) {
+        return file.getLong((int) (block + longColumn(rows, column)) + row * Long.BYTES);
+    }
+
+    private BigDecimal readDecimal(long block, int rows, int column, int row) {
+        return BigDecimal.valueOf(readLong(block, rows, column, row), file.get((int) (block + scaleColumn(rows, column)) + row));
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
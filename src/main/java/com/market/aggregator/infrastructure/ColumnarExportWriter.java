@@ -0,0 +1,152 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.AggregationRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.market.aggregator.infrastructure.ColumnarExportFormat.*;
+
+//This class is used to export the daily aggregations and the market index to a binary columnar file, with the layout
+//described in ColumnarExportFormat. The days are written one after the other while they are reported, only the block
+//of the current day is held in memory. The day index and the ticker dictionary are written when the file is closed.
+//Every value is kept exactly: prices and volumes are stored as an unscaled long with their scale.
+public class ColumnarExportWriter implements Closeable {
+    private final FileChannel channel;
+    // Tickers of the file, the ticker id is the position in the list
+    private final Map<String, Integer> tickerIds = new HashMap<>();
+    private final List<String> tickers = new ArrayList<>();
+    // Entries of the day index, written at the end of the file
+    private ByteBuffer dayIndex = ByteBuffer.allocate(64 * DAY_ENTRY_SIZE);
+    private int dayCount;
+    private LocalDate lastDate;
+    // Position of the next day block
+    private long position = HEADER_SIZE;
+
+    public ColumnarExportWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    // Writes the aggregations of a day with its index value (null when there is none). The days are written in date order.
+    public void writeDay(LocalDate date, Map<String, AggregationRecord> dayAggregation, BigDecimal indexValue) throws IOException {
+        if (lastDate != null && !date.isAfter(lastDate)) {
+            throw new IllegalArgumentException("Days must be exported in date order: " + date + " after " + lastDate);
+        }
+        // The tickers new to the file get their ids in alphabetical order, so the same report gives the same file
+        dayAggregation.keySet().stream()
+                .filter(ticker -> !tickerIds.containsKey(ticker))
+                .sorted()
+                .forEach(ticker -> {
+                    tickerIds.put(ticker, tickers.size());
+                    tickers.add(ticker);
+                });
+        // A record without trades has nothing to export
+        List<AggregationRecord> records = dayAggregation.values().stream()
+                .filter(record -> record.getCloseTime() != null)
+                .sorted(Comparator.comparingInt(record -> tickerIds.get(record.getTicker())))
+                .toList();
+
+        int rows = records.size();
+        ByteBuffer block = ByteBuffer.allocate((int) blockSize(rows));
+        for (int row = 0; row < rows; row++) {
+            AggregationRecord record = records.get(row);
+            putLong(block, rows, OPEN_TIME, row, toEpochSecond(record.getOpenTime()));
+            putLong(block, rows, CLOSE_TIME, row, toEpochSecond(record.getCloseTime()));
+            putDecimal(block, rows, OPEN_PRICE, row, record.getOpenPrice());
+            putDecimal(block, rows, CLOSE_PRICE, row, record.getClosePrice());
+            putDecimal(block, rows, HIGHEST_PRICE, row, record.getHighestPrice());
+            putDecimal(block, rows, LOWEST_PRICE, row, record.getLowestPrice());
+            putDecimal(block, rows, VOLUME, row, record.getVolumeOfTrades());
+            block.putInt((int) (tickerIdColumn(rows) + (long) row * Integer.BYTES), tickerIds.get(record.getTicker()));
+        }
+        write(block, position);
+
+        ByteBuffer entry = nextDayEntry();
+        entry.putInt((int) date.toEpochDay()).putInt(rows).putLong(position);
+        if (indexValue != null) {
+            entry.putLong(unscaledValue(indexValue)).putInt(indexValue.scale()).putInt(1);
+        } else {
+            entry.putLong(0).putInt(0).putInt(0);
+        }
+        position += block.capacity();
+        lastDate = date;
+    }
+
+    // Writes the day index, the ticker dictionary and the header, the file is complete once it is closed
+    @Override
+    public void close() throws IOException {
+        try {
+            long dayIndexOffset = position;
+            write(dayIndex.flip(), dayIndexOffset);
+
+            long dictionaryOffset = dayIndexOffset + (long) dayCount * DAY_ENTRY_SIZE;
+            List<byte[]> names = tickers.stream().map(ticker -> ticker.getBytes(StandardCharsets.UTF_8)).toList();
+            ByteBuffer dictionary = ByteBuffer.allocate(names.stream().mapToInt(name -> Short.BYTES + name.length).sum());
+            for (byte[] name : names) {
+                dictionary.putShort((short) name.length).put(name);
+            }
+            write(dictionary.flip(), dictionaryOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putInt(dayCount).putInt(tickers.size())
+                    .putLong(dayIndexOffset).putLong(dictionaryOffset);
+            write(header.flip(), 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer nextDayEntry() {
+        if (!dayIndex.hasRemaining()) {
+            dayIndex = ByteBuffer.allocate(dayIndex.capacity() * 2).put(dayIndex.flip());
+        }
+        dayCount++;
+        return dayIndex;
+    }
+
+    private void write(ByteBuffer buffer, long at) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+
+    private static void putLong(ByteBuffer block, int rows, int column, int row, long value) {
+        block.putLong((int) (longColumn(rows, column) + (long) row * Long.BYTES), value);
+    }
+
+    private static void putDecimal(ByteBuffer block, int rows, int column, int row, BigDecimal value) {
+        if (value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot export " + value + ", its scale does not fit in a byte");
+        }
+        putLong(block, rows, column, row, unscaledValue(value));
+        block.put((int) (scaleColumn(rows, column) + row), (byte) value.scale());
+    }
+
+    private static long unscaledValue(BigDecimal value) {
+        try {
+            return value.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Cannot export " + value + ", it does not fit in a long", e);
+        }
+    }
+
+    // Timestamps of the log have no time zone, they are stored as seconds since the epoch in UTC
+    private static long toEpochSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -1,18 +1,24 @@
 package com.market.aggregator.infrastructure;
 
+import com.market.aggregator.domain.TickerSymbolTable;
 import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.Counter;
+import com.market.aggregator.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 //The system begins by parsing the market log file with the specified format:
@@ -22,18 +28,68 @@ import java.util.stream.Collectors;
 public class FileTradeParser {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final Logger log = LoggerFactory.getLogger(FileTradeParser.class);
+    // Parsed lines are added to the metrics in batches of this size
+    private static final int COUNTED_LINES = 4096;
+    // Every ticker gets an int id, the aggregation and the index calculation index their arrays with it
+    private final TickerSymbolTable symbols;
+    private final Counter parsedLines;
+    private final Counter parsedBytes;
+    private final Counter malformedLines;
+
+    public FileTradeParser(TickerSymbolTable symbols, MetricsRegistry metrics) {
+        this.symbols = symbols;
+        this.parsedLines = metrics.counter(MetricsRegistry.PARSED_LINES);
+        this.parsedBytes = metrics.counter(MetricsRegistry.PARSED_BYTES);
+        this.malformedLines = metrics.counter(MetricsRegistry.MALFORMED_LINES);
+    }
 
     // Parses the trades from an input stream.
     public List<Trade> parseTrades(InputStream inputStream) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            return reader.lines()//This is used to read the lines from the file
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new CountingInputStream(inputStream)))) {
+            List<Trade> trades = reader.lines()//This is used to read the lines from the file
                     .map(String::trim) //Trim the lines
                     .filter(this::isValidLine)//Filter the valid lines
                     .map(this::parseTrade)//Map the lines to trades
                     .collect(Collectors.toList()); //Collect the trades to a list
                     //The Collection to a list might be a performance issue, we can refactor this to a better
                     //implementation in the future
+            parsedLines.add(trades.size());
+            return trades;
+        }
+    }
+
+    // Streams the trades from an input stream to the consumer, one line at a time.
+    // Only the line being parsed is kept in memory, so the heap does not grow with the size of the file.
+    public long parseTrades(InputStream inputStream, Consumer<Trade> tradeConsumer) throws IOException {
+        return parseTrades(inputStream, tradeConsumer, null);
+    }
+
+    // Same as above, but when rejects is not null the parsing is lenient: a malformed line does not stop the parsing,
+    // it is handed to rejects with its number and the reason, and the next lines are parsed.
+    public long parseTrades(InputStream inputStream, Consumer<Trade> tradeConsumer, Consumer<RejectedLine> rejects) throws IOException {
+        long parsedTrades = 0;
+        long lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new CountingInputStream(inputStream)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (isValidLine(trimmed)) {
+                    Trade trade = rejects == null ? parseTrade(trimmed) : parseTrade(line, trimmed, lineNumber, rejects);
+                    if (trade == null) {
+                        continue;
+                    }
+                    //Hand the trade over as soon as it is parsed instead of collecting it
+                    tradeConsumer.accept(trade);
+                    if (++parsedTrades % COUNTED_LINES == 0) {
+                        parsedLines.add(COUNTED_LINES);
+                    }
+                }
+            }
+        } finally {
+            parsedLines.add(parsedTrades % COUNTED_LINES);
         }
+        return parsedTrades;
     }
 
     // Checks if a line is valid for parsing.
@@ -49,22 +105,152 @@ public class FileTradeParser {
         if (parts.length < 4) {
             //Save out the lines where the ticker is not valid to allow logging of there are errors
             log.error("Invalid line format: {}", line);
+            malformedLines.increment();
             throw new IllegalArgumentException("Invalid line format: " + line);
         }
 
-        //Log the amount of lines parsed
-        log.info("Parsed line: {}", line);
+        //Logging every line at info level was most of the time spent parsing, it is only logged when tracing
+        log.trace("Parsed line: {}", line);
 
         //Parse the line into a Trade object.
-        LocalDateTime timestamp = LocalDateTime.parse(parts[0].trim(), DATE_TIME_FORMATTER);
-        String ticker = parts[1].trim();
-        BigDecimal price = new BigDecimal(parts[2].trim());
-        int quantity = Integer.parseInt(parts[3].trim());
+        LocalDateTime timestamp;
+        BigDecimal price;
+        int quantity;
+        try {
+            timestamp = LocalDateTime.parse(parts[0].trim(), DATE_TIME_FORMATTER);
+            price = new BigDecimal(parts[2].trim());
+            quantity = Integer.parseInt(parts[3].trim());
+        } catch (DateTimeParseException | NumberFormatException e) {
+            malformedLines.increment();
+            throw e;
+        }
+        //Use the single String instance held by the symbol table, the one split from the line is dropped right away
+        int tickerId = symbols.idOf(parts[1].trim());
         return Trade.builder() //Build the trade based on the parsed values
                 .timestamp(timestamp)
-                .ticker(ticker)
+                .ticker(symbols.tickerOf(tickerId))
+                .tickerId(tickerId)
                 .price(price)
                 .quantity(quantity)
                 .build();
     }
-}
\ No newline at end of file
+
+    // Parses a line the lenient way: the fields are checked before they are parsed, so a malformed line is rejected
+    // without building an exception. The parsers are only left to fail on the rare values the checks let through.
+    // Returns null when the line is rejected.
+    private Trade parseTrade(String line, String trimmed, long lineNumber, Consumer<RejectedLine> rejects) {
+        String[] parts = trimmed.split(";");
+        RejectReason reason = null;
+        LocalDateTime timestamp = null;
+        BigDecimal price = null;
+        int quantity = 0;
+        if (parts.length < 4) {
+            reason = RejectReason.MISSING_FIELDS;
+        } else {
+            String timestampField = parts[0].trim();
+            String priceField = parts[2].trim();
+            String quantityField = parts[3].trim();
+            if (!isTimestamp(timestampField) || (timestamp = parseTimestamp(timestampField)) == null) {
+                reason = RejectReason.INVALID_TIMESTAMP;
+            } else if (!isNumber(priceField, "+-.eE") || (price = parsePrice(priceField)) == null) {
+                reason = RejectReason.INVALID_PRICE;
+            } else if (!isNumber(quantityField, "+-")) {
+                reason = RejectReason.INVALID_QUANTITY;
+            } else {
+                try {
+                    quantity = Integer.parseInt(quantityField);
+                } catch (NumberFormatException e) {
+                    reason = RejectReason.INVALID_QUANTITY;
+                }
+            }
+        }
+        if (reason != null) {
+            malformedLines.increment();
+            rejects.accept(new RejectedLine(lineNumber, -1, reason, line));
+            return null;
+        }
+        int tickerId = symbols.idOf(parts[1].trim());
+        return Trade.builder()
+                .timestamp(timestamp)
+                .ticker(symbols.tickerOf(tickerId))
+                .tickerId(tickerId)
+                .price(price)
+                .quantity(quantity)
+                .build();
+    }
+
+    // Checks the shape of "yyyy-MM-dd HH:mm:ss", the values are checked by the formatter
+    private static boolean isTimestamp(String field) {
+        if (field.length() != 19) {
+            return false;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            boolean valid = switch (i) {
+                case 4, 7 -> c == '-';
+                case 10 -> c == ' ';
+                case 13, 16 -> c == ':';
+                default -> c >= '0' && c <= '9';
+            };
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Checks that a number only holds digits and the given ASCII characters, other characters are left to the parser
+    private static boolean isNumber(String field, String allowed) {
+        if (field.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c < 0x80 && (c < '0' || c > '9') && allowed.indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static LocalDateTime parseTimestamp(String field) {
+        try {
+            return LocalDateTime.parse(field, DATE_TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal parsePrice(String field) {
+        try {
+            return new BigDecimal(field);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Adds the bytes read from the log to the metrics, the reader reads them in blocks of 8 KB
+    private final class CountingInputStream extends FilterInputStream {
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                parsedBytes.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                parsedBytes.add(read);
+            }
+            return read;
+        }
+    }
+}
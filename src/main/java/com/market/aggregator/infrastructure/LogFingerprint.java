@@ -0,0 +1,32 @@
+package com.market.aggregator.infrastructure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+//This class is used to recognise a market log from its first bytes, so the files derived from a log (snapshots,
+//indexes) are not used with another log that happens to have the same name.
+public final class LogFingerprint {
+    // Bytes at the beginning of the log that identify it
+    private static final int FINGERPRINT_BYTES = 64 * 1024;
+
+    private LogFingerprint() {
+    }
+
+    // Checksum of the beginning of the log, up to the given length
+    public static long of(Path logFile, long length) throws IOException {
+        CRC32 checksum = new CRC32();
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(FINGERPRINT_BYTES, Math.min(length, channel.size())));
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer, buffer.position());
+            }
+            checksum.update(buffer.flip());
+        }
+        return checksum.getValue();
+    }
+}
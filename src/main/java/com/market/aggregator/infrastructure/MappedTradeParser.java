@@ -0,0 +1,714 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.Counter;
+import com.market.aggregator.metrics.MetricsRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+//This class parses the market log with the same format as FileTradeParser:
+//"date+time;company ticker;price;number of securities traded", but it reads the bytes straight from a
+//memory-mapped FileChannel. The fixed-width timestamp, the price and the quantity are decoded by hand,
+//so no intermediate String is created per line. FileTradeParser stays as the reference implementation.
+
+@Component
+@Slf4j
+public class MappedTradeParser {
+    // The file is mapped window by window, so logs bigger than 2 GB can be parsed as well
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    // Size of the buffer the bytes are read into when they are read instead of mapped
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    // Length of the "yyyy-MM-dd HH:mm:ss" timestamp
+    private static final int TIMESTAMP_LENGTH = 19;
+    // Bytes read at a time when looking for the line break that ends a chunk
+    private static final int PROBE_SIZE = 8 * 1024;
+    // Up to 18 digits always fit in a long without overflow
+    private static final int MAX_LONG_DIGITS = 18;
+    // Parsed lines are added to the metrics in batches of this size
+    private static final int COUNTED_LINES = 4096;
+
+    private final long windowSize;
+    // Tickers get the same ids as in the aggregation
+    private final TickerSymbolTable symbols;
+    // The lines, bytes and malformed lines parsed are counted in this registry
+    private final MetricsRegistry metrics;
+
+    @Autowired
+    public MappedTradeParser(TickerSymbolTable symbols, MetricsRegistry metrics) {
+        this(symbols, metrics, WINDOW_SIZE);
+    }
+
+    // Smaller windows are used by the tests to cross the window boundaries
+    MappedTradeParser(TickerSymbolTable symbols, MetricsRegistry metrics, long windowSize) {
+        this.symbols = symbols;
+        this.metrics = metrics;
+        this.windowSize = windowSize;
+    }
+
+    // Parses all the trades of a file and hands them to the consumer.
+    public long parseTrades(Path file, Consumer<Trade> tradeConsumer) throws IOException {
+        return parseTrades(file, tradeConsumer, null);
+    }
+
+    // Same as above, but when rejects is not null the parsing is lenient: a malformed line does not stop the parsing,
+    // it is handed to rejects with its offset in the file and the reason, and the next lines are parsed.
+    public long parseTrades(Path file, Consumer<Trade> tradeConsumer, Consumer<RejectedLine> rejects) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parseRange(channel, 0, channel.size(), tradeConsumer, rejects);
+        }
+    }
+
+    // Parses the lines in the byte range [start, end) of the channel.
+    // The range is expected to start at the beginning of a line and to end after a line break or at the end of the file.
+    public long parseRange(FileChannel channel, long start, long end, Consumer<Trade> tradeConsumer) throws IOException {
+        return parseRange(channel, start, end, tradeConsumer, null);
+    }
+
+    // Same as above, the malformed lines are handed to rejects instead of stopping the parsing when it is not null
+    public long parseRange(FileChannel channel, long start, long end, Consumer<Trade> tradeConsumer,
+                           Consumer<RejectedLine> rejects) throws IOException {
+        LineDecoder decoder = new LineDecoder(symbols, metrics, tradeConsumer, null, rejects);
+        decodeRange(channel, start, end, decoder);
+        return decoder.parsedTrades;
+    }
+
+    // Same as parseRange, but the bytes are read into a buffer with blocking reads instead of being mapped. A virtual
+    // thread waiting for a read is unmounted and its carrier runs another thread, while a page fault on a mapped file
+    // of a slow file system blocks the carrier as well.
+    public long readRange(FileChannel channel, long start, long end, Consumer<Trade> tradeConsumer,
+                          Consumer<RejectedLine> rejects) throws IOException {
+        return readRange(channel, start, end, tradeConsumer, rejects, Runnable::run);
+    }
+
+    // Same as above, but every buffer is parsed on the given executor while the calling thread waits for it, so the
+    // calling thread only does the blocking reads and the trades are handed to the consumer on the executor. The
+    // buffers are parsed one after the other, so the consumer is never called by two threads at the same time.
+    public long readRange(FileChannel channel, long start, long end, Consumer<Trade> tradeConsumer,
+                          Consumer<RejectedLine> rejects, Executor parser) throws IOException {
+        LineDecoder decoder = new LineDecoder(symbols, metrics, tradeConsumer, null, rejects);
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(windowSize, READ_BUFFER_SIZE));
+        long position = start;
+        try {
+            while (position < end) {
+                //The buffer starts with the line the previous read cut, it is read again
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                    //Read until the buffer is full or the file ends
+                }
+                buffer.flip();
+                decoder.windowStart = position;
+                int consumed = decodeLines(decoder, buffer, position + buffer.limit() == end, parser);
+                if (consumed == 0) {
+                    if (buffer.limit() < buffer.capacity()) {
+                        //The file is shorter than the range, it was truncated since
+                        break;
+                    }
+                    throw new IllegalArgumentException("Line starting at byte " + position + " is longer than " + buffer.capacity() + " bytes");
+                }
+                position += consumed;
+                decoder.countBytes(consumed);
+            }
+        } finally {
+            decoder.countLines();
+        }
+        return decoder.parsedTrades;
+    }
+
+    // Decodes the lines of the buffer on the executor and waits for them, a parsing error is thrown as it was thrown
+    private static int decodeLines(LineDecoder decoder, ByteBuffer buffer, boolean lastWindow, Executor parser) {
+        try {
+            return CompletableFuture.supplyAsync(() -> decoder.decodeLines(buffer, lastWindow), parser).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Reads the date of every trade line in the byte range [start, end) of the channel, without decoding the rest of the
+    // line, and hands it to the consumer with the position of the line. Used to index the days of a log.
+    // The dates are the same as the ones of the parsed trades, and an invalid timestamp throws the same way.
+    public void readLineDates(FileChannel channel, long start, long end, LineDateConsumer dateConsumer) throws IOException {
+        decodeRange(channel, start, end, new LineDecoder(symbols, metrics, null, dateConsumer, null));
+    }
+
+    private void decodeRange(FileChannel channel, long start, long end, LineDecoder decoder) throws IOException {
+        long position = start;
+        try {
+            while (position < end) {
+                long size = Math.min(windowSize, end - position);
+                boolean lastWindow = position + size == end;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                decoder.windowStart = position;
+                int consumed = decoder.decodeLines(window, lastWindow);
+                if (consumed == 0) {
+                    //Not a single line break in the whole window
+                    throw new IllegalArgumentException("Line starting at byte " + position + " is longer than " + windowSize + " bytes");
+                }
+                position += consumed;
+                decoder.countBytes(consumed);
+            }
+        } finally {
+            //Even when a line is rejected, the lines before it were parsed
+            decoder.countLines();
+        }
+    }
+
+    // Splits the channel into at most the given number of byte ranges of about the same size.
+    // Every range ends right after a line break (or at the end of the file), so each one can be parsed on its own.
+    public List<Chunk> splitIntoChunks(FileChannel channel, int chunkCount) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>(chunkCount);
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long start = 0;
+        for (int i = 1; i <= chunkCount && start < size; i++) {
+            long end = i == chunkCount ? size : nextLineStart(channel, Math.max(start, size / chunkCount * i), probe);
+            if (end > start) {
+                chunks.add(new Chunk(start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    // Returns the position right after the last line break in the byte range [start, end) of the channel,
+    // or start when the range does not hold a complete line. Used to leave out a line that is still being written.
+    public long lastLineEnd(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long position = end;
+        while (position > start) {
+            long from = Math.max(start, position - PROBE_SIZE);
+            probe.clear().limit((int) (position - from));
+            int read = 0;
+            while (probe.hasRemaining() && read >= 0) {
+                read = channel.read(probe, from + probe.position());
+            }
+            for (int i = probe.position() - 1; i >= 0; i--) {
+                byte b = probe.get(i);
+                if (b == '\n' || b == '\r') {
+                    return from + i + 1;
+                }
+            }
+            position = from;
+        }
+        return start;
+    }
+
+    // Returns the position right after the first line break at or after the given position
+    private long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = probe.get(i);
+                if (b == '\n' || b == '\r') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // A byte range [start, end) of the log that holds complete lines only
+    public record Chunk(long start, long end) {
+    }
+
+    // Receives the date of a trade line and the byte range [lineStart, lineEnd) of the line, line break included
+    @FunctionalInterface
+    public interface LineDateConsumer {
+        void accept(long lineStart, long lineEnd, LocalDate date);
+    }
+
+    // Decodes the lines of the mapped windows. It keeps the state that can be reused from one line to the next.
+    private static final class LineDecoder {
+        private final Consumer<Trade> tradeConsumer;
+        //Only set when the lines are indexed, then only their date is decoded
+        private final LineDateConsumer dateConsumer;
+        //Only set when the parsing is lenient, the helpers then set rejected instead of throwing
+        private final Consumer<RejectedLine> rejects;
+        //Why the current line is rejected, null while it is valid
+        private RejectReason rejected;
+        //Position of the current window in the file
+        private long windowStart;
+        //Tickers are looked up from their bytes, a String is only created the first time a ticker is seen
+        private final TickerCache tickerCache;
+        private long parsedTrades;
+        private long countedTrades;
+        private final Counter parsedLines;
+        private final Counter parsedBytes;
+        private final Counter malformedLines;
+
+        //Most lines share the day of the previous line, so the LocalDate is reused
+        private int lastDateKey = -1;
+        private LocalDate lastDate;
+
+        private LineDecoder(TickerSymbolTable symbols, MetricsRegistry metrics, Consumer<Trade> tradeConsumer,
+                            LineDateConsumer dateConsumer, Consumer<RejectedLine> rejects) {
+            this.tickerCache = new TickerCache(symbols);
+            this.parsedLines = metrics.counter(MetricsRegistry.PARSED_LINES);
+            this.parsedBytes = metrics.counter(MetricsRegistry.PARSED_BYTES);
+            this.malformedLines = metrics.counter(MetricsRegistry.MALFORMED_LINES);
+            this.tradeConsumer = tradeConsumer;
+            this.dateConsumer = dateConsumer;
+            this.rejects = rejects;
+        }
+
+        // Decodes all the complete lines of the window and returns the number of bytes consumed.
+        // A line without a line break at the end is only complete in the last window.
+        private int decodeLines(ByteBuffer window, boolean lastWindow) {
+            int limit = window.limit();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                byte b = window.get(i);
+                //Same line breaks as BufferedReader: \n, \r or \r\n (which gives an empty line that is skipped)
+                if (b == '\n' || b == '\r') {
+                    decodeLine(window, lineStart, i, i + 1);
+                    lineStart = i + 1;
+                }
+            }
+            if (lastWindow && lineStart < limit) {
+                decodeLine(window, lineStart, limit, limit);
+                lineStart = limit;
+            }
+            return lineStart;
+        }
+
+        // Decodes the line [from, to) that ends with its line break at lineEnd
+        private void decodeLine(ByteBuffer buffer, int from, int to, int lineEnd) {
+            if (dateConsumer == null) {
+                decodeLine(buffer, from, to);
+                return;
+            }
+            int lineStart = from;
+            //Trim the line the same way String.trim does
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+                to--;
+            }
+            if (!isValidLine(buffer, from, to)) {
+                return;
+            }
+            int timestampEnd = indexOf(buffer, from, to);
+            if (timestampEnd < 0) {
+                throw invalidLine(buffer, from, to);
+            }
+            LocalDate date = decodeTimestamp(buffer, from, timestampEnd, to).toLocalDate();
+            dateConsumer.accept(windowStart + lineStart, windowStart + lineEnd, date);
+        }
+
+        private void decodeLine(ByteBuffer buffer, int from, int to) {
+            int lineStart = from;
+            int lineEnd = to;
+            //Trim the line the same way String.trim does
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+                to--;
+            }
+            if (!isValidLine(buffer, from, to)) {
+                return;
+            }
+
+            //Find the end of the first three fields, the quantity ends at the next separator or at the end of the line
+            int timestampEnd = indexOf(buffer, from, to);
+            int tickerEnd = timestampEnd < 0 ? -1 : indexOf(buffer, timestampEnd + 1, to);
+            int priceEnd = tickerEnd < 0 ? -1 : indexOf(buffer, tickerEnd + 1, to);
+            if (priceEnd < 0 && rejects != null) {
+                reject(RejectReason.MISSING_FIELDS, buffer, lineStart, lineEnd);
+                return;
+            }
+            int quantityEnd = priceEnd < 0 ? -1 : indexOf(buffer, priceEnd + 1, to);
+            if (quantityEnd < 0) {
+                quantityEnd = to;
+            }
+
+            LocalDateTime timestamp;
+            BigDecimal price;
+            int quantity;
+            try {
+                if (priceEnd < 0) {
+                    throw invalidLine(buffer, from, to);
+                }
+                //When the parsing is lenient, a field that cannot be decoded sets rejected and the next ones are skipped
+                timestamp = decodeTimestamp(buffer, from, timestampEnd, to);
+                price = rejected == null ? decodePrice(buffer, tickerEnd + 1, priceEnd) : null;
+                quantity = rejected == null ? decodeQuantity(buffer, priceEnd + 1, quantityEnd) : 0;
+            } catch (RuntimeException e) {
+                malformedLines.increment();
+                throw e;
+            }
+            if (rejected != null) {
+                reject(rejected, buffer, lineStart, lineEnd);
+                return;
+            }
+            //The ticker comes last so that a malformed line does not add its ticker to the symbol table
+            int tickerId = decodeTicker(buffer, timestampEnd + 1, tickerEnd);
+
+            tradeConsumer.accept(Trade.builder()
+                    .timestamp(timestamp)
+                    .ticker(tickerCache.ticker())
+                    .tickerId(tickerId)
+                    .price(price)
+                    .quantity(quantity)
+                    .build());
+            if (++parsedTrades - countedTrades == COUNTED_LINES) {
+                countLines();
+            }
+        }
+
+        // Hands the line [from, to) over to rejects, it is only copied to a String here
+        private void reject(RejectReason reason, ByteBuffer buffer, int from, int to) {
+            rejected = null;
+            malformedLines.increment();
+            rejects.accept(new RejectedLine(-1, windowStart + from, reason, asString(buffer, from, to)));
+        }
+
+        // Adds the trades parsed since the last time to the metrics
+        private void countLines() {
+            parsedLines.add(parsedTrades - countedTrades);
+            countedTrades = parsedTrades;
+        }
+
+        // Adds the bytes of a window to the metrics, the lines that are only indexed are not counted
+        private void countBytes(long bytes) {
+            if (dateConsumer == null) {
+                parsedBytes.add(bytes);
+            }
+        }
+
+        // Same rules as FileTradeParser: not empty, not a comment and not the header line
+        private boolean isValidLine(ByteBuffer buffer, int from, int to) {
+            if (from == to || buffer.get(from) == '#') {
+                return false;
+            }
+            return to - from < 4
+                    || (buffer.get(from) | 0x20) != 'd'
+                    || (buffer.get(from + 1) | 0x20) != 'a'
+                    || (buffer.get(from + 2) | 0x20) != 't'
+                    || (buffer.get(from + 3) | 0x20) != 'e';
+        }
+
+        // Decodes the fixed-width "yyyy-MM-dd HH:mm:ss" timestamp
+        private LocalDateTime decodeTimestamp(ByteBuffer buffer, int from, int to, int lineEnd) {
+            from = skipLeadingSpaces(buffer, from, to);
+            to = skipTrailingSpaces(buffer, from, to);
+            if (to - from != TIMESTAMP_LENGTH
+                    || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-' || buffer.get(from + 10) != ' '
+                    || buffer.get(from + 13) != ':' || buffer.get(from + 16) != ':') {
+                return invalidTimestamp(buffer, from, lineEnd);
+            }
+            int year = digits(buffer, from, 4, lineEnd);
+            int month = digits(buffer, from + 5, 2, lineEnd);
+            int day = digits(buffer, from + 8, 2, lineEnd);
+            int hour = digits(buffer, from + 11, 2, lineEnd);
+            int minute = digits(buffer, from + 14, 2, lineEnd);
+            int second = digits(buffer, from + 17, 2, lineEnd);
+            if (rejected != null
+                    || month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59) {
+                return invalidTimestamp(buffer, from, lineEnd);
+            }
+
+            int dateKey = year * 10000 + month * 100 + day;
+            if (dateKey != lastDateKey) {
+                //Like the smart resolver of DateTimeFormatter, a day past the end of the month is moved to its last day
+                int lastDayOfMonth = Month.of(month).length(Year.isLeap(year));
+                lastDate = LocalDate.of(year, month, Math.min(day, lastDayOfMonth));
+                lastDateKey = dateKey;
+            }
+            return LocalDateTime.of(lastDate, LocalTime.of(hour, minute, second));
+        }
+
+        // Rejects the line when the parsing is lenient, with no LocalDateTime to return
+        private LocalDateTime invalidTimestamp(ByteBuffer buffer, int from, int lineEnd) {
+            if (rejects == null) {
+                throw invalidLine(buffer, from, lineEnd);
+            }
+            rejected = RejectReason.INVALID_TIMESTAMP;
+            return null;
+        }
+
+        // Returns the id of the ticker in the symbol table
+        private int decodeTicker(ByteBuffer buffer, int from, int to) {
+            from = skipLeadingSpaces(buffer, from, to);
+            to = skipTrailingSpaces(buffer, from, to);
+            return tickerCache.lookup(buffer, from, to);
+        }
+
+        // Decodes a plain decimal price such as "100", "-2.50" or ".5".
+        // Anything else (exponents, very long numbers) goes through the BigDecimal parser.
+        private BigDecimal decodePrice(ByteBuffer buffer, int from, int to) {
+            from = skipLeadingSpaces(buffer, from, to);
+            to = skipTrailingSpaces(buffer, from, to);
+            int position = from;
+            boolean negative = false;
+            if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position) == '-';
+                position++;
+            }
+            long unscaled = 0;
+            int digitCount = 0;
+            int scale = 0;
+            boolean fraction = false;
+            for (; position < to; position++) {
+                byte b = buffer.get(position);
+                if (b >= '0' && b <= '9') {
+                    unscaled = unscaled * 10 + (b - '0');
+                    digitCount++;
+                    if (fraction) {
+                        scale++;
+                    }
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    break;
+                }
+            }
+            if (position != to || digitCount == 0 || digitCount > MAX_LONG_DIGITS) {
+                if (rejects == null) {
+                    return new BigDecimal(asString(buffer, from, to));
+                }
+                return parseLenient(buffer, from, to, RejectReason.INVALID_PRICE);
+            }
+            return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+        }
+
+        // Decodes the quantity with the same result as Integer.parseInt
+        private int decodeQuantity(ByteBuffer buffer, int from, int to) {
+            from = skipLeadingSpaces(buffer, from, to);
+            to = skipTrailingSpaces(buffer, from, to);
+            int position = from;
+            boolean negative = false;
+            if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position) == '-';
+                position++;
+            }
+            long value = 0;
+            int digitCount = 0;
+            for (; position < to; position++) {
+                byte b = buffer.get(position);
+                if (b < '0' || b > '9' || ++digitCount > 10) {
+                    break;
+                }
+                value = value * 10 + (b - '0');
+            }
+            value = negative ? -value : value;
+            if (position != to || digitCount == 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                if (rejects == null) {
+                    //Let Integer.parseInt build the same NumberFormatException as the reference parser
+                    return Integer.parseInt(asString(buffer, from, to));
+                }
+                BigDecimal lenient = parseLenient(buffer, from, to, RejectReason.INVALID_QUANTITY);
+                return lenient == null ? 0 : lenient.intValue();
+            }
+            return (int) value;
+        }
+
+        // Parses the rare numbers the fast paths above do not handle (exponents, leading zeros, non ASCII digits) when
+        // the parsing is lenient. A field with an ASCII character that cannot be part of the number is rejected without
+        // building an exception, only the ones left are given to the JDK parsers.
+        private BigDecimal parseLenient(ByteBuffer buffer, int from, int to, RejectReason reason) {
+            boolean quantity = reason == RejectReason.INVALID_QUANTITY;
+            for (int i = from; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b >= 0 && !(b >= '0' && b <= '9') && b != '-' && b != '+'
+                        && (quantity || (b != '.' && b != 'e' && b != 'E'))) {
+                    rejected = reason;
+                    return null;
+                }
+            }
+            String text = asString(buffer, from, to);
+            try {
+                return quantity ? BigDecimal.valueOf(Integer.parseInt(text)) : new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                rejected = reason;
+                return null;
+            }
+        }
+
+        private int digits(ByteBuffer buffer, int from, int count, int lineEnd) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                byte b = buffer.get(i);
+                if (b < '0' || b > '9') {
+                    if (rejects == null) {
+                        throw invalidLine(buffer, from, lineEnd);
+                    }
+                    rejected = RejectReason.INVALID_TIMESTAMP;
+                    return 0;
+                }
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        //The error message is only built when a line is rejected
+        private IllegalArgumentException invalidLine(ByteBuffer buffer, int from, int to) {
+            String line = asString(buffer, lineStart(buffer, from), to);
+            log.error("Invalid line format: {}", line);
+            return new IllegalArgumentException("Invalid line format: " + line);
+        }
+
+        private int lineStart(ByteBuffer buffer, int position) {
+            while (position > 0 && buffer.get(position - 1) != '\n' && buffer.get(position - 1) != '\r') {
+                position--;
+            }
+            return position;
+        }
+    }
+
+    // This class is used to find the id and the String of a ticker from the bytes of the line. It is only used by
+    // the thread of its decoder, so it avoids the volatile reads of the shared symbol table on every line.
+    private static final class TickerCache {
+        private final TickerSymbolTable symbols;
+        private byte[][] keys = new byte[64][];
+        private String[] values = new String[64];
+        private int[] ids = new int[64];
+        private int size;
+        // Ticker found by the last call to lookup
+        private String lastTicker;
+
+        private TickerCache(TickerSymbolTable symbols) {
+            this.symbols = symbols;
+        }
+
+        // Finds the ticker and returns its id, its String is then returned by ticker()
+        private int lookup(ByteBuffer buffer, int from, int to) {
+            int hash = hash(buffer, from, to);
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    return add(slot, buffer, from, to);
+                }
+                if (matches(key, buffer, from, to)) {
+                    lastTicker = values[slot];
+                    return ids[slot];
+                }
+            }
+        }
+
+        private String ticker() {
+            return lastTicker;
+        }
+
+        // The id and the String come from the shared symbol table, so every decoder uses the same ones
+        private int add(int slot, ByteBuffer buffer, int from, int to) {
+            int id = symbols.idOf(buffer, from, to);
+            byte[] key = new byte[to - from];
+            buffer.get(from, key);
+            lastTicker = symbols.tickerOf(id);
+            keys[slot] = key;
+            values[slot] = lastTicker;
+            ids[slot] = id;
+            //Keep the table at most half full
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return id;
+        }
+
+        private void resize() {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            int[] oldIds = ids;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldValues.length * 2];
+            ids = new int[oldIds.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = hash(ByteBuffer.wrap(oldKeys[i]), 0, oldKeys[i].length) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+
+        private static int hash(ByteBuffer buffer, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int from, int to) {
+            if (key.length != to - from) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == ';') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipLeadingSpaces(ByteBuffer buffer, int from, int to) {
+        while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int skipTrailingSpaces(ByteBuffer buffer, int from, int to) {
+        while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static String asString(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
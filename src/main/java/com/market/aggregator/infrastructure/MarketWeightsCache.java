@@ -0,0 +1,84 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicReference;
+
+//This class is used to keep the market weights of a long-running service between two runs, as the weight vector
+//indexed by ticker id that the index calculations use. A weights file is only read again when its modification time
+//or its size changed, and parsed again only when the hash of its content changed too, e.g. not when it was touched.
+//The weights are swapped in whole: a calculation that got the weights before a reload keeps using them, it never sees
+//half of the new ones.
+@Component
+@Slf4j
+public class MarketWeightsCache {
+    private final FileMarketWeightsParser parser;
+    private final TickerSymbolTable symbols;
+    private final AtomicReference<CachedWeights> current = new AtomicReference<>();
+
+    public MarketWeightsCache(FileMarketWeightsParser parser, TickerSymbolTable symbols) {
+        this.parser = parser;
+        this.symbols = symbols;
+    }
+
+    // Returns the weights of the stream, the cached ones when its content is the same as the last weights loaded
+    public MarketWeights load(InputStream weightsStream) throws IOException {
+        return load(weightsStream.readAllBytes(), null, null, -1);
+    }
+
+    // Returns the weights of the file, the cached ones without reading it when it was not modified since they were loaded
+    public MarketWeights load(Path weightsFile) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(weightsFile, BasicFileAttributes.class);
+        CachedWeights cached = current.get();
+        if (cached != null && weightsFile.equals(cached.file())
+                && attributes.lastModifiedTime().equals(cached.modified()) && attributes.size() == cached.size()) {
+            return cached.weights();
+        }
+        // A file modified again after its attributes were read is read once more on the next load
+        return load(Files.readAllBytes(weightsFile), weightsFile, attributes.lastModifiedTime(), attributes.size());
+    }
+
+    // The last weights loaded, or null before the first load
+    public MarketWeights current() {
+        CachedWeights cached = current.get();
+        return cached == null ? null : cached.weights();
+    }
+
+    private MarketWeights load(byte[] content, Path file, FileTime modified, long size) throws IOException {
+        byte[] hash = sha256(content);
+        CachedWeights cached = current.get();
+        MarketWeights weights;
+        if (cached != null && MessageDigest.isEqual(hash, cached.hash())) {
+            weights = cached.weights();
+        } else {
+            weights = MarketWeights.of(parser.parseMarketWeights(new ByteArrayInputStream(content)), symbols);
+            log.info("Loaded the market weights of {} tickers{}", weights.size(), file == null ? "" : " from " + file);
+        }
+        current.set(new CachedWeights(weights, hash, file, modified, size));
+        return weights;
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // The weights with what they were loaded from, the file is null when they were read from a stream
+    private record CachedWeights(MarketWeights weights, byte[] hash, Path file, FileTime modified, long size) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.market.aggregator.infrastructure;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+//This class is used to quarantine the lines of the market log that cannot be parsed when parsing is lenient.
+//Every rejected line is counted by reason and, when a reject file is given, written to it as
+//"line number;reason;line". The memory-mapped parser only knows where a rejected line starts in the log, so its line
+//number is found by counting the line breaks of the log up to there. The lines are rejected in the order of the log,
+//so the log is only read once, and only up to the last rejected line. When several logs are ingested together, the
+//lines of every log follow a "# log file" comment.
+@Slf4j
+public class RejectFile implements Consumer<RejectedLine>, Closeable {
+    // Rejected lines also written to the log, the others are only in the reject file
+    private static final int LOGGED_LINES = 10;
+
+    private final Path rejectFile;
+    private final BufferedWriter writer;
+    private Path logFile;
+    private final Map<RejectReason, Long> counts = new EnumMap<>(RejectReason.class);
+    private long rejectedLines;
+    // Line breaks counted in the log up to countedOffset
+    private FileChannel logChannel;
+    private ByteBuffer countBuffer;
+    private long countedOffset;
+    private long countedLines;
+    private boolean lastWasCarriageReturn;
+
+    // Writes the rejected lines to the reject file, or only counts them when it is null. The log file is needed to find
+    // the number of the lines that are only known by their offset, it can be null when the parser gives the numbers.
+    public RejectFile(Path rejectFile, Path logFile) throws IOException {
+        this.rejectFile = rejectFile;
+        this.writer = rejectFile == null ? null : Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+        this.logFile = logFile;
+    }
+
+    @Override
+    public synchronized void accept(RejectedLine rejectedLine) {
+        rejectedLines++;
+        counts.merge(rejectedLine.reason(), 1L, Long::sum);
+        try {
+            long lineNumber = rejectedLine.lineNumber() >= 0 ? rejectedLine.lineNumber() : lineNumberAt(rejectedLine.offset());
+            if (rejectedLines <= LOGGED_LINES) {
+                log.warn("Skipped line {} ({}): {}", lineNumber, rejectedLine.reason(), rejectedLine.line());
+            }
+            if (writer != null) {
+                writer.write(Long.toString(lineNumber));
+                writer.write(';');
+                writer.write(rejectedLine.reason().name());
+                writer.write(';');
+                writer.write(rejectedLine.line());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The next lines are rejected from another log, they are numbered from the start of that log
+    public synchronized void startLog(Path logFile) throws IOException {
+        if (logChannel != null) {
+            logChannel.close();
+            logChannel = null;
+        }
+        this.logFile = logFile;
+        if (writer != null) {
+            writer.write("# " + logFile);
+            writer.newLine();
+        }
+    }
+
+    public synchronized long getRejectedLines() {
+        return rejectedLines;
+    }
+
+    public synchronized Map<RejectReason, Long> getCounts() {
+        return new EnumMap<>(counts);
+    }
+
+    // Writes the lines rejected so far to the reject file, e.g. while a log is followed
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+            if (logChannel != null) {
+                logChannel.close();
+            }
+        } finally {
+            if (rejectedLines > 0) {
+                log.warn("Skipped {} malformed lines {}{}", rejectedLines, counts, rejectFile == null ? "" : ", they are in " + rejectFile);
+            }
+        }
+    }
+
+    // Number of the line starting at the offset, with the same line breaks as BufferedReader: \n, \r or \r\n
+    private long lineNumberAt(long offset) throws IOException {
+        if (offset < 0 || logFile == null) {
+            return -1;
+        }
+        if (logChannel == null || offset < countedOffset) {
+            // The log is opened for its first line rejected by offset. The line breaks are only counted from the start
+            // again if the lines are not rejected in order.
+            if (logChannel == null) {
+                logChannel = FileChannel.open(logFile, StandardOpenOption.READ);
+                countBuffer = ByteBuffer.allocate(64 * 1024);
+            }
+            countedOffset = 0;
+            countedLines = 0;
+            lastWasCarriageReturn = false;
+        }
+        ByteBuffer buffer = countBuffer;
+        while (countedOffset < offset) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), offset - countedOffset));
+            int read = logChannel.read(buffer, countedOffset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\r' || (b == '\n' && !lastWasCarriageReturn)) {
+                    countedLines++;
+                }
+                lastWasCarriageReturn = b == '\r';
+            }
+            countedOffset += read;
+        }
+        return countedLines + 1;
+    }
+}
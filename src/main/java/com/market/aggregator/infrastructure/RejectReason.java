@@ -0,0 +1,13 @@
+package com.market.aggregator.infrastructure;
+
+// Why a line of the market log was rejected, written next to the line in the reject file
+public enum RejectReason {
+    // Fewer than the 4 fields "date+time;company ticker;price;number of securities traded"
+    MISSING_FIELDS,
+    // The timestamp is not a valid "yyyy-MM-dd HH:mm:ss"
+    INVALID_TIMESTAMP,
+    // The price is not a decimal number
+    INVALID_PRICE,
+    // The quantity is not an int
+    INVALID_QUANTITY
+}
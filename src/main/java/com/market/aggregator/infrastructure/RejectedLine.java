@@ -0,0 +1,6 @@
+package com.market.aggregator.infrastructure;
+
+// A line of the market log that could not be parsed. The parsers know either the number of the line (the first line
+// is 1) or the byte offset where it starts in the log, the other one is -1.
+public record RejectedLine(long lineNumber, long offset, RejectReason reason, String line) {
+}
@@ -0,0 +1,66 @@
+package com.market.aggregator.infrastructure;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.stream.Stream;
+
+//This class is used to find the market logs to ingest together, e.g. one log per venue and per day. A log can be given
+//as a file, as a directory (every log directly in it) or as a glob such as "logs/*/2025-01-2?.txt". The logs are
+//returned sorted by path, which is the order their trades are merged in when timestamps are equal.
+public final class TradeLogFiles {
+    private TradeLogFiles() {
+    }
+
+    // Returns the logs of the file, directory or glob, or an empty list when none is found
+    public static List<Path> resolve(String location) throws IOException {
+        // A file whose name holds a wildcard character is still taken as it is
+        if (isGlob(location) && !Files.exists(Path.of(location))) {
+            return resolveGlob(location);
+        }
+        Path path = Path.of(location);
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                return files.filter(TradeLogFiles::isTradeLog).sorted().toList();
+            }
+        }
+        return Files.isRegularFile(path) ? List.of(path) : List.of();
+    }
+
+    public static boolean isGlob(String location) {
+        return firstWildcard(location) >= 0;
+    }
+
+    // The directories above the first wildcard are not searched, e.g. "logs/2025/*.txt" only lists logs/2025
+    private static List<Path> resolveGlob(String glob) throws IOException {
+        int separator = glob.lastIndexOf('/', firstWildcard(glob));
+        Path base = Path.of(separator < 0 ? "." : glob.substring(0, separator + 1));
+        // Relative globs are matched against the paths relative to the working directory
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + (separator < 0 ? "./" + glob : glob));
+        if (!Files.isDirectory(base)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(matcher::matches).filter(TradeLogFiles::isTradeLog).sorted().toList();
+        }
+    }
+
+    private static int firstWildcard(String location) {
+        for (int i = 0; i < location.length(); i++) {
+            char c = location.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The day indexes and the files being written next to the logs are not logs
+    private static boolean isTradeLog(Path path) {
+        String name = path.getFileName().toString();
+        return Files.isRegularFile(path) && !name.startsWith(".") && !name.endsWith(".idx") && !name.endsWith(".tmp");
+    }
+}
@@ -0,0 +1,73 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.Trade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+//This class is used to follow a market log that is still being written to. Every poll parses the complete lines
+//appended since the previous poll, starting from the position where that poll stopped, so no byte is read twice.
+//A line without its line break yet is still being written and is left for the next poll.
+public class TradeLogFollower implements Closeable {
+    private final MappedTradeParser parser;
+    private final FileChannel channel;
+    // Receives the malformed lines when the parsing is lenient, null when a malformed line stops the parsing
+    private final Consumer<RejectedLine> rejects;
+    // Position right after the last line parsed
+    private long position;
+
+    public TradeLogFollower(MappedTradeParser parser, Path file) throws IOException {
+        this(parser, file, 0);
+    }
+
+    // Follows the log from the given position, which is expected to be the beginning of a line
+    public TradeLogFollower(MappedTradeParser parser, Path file, long position) throws IOException {
+        this(parser, file, position, null);
+    }
+
+    // Same as above, handing the malformed lines to rejects instead of stopping the parsing when it is not null
+    public TradeLogFollower(MappedTradeParser parser, Path file, long position, Consumer<RejectedLine> rejects) throws IOException {
+        this.parser = parser;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.position = position;
+        this.rejects = rejects;
+    }
+
+    // Parses the lines appended since the previous poll and returns the number of trades handed to the consumer
+    public long poll(Consumer<Trade> tradeConsumer) throws IOException {
+        return poll(tradeConsumer, Long.MAX_VALUE);
+    }
+
+    // Same as above, reading about the given number of bytes at most, so a long log can be read a segment at a time.
+    // A line longer than that is still read whole.
+    public long poll(Consumer<Trade> tradeConsumer, long maxBytes) throws IOException {
+        long size = channel.size();
+        if (size < position) {
+            //The trades already aggregated are gone, the log cannot be followed anymore
+            throw new IllegalStateException("The market log was truncated from " + position + " to " + size + " bytes");
+        }
+        long end = parser.lastLineEnd(channel, position, size - position > maxBytes ? position + maxBytes : size);
+        if (end == position && size - position > maxBytes) {
+            end = parser.lastLineEnd(channel, position, size);
+        }
+        if (end == position) {
+            return 0;
+        }
+        long parsedTrades = parser.parseRange(channel, position, end, tradeConsumer, rejects);
+        position = end;
+        return parsedTrades;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,173 @@
+package com.market.aggregator.infrastructure;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+//This class is used to find the trades of some days in a market log without reading the whole log. An indexing pass
+//reads the date of every line and keeps, for every day, the byte ranges of the log that hold its lines: consecutive
+//lines of the same day make one range, so a log sorted by time has one range per day. The index is saved next to the
+//log in a sidecar file. When the log has grown since, only the appended lines are indexed, and when the log is not
+//the one that was indexed, it is indexed again.
+@Slf4j
+public class TradeLogIndex {
+    private static final int MAGIC = 0x4D414749; // "MAGI"
+    private static final int VERSION = 1;
+
+    // Byte ranges of the lines of every day, in log order
+    private final NavigableMap<LocalDate, List<MappedTradeParser.Chunk>> rangesByDay = new TreeMap<>();
+    // The log is indexed up to this position, the end of its last complete line
+    private long indexedSize;
+    // Day of the line that ends at indexedSize, its range is extended when the next lines are of the same day
+    private LocalDate lastDate;
+
+    private TradeLogIndex() {
+    }
+
+    // Sidecar file of the index of a log, e.g. market_log.txt.days.idx
+    public static Path sidecarOf(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + ".days.idx");
+    }
+
+    // Returns the index of the log, loaded from its sidecar file, after indexing the lines that are not indexed yet.
+    // The sidecar file is written again when lines were indexed.
+    public static TradeLogIndex of(MappedTradeParser parser, Path logFile) throws IOException {
+        Path sidecar = sidecarOf(logFile);
+        TradeLogIndex index = load(sidecar, logFile);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long end = parser.lastLineEnd(channel, index.indexedSize, size);
+            if (end > index.indexedSize) {
+                parser.readLineDates(channel, index.indexedSize, end, index::addLine);
+                index.indexedSize = end;
+                index.save(sidecar, logFile);
+            }
+            // The last line has no line break, it may still be written: it is indexed for this query but not saved
+            if (end < size) {
+                parser.readLineDates(channel, end, size, index::addLine);
+            }
+        }
+        return index;
+    }
+
+    // Days found in the log
+    public SortedSet<LocalDate> getDates() {
+        return Collections.unmodifiableSortedSet(rangesByDay.navigableKeySet());
+    }
+
+    // Length of the log covered by the sidecar file, the end of its last complete line
+    public long getIndexedSize() {
+        return indexedSize;
+    }
+
+    // Byte ranges of the log holding the lines of the days from one date to another, both included, in log order.
+    // Parsing them in that order gives the same aggregation of those days as parsing the whole log.
+    public List<MappedTradeParser.Chunk> rangesFor(LocalDate from, LocalDate to) {
+        List<MappedTradeParser.Chunk> ranges = new ArrayList<>();
+        rangesByDay.subMap(from, true, to, true).values().forEach(ranges::addAll);
+        ranges.sort(Comparator.comparingLong(MappedTradeParser.Chunk::start));
+        return ranges;
+    }
+
+    private void addLine(long lineStart, long lineEnd, LocalDate date) {
+        List<MappedTradeParser.Chunk> ranges = rangesByDay.computeIfAbsent(date, k -> new ArrayList<>());
+        MappedTradeParser.Chunk last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+        if (date.equals(lastDate) && last != null) {
+            // The line follows the last range of its day, the lines skipped in between hold no trade
+            ranges.set(ranges.size() - 1, new MappedTradeParser.Chunk(last.start(), lineEnd));
+        } else {
+            ranges.add(new MappedTradeParser.Chunk(lineStart, lineEnd));
+        }
+        lastDate = date;
+    }
+
+    // Loads the index of the sidecar file, or an empty index when it is missing, damaged or was built from another log
+    private static TradeLogIndex load(Path sidecar, Path logFile) throws IOException {
+        TradeLogIndex index = new TradeLogIndex();
+        if (!Files.exists(sidecar)) {
+            return index;
+        }
+        CRC32 checksum = new CRC32();
+        long fingerprint;
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(sidecar)), checksum))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalArgumentException("Not an index of this version");
+            }
+            index.indexedSize = in.readLong();
+            fingerprint = in.readLong();
+            long lastDay = in.readLong();
+            index.lastDate = lastDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(lastDay);
+            int dayCount = in.readInt();
+            for (int day = 0; day < dayCount; day++) {
+                LocalDate date = LocalDate.ofEpochDay(in.readLong());
+                int rangeCount = in.readInt();
+                List<MappedTradeParser.Chunk> ranges = new ArrayList<>(rangeCount);
+                for (int i = 0; i < rangeCount; i++) {
+                    ranges.add(new MappedTradeParser.Chunk(in.readLong(), in.readLong()));
+                }
+                index.rangesByDay.put(date, ranges);
+            }
+            long expectedChecksum = checksum.getValue();
+            if (in.readLong() != expectedChecksum) {
+                throw new IllegalArgumentException("Wrong checksum, the index is incomplete or damaged");
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("The index {} cannot be read, the log is indexed again: {}", sidecar, e.toString());
+            return new TradeLogIndex();
+        }
+        if (index.indexedSize > Files.size(logFile) || fingerprint != LogFingerprint.of(logFile, index.indexedSize)) {
+            log.warn("The index {} was not built from {}, the log is indexed again", sidecar, logFile);
+            return new TradeLogIndex();
+        }
+        return index;
+    }
+
+    // Writes the index next to the previous one and replaces it at once. The index can still be used if it cannot be saved.
+    private void save(Path sidecar, Path logFile) {
+        Path temporaryFile = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try {
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)), checksum))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(indexedSize);
+                out.writeLong(LogFingerprint.of(logFile, indexedSize));
+                out.writeLong(lastDate == null ? Long.MIN_VALUE : lastDate.toEpochDay());
+                out.writeInt(rangesByDay.size());
+                for (Map.Entry<LocalDate, List<MappedTradeParser.Chunk>> day : rangesByDay.entrySet()) {
+                    out.writeLong(day.getKey().toEpochDay());
+                    out.writeInt(day.getValue().size());
+                    for (MappedTradeParser.Chunk range : day.getValue()) {
+                        out.writeLong(range.start());
+                        out.writeLong(range.end());
+                    }
+                }
+                out.writeLong(checksum.getValue());
+            }
+            Files.move(temporaryFile, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("The index of {} cannot be saved to {}: {}", logFile, sidecar, e.toString());
+        }
+    }
+}
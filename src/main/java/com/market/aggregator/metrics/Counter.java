@@ -0,0 +1,28 @@
+package com.market.aggregator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//This class is used to count events from many threads, e.g. the parsed lines. The hot paths add their counts in
+//batches, so the cost of an add does not matter much, and a LongAdder keeps the threads from contending on it.
+public final class Counter {
+    private final MetricsRegistry registry;
+    private final LongAdder count = new LongAdder();
+
+    Counter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long amount) {
+        if (registry.isEnabled()) {
+            count.add(amount);
+        }
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
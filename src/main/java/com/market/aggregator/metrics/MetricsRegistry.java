@@ -0,0 +1,68 @@
+package com.market.aggregator.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+//This class is used to hold the metrics of the application by name: counters, latency histograms and gauges.
+//The parsers and the service get their metrics once and keep them in fields, so the hot paths never look a name up.
+//When the registry is disabled the metrics ignore what is recorded, which only costs the read of a flag.
+//The application has one registry, a bean injected into the parsers and the service, the tests build registries of their own.
+public final class MetricsRegistry {
+    // Names of the metrics of the application
+    public static final String PARSED_LINES = "parse.lines";
+    public static final String PARSED_BYTES = "parse.bytes";
+    public static final String MALFORMED_LINES = "parse.malformed";
+    public static final String AGGREGATED_TRADES = "aggregate.trades";
+    public static final String PARSE_LATENCY = "latency.parse";
+    public static final String AGGREGATE_LATENCY = "latency.aggregate";
+    public static final String INDEX_LATENCY = "latency.index";
+    public static final String PRINT_LATENCY = "latency.print";
+    public static final String EXECUTOR_QUEUE = "executor.queue";
+    public static final String RING_BUFFER_BACKLOG = "ringbuffer.backlog";
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter(this));
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram(this));
+    }
+
+    // Registers a value that is read when the metrics are reported, e.g. the size of a queue. It replaces the gauge
+    // of the same name.
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public SortedMap<String, Counter> getCounters() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+    }
+
+    public SortedMap<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(histograms));
+    }
+
+    // Current value of every gauge
+    public SortedMap<String, Long> readGauges() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, value) -> values.put(name, value.getAsLong()));
+        return values;
+    }
+}
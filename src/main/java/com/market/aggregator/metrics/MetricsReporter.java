@@ -0,0 +1,109 @@
+package com.market.aggregator.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//This class is used to log a summary of the metrics at a fixed interval while the trades are processed, and once
+//more when it is closed. Every counter is reported with its total and its rate since the last summary, every
+//histogram with its median, 99th percentile and count, every gauge with its value. The heap allocated per trade
+//is the memory allocated by all the live threads since the last summary divided by the trades aggregated since.
+@Slf4j
+public class MetricsReporter implements AutoCloseable {
+    private final MetricsRegistry registry;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private long lastReport = System.nanoTime();
+    private long lastAllocatedBytes = allocatedBytes();
+    private Map<String, Long> lastCounts;
+
+    // A zero interval only logs the summary when the reporter is closed
+    public MetricsReporter(MetricsRegistry registry, Duration interval) {
+        this.registry = registry;
+        this.lastCounts = counts();
+        if (interval.isZero() || !registry.isEnabled()) {
+            scheduler = null;
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(() -> log.info("Metrics: {}", summary()), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // Summary of the metrics, the rates are per second since the last summary
+    public synchronized String summary() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastReport) / 1e9);
+        Map<String, Long> counts = counts();
+        StringBuilder summary = new StringBuilder();
+        counts.forEach((name, count) -> summary.append(String.format(Locale.ROOT, "%s=%d (%.0f/s), ",
+                name, count, (count - lastCounts.getOrDefault(name, 0L)) / seconds)));
+        registry.getHistograms().forEach((name, histogram) -> summary.append(String.format(Locale.ROOT, "%s p50=%s p99=%s n=%d, ",
+                name, formatNanos(histogram.percentile(0.5)), formatNanos(histogram.percentile(0.99)), histogram.getCount())));
+        registry.readGauges().forEach((name, value) -> summary.append(name).append('=').append(value).append(", "));
+        long allocatedBytes = allocatedBytes();
+        long trades = counts.getOrDefault(MetricsRegistry.AGGREGATED_TRADES, 0L) - lastCounts.getOrDefault(MetricsRegistry.AGGREGATED_TRADES, 0L);
+        if (allocatedBytes >= 0 && trades > 0) {
+            summary.append(String.format(Locale.ROOT, "heap allocated per trade=%d B, ", (allocatedBytes - lastAllocatedBytes) / trades));
+        }
+        lastReport = now;
+        lastCounts = counts;
+        lastAllocatedBytes = allocatedBytes;
+        return summary.isEmpty() ? "none" : summary.substring(0, summary.length() - 2);
+    }
+
+    // Stops the periodic summaries and logs the last one
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (registry.isEnabled()) {
+            log.info("Metrics: {}", summary());
+        }
+    }
+
+    private Map<String, Long> counts() {
+        Map<String, Long> counts = new TreeMap<>();
+        registry.getCounters().forEach((name, counter) -> counts.put(name, counter.get()));
+        return counts;
+    }
+
+    // Bytes allocated by the live threads, -1 when the JVM does not measure it
+    private long allocatedBytes() {
+        if (!(threads instanceof com.sun.management.ThreadMXBean allocations) || !allocations.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long allocated : allocations.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    // 850 ns, 12.5 us, 3.2 ms...
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + " ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.1f s", nanos / 1e9);
+    }
+}
@@ -0,0 +1,103 @@
+package com.market.aggregator.metrics;
+
+import com.market.aggregator.domain.Trade;
+
+import java.util.function.Consumer;
+
+//This class is used to measure the trades handed over by a parser to the aggregation, on one thread.
+//The trades are counted in a plain field and added to the shared counter every 1024 trades. Only one trade in 1024
+//is timed: the time the aggregation takes to record it, and the time the parser took to parse it, from the end of
+//the trade before. So the clock is read twice per 1024 trades and the cost per trade is an increment and a test.
+//An instance must not be shared by threads, and close must be called to add the last trades to the counter.
+//When the parser hands the trades over to other threads, it only measures the parsing and every worker measures the
+//aggregation of its own trades.
+public final class TradeMeter implements Consumer<Trade>, AutoCloseable {
+    private static final int SAMPLE_MASK = 1023;
+
+    private final Consumer<Trade> aggregation;
+    // Null when the meter does not count the trades, or does not take that latency
+    private final Counter trades;
+    private final LatencyHistogram parseLatency;
+    private final LatencyHistogram aggregateLatency;
+    private long count;
+    private long counted;
+    // End of the trade before the one that is timed, 0 when it was not measured
+    private long lastEnd;
+
+    private TradeMeter(Consumer<Trade> aggregation, Counter trades, LatencyHistogram parseLatency, LatencyHistogram aggregateLatency) {
+        this.aggregation = aggregation;
+        this.trades = trades;
+        this.parseLatency = parseLatency;
+        this.aggregateLatency = aggregateLatency;
+    }
+
+    // Returns the aggregation measured in the registry, or the aggregation itself when the registry is disabled
+    public static Consumer<Trade> of(Consumer<Trade> aggregation, MetricsRegistry registry) {
+        return registry.isEnabled() ? new TradeMeter(aggregation, registry.counter(MetricsRegistry.AGGREGATED_TRADES),
+                registry.histogram(MetricsRegistry.PARSE_LATENCY), registry.histogram(MetricsRegistry.AGGREGATE_LATENCY)) : aggregation;
+    }
+
+    // Same as above for a parser that hands the trades over to other threads: only the parsing is timed, the
+    // trades are counted and their aggregation is timed by the threads that aggregate them
+    public static Consumer<Trade> parsing(Consumer<Trade> handOver, MetricsRegistry registry) {
+        return registry.isEnabled() ? new TradeMeter(handOver, null, registry.histogram(MetricsRegistry.PARSE_LATENCY), null) : handOver;
+    }
+
+    // Same as above for a thread that aggregates the trades handed over by a parser: the trades are counted and their
+    // aggregation is timed, the time between two trades is spent waiting for them and is not taken
+    public static Consumer<Trade> aggregating(Consumer<Trade> aggregation, MetricsRegistry registry) {
+        return registry.isEnabled() ? new TradeMeter(aggregation, registry.counter(MetricsRegistry.AGGREGATED_TRADES),
+                null, registry.histogram(MetricsRegistry.AGGREGATE_LATENCY)) : aggregation;
+    }
+
+    // Returns a task that aggregates one trade on any thread, for the tasks of one trade each. The trade with that
+    // index in the run is timed when a meter would time it. The trades are not counted.
+    public static Runnable task(Trade trade, long index, Consumer<Trade> aggregation, MetricsRegistry registry) {
+        if (!registry.isEnabled() || (index & SAMPLE_MASK) != SAMPLE_MASK) {
+            return () -> aggregation.accept(trade);
+        }
+        LatencyHistogram aggregateLatency = registry.histogram(MetricsRegistry.AGGREGATE_LATENCY);
+        return () -> {
+            long start = System.nanoTime();
+            aggregation.accept(trade);
+            aggregateLatency.record(System.nanoTime() - start);
+        };
+    }
+
+    // Adds the trades that were not counted yet, when the consumer is a TradeMeter
+    public static void close(Consumer<Trade> consumer) {
+        if (consumer instanceof TradeMeter meter) {
+            meter.close();
+        }
+    }
+
+    @Override
+    public void accept(Trade trade) {
+        long n = ++count;
+        if ((n & SAMPLE_MASK) != 0) {
+            aggregation.accept(trade);
+            if ((n & SAMPLE_MASK) == SAMPLE_MASK) {
+                // The next trade is timed
+                lastEnd = System.nanoTime();
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        if (lastEnd != 0 && parseLatency != null) {
+            parseLatency.record(start - lastEnd);
+        }
+        aggregation.accept(trade);
+        if (aggregateLatency != null) {
+            aggregateLatency.record(System.nanoTime() - start);
+        }
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (trades != null) {
+            trades.add(count - counted);
+        }
+        counted = count;
+    }
+}
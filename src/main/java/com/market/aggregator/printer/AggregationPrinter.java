@@ -1,48 +1,138 @@
 package com.market.aggregator.printer;
 
 import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.IntradayIndexPoint;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Formatter;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 
 // This class is used to print the aggregation results.
+// The lines are written into a buffer that is handed to the sink once it is large, or when flush is called, so the
+// console is not written to line by line. The numbers are written without a Formatter, with the same text as
+// printf("%.1f", value.doubleValue()) gives, so the output is the same as printing every line with printf.
 public class AggregationPrinter {
+    // Characters kept before they are handed to the sink
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // A decimal with up to 15 digits is the same number once converted to a double, so it can be rounded directly
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100};
+    private static final String SEPARATOR = "--------------------------------------------------";
 
-    public void printDayAggregations(LocalDate date, Set<String> allTickers, Map<String, AggregationRecord> dayAggregation) throws IOException {
-        System.out.println("Date: " + date);
+    private final OutputSink sink;
+    private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+    // Formats the numbers that cannot be written directly, with the locale printf would use
+    private final Formatter formatter = new Formatter(buffer);
+    // The numbers are only written directly when the locale of printf writes them the plain way
+    private final boolean plainDecimals;
+    private final String lineSeparator = System.lineSeparator();
+
+    public AggregationPrinter() {
+        this(OutputSink.systemOut());
+    }
+
+    public AggregationPrinter(OutputSink sink) {
+        this.sink = sink;
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(formatter.locale());
+        this.plainDecimals = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+    }
+
+    public void printDayAggregations(LocalDate date, Collection<String> allTickers, Map<String, AggregationRecord> dayAggregation) throws IOException {
         // Sort tickers to print in order.
-        var sortedTickers = allTickers.stream().sorted().toList();
+        printDayAggregations(date, allTickers.stream().sorted().toList(), dayAggregation);
+    }
+
+    // Same as above, with the tickers already sorted, so a report of many days only sorts them once
+    public void printDayAggregations(LocalDate date, List<String> sortedTickers, Map<String, AggregationRecord> dayAggregation) throws IOException {
+        buffer.append("Date: ").append(date).append(lineSeparator);
 
         //Output the aggregation results for each ticker.
         for (String ticker : sortedTickers) {
             AggregationRecord record = dayAggregation.get(ticker);
+            buffer.append("Ticker: ").append(ticker);
             //Print record if available and the closeTime belongs to the same day.
             if (record != null && record.getCloseTime() != null && record.getCloseTime().toLocalDate().equals(date)) {
-                System.out.printf("Ticker: %s, Open: %.1f, Close: %.1f, High: %.1f, Low: %.1f, Volume: %.2f%n", ticker, record.getOpenPrice().doubleValue(),
-                        record.getClosePrice().doubleValue(),
-                        record.getHighestPrice().doubleValue(),
-                        record.getLowestPrice().doubleValue(),
-                        record.getVolumeOfTrades().doubleValue());
+                buffer.append(", Open: ");
+                appendDecimal(record.getOpenPrice(), 1);
+                buffer.append(", Close: ");
+                appendDecimal(record.getClosePrice(), 1);
+                buffer.append(", High: ");
+                appendDecimal(record.getHighestPrice(), 1);
+                buffer.append(", Low: ");
+                appendDecimal(record.getLowestPrice(), 1);
+                buffer.append(", Volume: ");
+                appendDecimal(record.getVolumeOfTrades(), 2);
             } else {
-                System.out.printf("Ticker: %s, Open: N/A, Close: N/A, High: N/A, Low: N/A, Volume: 0.00%n", ticker);
+                buffer.append(", Open: N/A, Close: N/A, High: N/A, Low: N/A, Volume: 0.00");
             }
+            buffer.append(lineSeparator);
+            flushIfFull();
         }
     }
 
-    public void printMarketIndex(LocalDate date, BigDecimal indexValue) {
+    public void printMarketIndex(LocalDate date, BigDecimal indexValue) throws IOException {
+        buffer.append("Index for ").append(date).append(": ");
         if (indexValue != null) {
-            System.out.printf("Index for %s: %.1f%n", date, indexValue.doubleValue());
+            appendDecimal(indexValue, 1);
+        } else {
+            buffer.append("N/A");
+        }
+        buffer.append(lineSeparator).append(SEPARATOR).append(lineSeparator);
+        flushIfFull();
+    }
+
+    public void printIntradayIndex(IntradayIndexPoint point) throws IOException {
+        buffer.append("Intraday index ").append(point.start().toLocalDate())
+                .append(' ').append(point.start().toLocalTime())
+                .append('-').append(point.end().toLocalTime()).append(": ");
+        if (point.value() != null) {
+            appendDecimal(point.value(), 1);
         } else {
-            System.out.printf("Index for %s: N/A%n", date);
+            buffer.append("N/A");
+        }
+        buffer.append(lineSeparator);
+        flushIfFull();
+    }
+
+    // Hands the buffered lines to the sink
+    public void flush() throws IOException {
+        if (!buffer.isEmpty()) {
+            sink.write(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    private void flushIfFull() throws IOException {
+        if (buffer.length() >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    // Writes the value with the given number of decimals, like printf("%.1f") or printf("%.2f") of its double value
+    private void appendDecimal(BigDecimal value, int decimals) {
+        if (!plainDecimals || value.precision() > MAX_EXACT_DIGITS || value.precision() - value.scale() > MAX_EXACT_DIGITS) {
+            formatter.format(decimals == 1 ? "%.1f" : "%.2f", value.doubleValue());
+            return;
+        }
+        // printf rounds half up too, and keeps the sign of a negative value that rounds to zero
+        long scaled = value.setScale(decimals, RoundingMode.HALF_UP).unscaledValue().longValue();
+        if (value.signum() < 0) {
+            buffer.append('-');
+            scaled = -scaled;
+        }
+        long fraction = scaled % POWERS_OF_TEN[decimals];
+        buffer.append(scaled / POWERS_OF_TEN[decimals]).append('.');
+        for (long power = POWERS_OF_TEN[decimals] / 10; power > fraction && power > 1; power /= 10) {
+            buffer.append('0');
         }
-        System.out.println("--------------------------------------------------");
+        buffer.append(fraction);
     }
     //Future Implementation: We can export the results to a CSV file.
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.market.aggregator.printer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// This interface is used to receive the text printed by AggregationPrinter, a block of whole lines at a time.
+@FunctionalInterface
+public interface OutputSink {
+
+    void write(CharSequence text) throws IOException;
+
+    // Writes to the console through System.out, looked up on every write so that a replaced System.out is used,
+    // with the same encoding and line breaks as printing each line with System.out
+    static OutputSink systemOut() {
+        return text -> {
+            System.out.append(text);
+            System.out.flush();
+        };
+    }
+
+    static OutputSink of(Writer writer) {
+        return text -> {
+            writer.append(text);
+            writer.flush();
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.market.aggregator.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// The threads of the service: a bounded pool of platform threads for the CPU-bound parsing and aggregation, and the
+// threads that read the files when several logs are ingested together. Virtual read threads only do the blocking reads,
+// the bytes they read are parsed on the pool. The threads are created once and shut down on close.
+public class AggregationExecutors implements AutoCloseable {
+    private final int parallelism;
+    private final ExecutorService aggregationPool;
+    private final ThreadMode readThreads;
+    // The aggregation pool itself with platform read threads, which map and parse the files, one virtual thread per
+    // file otherwise
+    private final ExecutorService readExecutor;
+
+    public AggregationExecutors(ThreadMode readThreads, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The number of aggregation threads must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.aggregationPool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        this.readThreads = readThreads;
+        this.readExecutor = readThreads == ThreadMode.VIRTUAL ? Executors.newVirtualThreadPerTaskExecutor() : aggregationPool;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public ExecutorService aggregationPool() {
+        return aggregationPool;
+    }
+
+    public ThreadMode readThreads() {
+        return readThreads;
+    }
+
+    public ExecutorService readExecutor() {
+        return readExecutor;
+    }
+
+    // Number of aggregation tasks waiting for a thread
+    public int queuedTasks() {
+        return aggregationPool instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+    }
+
+    // The tasks already submitted are finished, no new task is accepted
+    @Override
+    public void close() {
+        readExecutor.shutdown();
+        aggregationPool.shutdown();
+    }
+}
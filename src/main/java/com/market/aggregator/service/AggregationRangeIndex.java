@@ -0,0 +1,168 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.AggregationRecord;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// This class is used to answer the aggregation of a ticker over a range of days without merging every day of the range.
+// For every ticker queried, a segment tree is built over the days of the store: the leaves are the daily records and
+// every other node is the merge of its two children, e.g. a week, a month or a year is the merge of at most two nodes
+// per level of the tree, so a query costs O(log days) merges.
+// The trees are built the first time a ticker is queried. A trade only changes the leaf of its day in the tree of its
+// ticker, the leaf and its ancestors are updated on the next query of that ticker in O(log days). The trees are only
+// dropped when a new day appears, since every leaf moves then.
+final class AggregationRangeIndex {
+    private final ITickerAggregatorManager aggregations;
+    // Set by the store when it adds a day, every tree is built again on the next query
+    private volatile boolean stale = true;
+    // Days of the store in order, the leaves of every tree
+    private LocalDate[] days = new LocalDate[0];
+    // Trees by ticker id: node 1 is the root, the children of node i are 2i and 2i + 1, the leaf of day d is days.length + d.
+    // A null node has no trade.
+    private final Map<Integer, AggregationRecord[]> trees = new HashMap<>();
+    // Days changed since the tree of the ticker was last updated, only kept for the tickers that have a tree.
+    // They are written by the threads that record trades, without the lock of the index.
+    private final Map<Integer, Set<LocalDate>> changedDays = new ConcurrentHashMap<>();
+
+    AggregationRangeIndex(ITickerAggregatorManager aggregations) {
+        this.aggregations = aggregations;
+    }
+
+    // Called by the store when it adds a day. Only the first new day writes the flag.
+    void invalidate() {
+        if (!stale) {
+            stale = true;
+        }
+    }
+
+    // Called by the store when it recorded or merged trades of the ticker on that day. Nothing is kept for a ticker
+    // that was never queried, and a day already waiting for its update is not written again.
+    void update(LocalDate date, int tickerId) {
+        Set<LocalDate> dates = changedDays.get(tickerId);
+        if (dates != null && !dates.contains(date)) {
+            dates.add(date);
+        }
+    }
+
+    // Returns a new record of the trades of the ticker from the first to the last day, both included,
+    // or null if the ticker was not traded in that range
+    synchronized AggregationRecord query(LocalDate from, LocalDate to, int tickerId) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException(String.format("The range starts after it ends: %s to %s", from, to));
+        }
+        AggregationRecord[] tree = treeOf(tickerId);
+        int first = insertionPoint(from);
+        int last = insertionPoint(to.plusDays(1));
+        if (first >= last) {
+            return null;
+        }
+        // Walks up from the leaves of the range, taking the nodes that stick out of it on either side.
+        // The nodes are not merged in the order of the days: each day has its own open and close times,
+        // so the earliest open and the latest close are the same in any order.
+        AggregationRecord range = null;
+        for (int left = first + days.length, right = last + days.length; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                range = merge(range, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                range = merge(range, tree[--right]);
+            }
+        }
+        return range;
+    }
+
+    // Returns the tree of the ticker with the changes made since it was built
+    private AggregationRecord[] treeOf(int tickerId) {
+        if (stale) {
+            dropTrees();
+        }
+        AggregationRecord[] tree = trees.get(tickerId);
+        if (tree != null) {
+            if (applyChanges(tree, tickerId)) {
+                return tree;
+            }
+            // A day added while the trees were built was changed, the days are read again
+            dropTrees();
+        }
+        // The changes are kept before the records are read, a change made while the tree is built is applied on the next query
+        changedDays.put(tickerId, ConcurrentHashMap.newKeySet());
+        tree = build(tickerId);
+        trees.put(tickerId, tree);
+        return tree;
+    }
+
+    private void dropTrees() {
+        // The flag is cleared before the store is read, a day added while the trees are built marks them stale again
+        stale = false;
+        days = new TreeSet<>(aggregations.getAggregationDates()).toArray(LocalDate[]::new);
+        trees.clear();
+        changedDays.clear();
+    }
+
+    private AggregationRecord[] build(int tickerId) {
+        int dayCount = days.length;
+        AggregationRecord[] tree = new AggregationRecord[2 * dayCount];
+        for (int day = 0; day < dayCount; day++) {
+            tree[dayCount + day] = leaf(day, tickerId);
+        }
+        for (int node = dayCount - 1; node > 0; node--) {
+            tree[node] = mergeChildren(tree, node);
+        }
+        return tree;
+    }
+
+    // Reads the changed days again and updates their leaves and the ancestors of the leaves. Returns false when a
+    // day is not a leaf of the trees.
+    private boolean applyChanges(AggregationRecord[] tree, int tickerId) {
+        for (Iterator<LocalDate> iterator = changedDays.get(tickerId).iterator(); iterator.hasNext(); ) {
+            LocalDate date = iterator.next();
+            // Removed before the record is read, a trade recorded meanwhile adds the day again
+            iterator.remove();
+            int day = Arrays.binarySearch(days, date);
+            if (day < 0) {
+                return false;
+            }
+            int node = days.length + day;
+            tree[node] = leaf(day, tickerId);
+            for (node >>= 1; node > 0; node >>= 1) {
+                tree[node] = mergeChildren(tree, node);
+            }
+        }
+        return true;
+    }
+
+    // The record of the ticker on the day at that index, null if it has no trade
+    private AggregationRecord leaf(int day, int tickerId) {
+        AggregationRecord record = aggregations.getAggregationFor(days[day], tickerId);
+        return record == null || record.getOpenTime() == null ? null : record;
+    }
+
+    private static AggregationRecord mergeChildren(AggregationRecord[] tree, int node) {
+        return merge(merge(null, tree[2 * node]), tree[2 * node + 1]);
+    }
+
+    // Index of the first day on or after the date
+    private int insertionPoint(LocalDate date) {
+        int index = Arrays.binarySearch(days, date);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // Merges the node into the range, a new record is started for the first node so the nodes are never changed
+    private static AggregationRecord merge(AggregationRecord range, AggregationRecord node) {
+        if (node == null) {
+            return range;
+        }
+        if (range == null) {
+            range = AggregationRecord.of(node.getTicker());
+        }
+        range.merge(node);
+        return range;
+    }
+}
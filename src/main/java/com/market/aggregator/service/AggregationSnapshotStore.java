@@ -0,0 +1,187 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.infrastructure.LogFingerprint;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// This class is used to save the aggregations to a snapshot file together with the byte offset of the log they were
+// read up to, and to restore them after a restart, so only the lines appended to the log since then are parsed again.
+// The snapshot is a compact binary file: a ticker dictionary, then the records of every day with the timestamps as
+// epoch seconds and nanos and the values as unscaled bytes with their scale, so every value is restored exactly.
+// A checksum of the whole file and a checksum of the beginning of the log make sure the snapshot is complete and
+// belongs to the log being read, any other snapshot is ignored and the log is read from the start.
+@Slf4j
+public class AggregationSnapshotStore {
+    private static final int MAGIC = 0x4D414753; // "MAGS"
+    private static final int VERSION = 1;
+
+    private final Path snapshotFile;
+
+    public AggregationSnapshotStore(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    // Saves the aggregations, they hold the trades of the log up to the given offset.
+    // The snapshot is written next to the previous one and replaces it at once, so a crash never leaves half a snapshot.
+    public void save(ITickerAggregatorManager aggregations, Path logFile, long logOffset) throws IOException {
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryFile)), checksum))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logOffset);
+            out.writeLong(LogFingerprint.of(logFile, logOffset));
+
+            List<LocalDate> dates = aggregations.getAggregationDates().stream().sorted().toList();
+            Map<String, Integer> tickerIndexes = new HashMap<>();
+            List<Map<String, AggregationRecord>> days = new ArrayList<>(dates.size());
+            for (LocalDate date : dates) {
+                Map<String, AggregationRecord> day = aggregations.getAggregationFor(date);
+                day.keySet().forEach(ticker -> tickerIndexes.putIfAbsent(ticker, tickerIndexes.size()));
+                days.add(day);
+            }
+            String[] tickers = new String[tickerIndexes.size()];
+            tickerIndexes.forEach((ticker, index) -> tickers[index] = ticker);
+            out.writeInt(tickers.length);
+            for (String ticker : tickers) {
+                out.writeUTF(ticker);
+            }
+
+            out.writeInt(dates.size());
+            for (int i = 0; i < dates.size(); i++) {
+                // A record without trades has nothing to restore
+                List<AggregationRecord> records = days.get(i).values().stream().filter(record -> record.getCloseTime() != null).toList();
+                out.writeLong(dates.get(i).toEpochDay());
+                out.writeInt(records.size());
+                for (AggregationRecord record : records) {
+                    out.writeInt(tickerIndexes.get(record.getTicker()));
+                    writeTimestamp(out, record.getOpenTime());
+                    writeTimestamp(out, record.getCloseTime());
+                    writeDecimal(out, record.getOpenPrice());
+                    writeDecimal(out, record.getClosePrice());
+                    writeDecimal(out, record.getHighestPrice());
+                    writeDecimal(out, record.getLowestPrice());
+                    writeDecimal(out, record.getVolumeOfTrades());
+                }
+            }
+            out.flush();
+            // The checksum of everything written before it
+            out.writeLong(checksum.getValue());
+        }
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Saved a snapshot of {} days at byte {} of {}", aggregations.getAggregationDates().size(), logOffset, logFile);
+    }
+
+    // Restores the aggregations of the snapshot into the manager, which is expected to be empty, and returns the offset
+    // of the log to continue from. Returns 0 when there is no snapshot or when it cannot be used for this log.
+    public long restore(ITickerAggregatorManager aggregations, Path logFile) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            log.info("No snapshot found at {}, the log is read from the start", snapshotFile);
+            return 0;
+        }
+        Snapshot snapshot;
+        try {
+            snapshot = read();
+        } catch (IOException | RuntimeException e) {
+            log.warn("The snapshot {} cannot be read, the log is read from the start: {}", snapshotFile, e.toString());
+            return 0;
+        }
+        if (snapshot.logOffset() > Files.size(logFile) || snapshot.logFingerprint() != LogFingerprint.of(logFile, snapshot.logOffset())) {
+            log.warn("The snapshot {} was not taken from {}, the log is read from the start", snapshotFile, logFile);
+            return 0;
+        }
+        // The snapshot is only applied once it was read completely
+        snapshot.days().forEach((date, records) -> records.forEach(record -> aggregations.mergeAggregation(date, record)));
+        log.info("Restored a snapshot of {} days, the log is read from byte {}", snapshot.days().size(), snapshot.logOffset());
+        return snapshot.logOffset();
+    }
+
+    private Snapshot read() throws IOException {
+        CRC32 checksum = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshotFile));
+             DataInputStream in = new DataInputStream(new CheckedInputStream(file, checksum))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalArgumentException("Not a snapshot of this version");
+            }
+            long logOffset = in.readLong();
+            long logFingerprint = in.readLong();
+            String[] tickers = new String[in.readInt()];
+            for (int i = 0; i < tickers.length; i++) {
+                tickers[i] = in.readUTF();
+            }
+            Map<LocalDate, List<AggregationRecord>> days = new HashMap<>();
+            int dayCount = in.readInt();
+            for (int day = 0; day < dayCount; day++) {
+                LocalDate date = LocalDate.ofEpochDay(in.readLong());
+                int recordCount = in.readInt();
+                List<AggregationRecord> records = new ArrayList<>(recordCount);
+                for (int i = 0; i < recordCount; i++) {
+                    AggregationRecord record = AggregationRecord.of(tickers[in.readInt()]);
+                    record.setOpenTime(readTimestamp(in));
+                    record.setCloseTime(readTimestamp(in));
+                    record.setOpenPrice(readDecimal(in));
+                    record.setClosePrice(readDecimal(in));
+                    record.setHighestPrice(readDecimal(in));
+                    record.setLowestPrice(readDecimal(in));
+                    record.setVolumeOfTrades(readDecimal(in));
+                    records.add(record);
+                }
+                days.put(date, records);
+            }
+            long expectedChecksum = checksum.getValue();
+            if (in.readLong() != expectedChecksum) {
+                throw new IllegalArgumentException("Wrong checksum, the snapshot is incomplete or damaged");
+            }
+            return new Snapshot(logOffset, logFingerprint, days);
+        }
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedShort()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private record Snapshot(long logOffset, long logFingerprint, Map<LocalDate, List<AggregationRecord>> days) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.MarketAggregatorProperties;
+import com.market.aggregator.domain.InstrumentTickSizes;
+import com.market.aggregator.domain.TickerSymbolTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+// This class is used to store the aggregations in columns: one primitive array per field of AggregationRecord,
+// indexed by (day slot, ticker id). The cells of a day follow each other, so scanning a day walks the arrays in order,
+// and there is no object per ticker and per day.
+@Service
+@ConditionalOnProperty(name = "market.aggregator.store", havingValue = "COLUMNAR")
+public class ColumnarTickerAggregatorManager extends FixedPointTickerAggregatorManager {
+    private byte[] states = new byte[INITIAL_DAY_CAPACITY * INITIAL_TICKER_CAPACITY];
+    // One column per field, e.g. columns[CLOSE_PRICE][cell]
+    private long[][] columns = new long[FIELD_COUNT][states.length];
+
+    // With the default tick size for every instrument
+    public ColumnarTickerAggregatorManager(TickerSymbolTable symbols) {
+        this(symbols, InstrumentTickSizes.defaults());
+    }
+
+    @Autowired
+    public ColumnarTickerAggregatorManager(TickerSymbolTable symbols, MarketAggregatorProperties properties) {
+        this(symbols, properties.instrumentTickSizes());
+    }
+
+    public ColumnarTickerAggregatorManager(TickerSymbolTable symbols, InstrumentTickSizes tickSizes) {
+        super(symbols, tickSizes);
+    }
+
+    // Bytes used by the columns, to compare with the heap records of TickerAggregatorManager.
+    // The records of the cells that fell back to BigDecimal are not included.
+    public synchronized long getColumnBytes() {
+        return (long) states.length * (Byte.BYTES + FIELD_COUNT * Long.BYTES);
+    }
+
+    @Override
+    protected byte state(int cell) {
+        return states[cell];
+    }
+
+    @Override
+    protected void setState(int cell, byte state) {
+        states[cell] = state;
+    }
+
+    @Override
+    protected long get(int cell, int field) {
+        return columns[field][cell];
+    }
+
+    @Override
+    protected void set(int cell, int field, long value) {
+        columns[field][cell] = value;
+    }
+
+    @Override
+    void resizeCells(int dayCount, int oldTickerCapacity, int dayCapacity, int tickerCapacity) {
+        byte[] newStates = new byte[dayCapacity * tickerCapacity];
+        long[][] newColumns = new long[FIELD_COUNT][newStates.length];
+        // Copy the cells of every day to the same ticker id in the new columns
+        for (int daySlot = 0; daySlot < dayCount; daySlot++) {
+            int from = daySlot * oldTickerCapacity;
+            int to = daySlot * tickerCapacity;
+            System.arraycopy(states, from, newStates, to, oldTickerCapacity);
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                System.arraycopy(columns[field], from, newColumns[field], to, oldTickerCapacity);
+            }
+        }
+        states = newStates;
+        columns = newColumns;
+    }
+}
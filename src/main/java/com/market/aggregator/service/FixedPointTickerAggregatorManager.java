@@ -0,0 +1,273 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.FixedPointCells;
+import com.market.aggregator.domain.InstrumentTickSizes;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// This class is used to aggregate trades into cells of primitive fields, one cell per (day slot, ticker id).
+// The cell of a ticker on a day is daySlot * tickerCapacity + tickerId, so the cells of a day follow each other.
+// The cells are updated by the rules of FixedPointCells, the same as the ones of FixedPointAggregationRecord.
+// A cell that cannot be stored that way (more decimals than the tick size, overflow) keeps a BigDecimal
+// AggregationRecord of its own, so the values are always the same as the ones of TickerAggregatorManager.
+// The subclasses decide where the cells are stored.
+abstract class FixedPointTickerAggregatorManager extends FixedPointCells implements ITickerAggregatorManager {
+    // Capacities the storage of the subclasses starts with
+    static final int INITIAL_DAY_CAPACITY = 16;
+    static final int INITIAL_TICKER_CAPACITY = 64;
+    // Marks a ticker whose scale has not been looked up yet
+    private static final int UNKNOWN_SCALE = Integer.MIN_VALUE;
+
+    private final TickerSymbolTable symbols;
+    private final InstrumentTickSizes tickSizes;
+
+    // Slot of every day, in the order the days are first seen, and the day of every slot
+    private final Map<LocalDate, Integer> daySlots = new HashMap<>();
+    private LocalDate[] days = new LocalDate[INITIAL_DAY_CAPACITY];
+    private int dayCount;
+    // Most trades fall on the day of the previous trade
+    private LocalDate lastDay;
+    private int lastDaySlot;
+
+    private int tickerCapacity = INITIAL_TICKER_CAPACITY;
+    private int[] scales = newScales(INITIAL_TICKER_CAPACITY);
+    // Records of the cells in the FALLBACK state, by day slot and ticker id
+    private final Map<Long, AggregationRecord> fallbacks = new HashMap<>();
+    // Segment trees over the days, for the aggregations of a ticker over a range of days
+    private final AggregationRangeIndex rangeIndex = new AggregationRangeIndex(this);
+
+    FixedPointTickerAggregatorManager(TickerSymbolTable symbols, InstrumentTickSizes tickSizes) {
+        this.symbols = symbols;
+        this.tickSizes = tickSizes;
+    }
+
+    // Moves the cells of the first dayCount days to a storage of dayCapacity days of tickerCapacity cells.
+    // A cell keeps its day slot and its ticker id, the new cells are EMPTY.
+    abstract void resizeCells(int dayCount, int oldTickerCapacity, int dayCapacity, int tickerCapacity);
+
+    //Record the trade in the cell of its ticker on its day.
+    @Override
+    public synchronized void recordTrade(Trade trade) {
+        int tickerId = symbols.idOf(trade);
+        LocalDate date = trade.getTimestamp().toLocalDate();
+        int daySlot = daySlotOf(date);
+        ensureTickerCapacity(tickerId);
+        int cell = daySlot * tickerCapacity + tickerId;
+        rangeIndex.update(date, tickerId);
+        if (state(cell) != FALLBACK) {
+            try {
+                recordTrade(cell, toEpochSecond(trade.getTimestamp()), toScaledPrice(trade.getPrice(), scaleOf(tickerId)), trade.getQuantity());
+                return;
+            } catch (ArithmeticException e) {
+                // The price has more decimals than the tick size or a value does not fit in a long
+                switchToFallback(cell, daySlot, tickerId);
+            }
+        }
+        fallbacks.get(fallbackKey(daySlot, tickerId)).recordTrade(trade);
+    }
+
+    //Merge a partial aggregation of a ticker into the cell of that day.
+    @Override
+    public synchronized void mergeAggregation(LocalDate date, AggregationRecord partialAggregation) {
+        if (partialAggregation.getOpenTime() == null) {
+            // Nothing was recorded in the partial aggregation
+            return;
+        }
+        int tickerId = symbols.idOf(partialAggregation.getTicker());
+        int daySlot = daySlotOf(date);
+        ensureTickerCapacity(tickerId);
+        int cell = daySlot * tickerCapacity + tickerId;
+        rangeIndex.update(date, tickerId);
+        if (state(cell) != FALLBACK) {
+            try {
+                merge(cell, partialAggregation, scaleOf(tickerId));
+                return;
+            } catch (ArithmeticException e) {
+                switchToFallback(cell, daySlot, tickerId);
+            }
+        }
+        fallbacks.get(fallbackKey(daySlot, tickerId)).merge(partialAggregation);
+    }
+
+    // Get the aggregated data for a specific day, the records are built from the cells.
+    @Override
+    public synchronized Map<String, AggregationRecord> getAggregationFor(LocalDate date) {
+        Integer daySlot = daySlots.get(date);
+        if (daySlot == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, AggregationRecord> records = new HashMap<>();
+        int firstCell = daySlot * tickerCapacity;
+        for (int tickerId = 0; tickerId < tickerCapacity; tickerId++) {
+            if (state(firstCell + tickerId) != EMPTY) {
+                records.put(symbols.tickerOf(tickerId), toAggregationRecord(firstCell + tickerId, daySlot, tickerId));
+            }
+        }
+        return Collections.unmodifiableMap(records);
+    }
+
+    // Get the tickers traded on a specific day, only the states of the cells are read.
+    @Override
+    public synchronized Set<String> getTickersFor(LocalDate date) {
+        Integer daySlot = daySlots.get(date);
+        if (daySlot == null) {
+            return Collections.emptySet();
+        }
+        Set<String> tickers = new HashSet<>();
+        int firstCell = daySlot * tickerCapacity;
+        for (int tickerId = 0; tickerId < tickerCapacity; tickerId++) {
+            if (state(firstCell + tickerId) != EMPTY) {
+                tickers.add(symbols.tickerOf(tickerId));
+            }
+        }
+        return Collections.unmodifiableSet(tickers);
+    }
+
+    @Override
+    public synchronized AggregationRecord getAggregationFor(LocalDate date, int tickerId) {
+        Integer daySlot = daySlots.get(date);
+        if (daySlot == null || tickerId < 0 || tickerId >= tickerCapacity || state(daySlot * tickerCapacity + tickerId) == EMPTY) {
+            return null;
+        }
+        return toAggregationRecord(daySlot * tickerCapacity + tickerId, daySlot, tickerId);
+    }
+
+    // Not synchronized: the range index takes its own lock, then reads the cells through getAggregationFor
+    @Override
+    public AggregationRecord getAggregationBetween(LocalDate from, LocalDate to, int tickerId) {
+        return rangeIndex.query(from, to, tickerId);
+    }
+
+    @Override
+    public AggregationRecord getAggregationBetween(LocalDate from, LocalDate to, String ticker) {
+        int tickerId = symbols.find(ticker);
+        return tickerId < 0 ? null : rangeIndex.query(from, to, tickerId);
+    }
+
+    // Walks the cells of the day in order and only builds the BigDecimal of the close prices.
+    @Override
+    public synchronized void forEachClosePrice(LocalDate date, ClosePriceConsumer consumer) {
+        Integer daySlot = daySlots.get(date);
+        if (daySlot == null) {
+            return;
+        }
+        int firstCell = daySlot * tickerCapacity;
+        for (int tickerId = 0; tickerId < tickerCapacity; tickerId++) {
+            int cell = firstCell + tickerId;
+            byte state = state(cell);
+            if (state == FIXED_POINT) {
+                consumer.accept(tickerId, BigDecimal.valueOf(get(cell, CLOSE_PRICE), scales[tickerId]));
+            } else if (state == FALLBACK) {
+                BigDecimal closePrice = fallbacks.get(fallbackKey(daySlot, tickerId)).getClosePrice();
+                if (closePrice != null) {
+                    consumer.accept(tickerId, closePrice);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized LocalDate getFirstAggregationDate() {
+        return Arrays.stream(days, 0, dayCount)
+                .min(LocalDate::compareTo)
+                .orElseThrow(() -> new IllegalStateException("Aggregation window is empty"));
+    }
+
+    @Override
+    public synchronized LocalDate getLastAggregationDate() {
+        return Arrays.stream(days, 0, dayCount)
+                .max(LocalDate::compareTo)
+                .orElseThrow(() -> new IllegalStateException("Aggregation window is empty"));
+    }
+
+    @Override
+    public synchronized Set<LocalDate> getAggregationDates() {
+        return Collections.unmodifiableSet(new TreeSet<>(daySlots.keySet()));
+    }
+
+    // Moves the cell to a BigDecimal record, the fields of the cell are not used anymore
+    private void switchToFallback(int cell, int daySlot, int tickerId) {
+        AggregationRecord fallback = state(cell) == EMPTY
+                ? AggregationRecord.of(symbols.tickerOf(tickerId))
+                : toAggregationRecord(cell, daySlot, tickerId);
+        fallbacks.put(fallbackKey(daySlot, tickerId), fallback);
+        setState(cell, FALLBACK);
+    }
+
+    // Builds a new record from the cell, the records handed out are never the ones used for the aggregation
+    private AggregationRecord toAggregationRecord(int cell, int daySlot, int tickerId) {
+        if (state(cell) != FALLBACK) {
+            return toAggregationRecord(cell, symbols.tickerOf(tickerId), scales[tickerId]);
+        }
+        AggregationRecord record = AggregationRecord.of(symbols.tickerOf(tickerId));
+        record.merge(fallbacks.get(fallbackKey(daySlot, tickerId)));
+        return record;
+    }
+
+    // Returns the slot of the day, a new block of cells is used the first time a day is seen
+    private int daySlotOf(LocalDate day) {
+        if (day.equals(lastDay)) {
+            return lastDaySlot;
+        }
+        Integer daySlot = daySlots.get(day);
+        if (daySlot == null) {
+            daySlot = dayCount;
+            if (dayCount == days.length) {
+                days = Arrays.copyOf(days, dayCount * 2);
+                resizeCells(dayCount, tickerCapacity, days.length, tickerCapacity);
+            }
+            days[dayCount++] = day;
+            daySlots.put(day, daySlot);
+            rangeIndex.invalidate();
+        }
+        lastDay = day;
+        lastDaySlot = daySlot;
+        return daySlot;
+    }
+
+    // Number of decimals kept for the prices of the ticker
+    private int scaleOf(int tickerId) {
+        int scale = scales[tickerId];
+        if (scale == UNKNOWN_SCALE) {
+            scale = scales[tickerId] = tickSizes.scaleFor(symbols.tickerOf(tickerId));
+        }
+        return scale;
+    }
+
+    // Makes room for the ticker in every day, the cells are moved to their place in the wider days
+    private void ensureTickerCapacity(int tickerId) {
+        if (tickerId < tickerCapacity) {
+            return;
+        }
+        int newCapacity = tickerCapacity;
+        while (newCapacity <= tickerId) {
+            newCapacity *= 2;
+        }
+        int[] newScales = newScales(newCapacity);
+        System.arraycopy(scales, 0, newScales, 0, tickerCapacity);
+        scales = newScales;
+        resizeCells(dayCount, tickerCapacity, days.length, newCapacity);
+        tickerCapacity = newCapacity;
+    }
+
+    private static int[] newScales(int capacity) {
+        int[] scales = new int[capacity];
+        Arrays.fill(scales, UNKNOWN_SCALE);
+        return scales;
+    }
+
+    private static long fallbackKey(int daySlot, int tickerId) {
+        return ((long) daySlot << 32) | tickerId;
+    }
+}
@@ -3,6 +3,7 @@ package com.market.aggregator.service;
 import com.market.aggregator.domain.AggregationRecord;
 import com.market.aggregator.domain.Trade;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Map;
 import java.util.Set;
@@ -11,11 +12,37 @@ import java.util.Set;
 public interface ITickerAggregatorManager {
     void recordTrade(Trade trade);
 
+    // Merges a partial aggregation, built from trades that come later in the log, into the record of that day.
+    void mergeAggregation(LocalDate date, AggregationRecord partialAggregation);
+
     Map<String, AggregationRecord> getAggregationFor(LocalDate date);
 
+    // Returns the tickers traded that day, without building their records, empty if the day has no trade.
+    Set<String> getTickersFor(LocalDate date);
+
+    // Returns the record of the ticker with the given TickerSymbolTable id for that day, or null if it was not traded.
+    AggregationRecord getAggregationFor(LocalDate date, int tickerId);
+
+    // Returns the record of the ticker with the given TickerSymbolTable id over the days from..to, both included,
+    // e.g. the open of its first trade and the close of its last one in a month, or null if it was not traded.
+    // It is answered in logarithmic time of the number of days, not by merging every day of the range.
+    AggregationRecord getAggregationBetween(LocalDate from, LocalDate to, int tickerId);
+
+    // Same as getAggregationBetween(LocalDate, LocalDate, int) for a ticker by name, null if the ticker is not known.
+    AggregationRecord getAggregationBetween(LocalDate from, LocalDate to, String ticker);
+
+    // Hands the close price of every ticker traded that day to the consumer, in the order of the ticker ids.
+    void forEachClosePrice(LocalDate date, ClosePriceConsumer consumer);
+
     LocalDate getFirstAggregationDate();
 
     LocalDate getLastAggregationDate();
 
     Set<LocalDate> getAggregationDates();
-}
\ No newline at end of file
+
+    // Receives the close price of a ticker, identified by its TickerSymbolTable id
+    @FunctionalInterface
+    interface ClosePriceConsumer {
+        void accept(int tickerId, BigDecimal closePrice);
+    }
+}
@@ -0,0 +1,55 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.MarketWeights;
+
+import java.math.BigDecimal;
+
+// This class is used to keep the market index up to date one close price at a time.
+// It keeps the weighted sum of the last known prices and only adds the change of the prices that moved, so the
+// cost of a day depends on the tickers traded that day and not on the number of tickers in the index.
+// BigDecimal arithmetic is exact, so the value is always equal to the one of a full MarketIndexCalculator.calculate.
+public class IncrementalMarketIndex {
+    private final MarketWeights marketWeights;
+    // Last known price of every ticker of the index, by ticker id
+    private final BigDecimal[] lastPrices;
+    // Tickers of the index without a price yet, the index is only complete once it is 0
+    private int missingPrices;
+    private BigDecimal weightedSum = BigDecimal.ZERO;
+
+    IncrementalMarketIndex(MarketWeights marketWeights) {
+        this.marketWeights = marketWeights;
+        this.lastPrices = new BigDecimal[marketWeights.tickerIdLimit()];
+        this.missingPrices = marketWeights.size();
+    }
+
+    // Sets the price of a ticker, the tickers that are not part of the index are ignored
+    public void updatePrice(int tickerId, BigDecimal price) {
+        BigDecimal weight = marketWeights.weightOf(tickerId);
+        if (weight == null) {
+            return;
+        }
+        BigDecimal lastPrice = lastPrices[tickerId];
+        if (lastPrice == null) {
+            // First price of the ticker, its whole weighted price is added
+            missingPrices--;
+            weightedSum = weightedSum.add(price.multiply(weight));
+        } else if (lastPrice.compareTo(price) != 0) {
+            // Only the change of the price is added
+            weightedSum = weightedSum.add(price.subtract(lastPrice).multiply(weight));
+        }
+        lastPrices[tickerId] = price;
+    }
+
+    // True once every ticker of the index has a price
+    public boolean isComplete() {
+        return missingPrices == 0;
+    }
+
+    // The index value from the last known prices
+    public BigDecimal getValue() {
+        if (!isComplete()) {
+            throw new IllegalStateException(missingPrices + " tickers of the index have no price yet");
+        }
+        return weightedSum;
+    }
+}
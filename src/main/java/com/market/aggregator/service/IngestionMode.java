@@ -0,0 +1,16 @@
+package com.market.aggregator.service;
+
+// This enum is used to select how the parsed trades are handed over to the aggregator manager.
+public enum IngestionMode {
+    // Parse the whole log into a list, then record every trade in its own task on the thread pool.
+    FAN_OUT,
+    // Record every trade as soon as it is parsed, the list of trades is never built.
+    STREAMING,
+    // Route the parsed trades in batches to one worker per ticker partition, each record has a single writer.
+    BATCHED,
+    // Hand the parsed trades to one worker per ticker partition through a bounded ring of reusable events, the parser
+    // waits when the workers fall a whole ring behind.
+    RING_BUFFER,
+    // Split the log file into newline-aligned byte ranges that are parsed and aggregated in parallel, then merged.
+    PARALLEL_CHUNKED
+}
@@ -0,0 +1,170 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.IntradayIndexPoint;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static com.market.aggregator.domain.FixedPointCells.toEpochSecond;
+import static com.market.aggregator.domain.FixedPointCells.toLocalDateTime;
+
+// This class is used to aggregate trades into intervals of a fixed length (e.g. every minute) instead of days.
+// Every interval only keeps the last trade price of the tickers traded in it. The intraday index series is built
+// by applying the intervals in time order to an IncrementalMarketIndex, so a point only costs the tickers traded in
+// its interval and the trades are never scanned again, even with tens of thousands of intervals per day.
+public class IntradayIndexAggregator implements Consumer<Trade> {
+    private static final long SECONDS_PER_DAY = Duration.ofDays(1).getSeconds();
+
+    private final long intervalSeconds;
+    private final TickerSymbolTable symbols;
+    // Intervals by number since the epoch, only the intervals with trades are created
+    private final Map<Long, Interval> intervals = new HashMap<>();
+    // Most trades fall in the interval of the previous trade
+    private long lastIntervalNumber = Long.MIN_VALUE;
+    private Interval lastInterval;
+
+    public IntradayIndexAggregator(Duration interval, TickerSymbolTable symbols) {
+        validateInterval(interval);
+        this.intervalSeconds = interval.getSeconds();
+        this.symbols = symbols;
+    }
+
+    // Throws if the length cannot be used for the intervals, so that a configuration can be checked before any trade is read.
+    // The intervals must not cross midnight, so that every interval belongs to one day.
+    public static void validateInterval(Duration interval) {
+        if (interval.isNegative() || interval.isZero() || interval.getNano() != 0 || SECONDS_PER_DAY % interval.getSeconds() != 0) {
+            throw new IllegalArgumentException("Intraday interval must be a whole number of seconds that divides a day: " + interval);
+        }
+    }
+
+    // Keeps the price of the trade if it is the latest trade of its ticker in its interval.
+    // Same rule as AggregationRecord: the first trade read wins when the timestamps are equal.
+    public void recordTrade(Trade trade) {
+        long epochSecond = toEpochSecond(trade.getTimestamp());
+        intervalOf(Math.floorDiv(epochSecond, intervalSeconds)).record(symbols.idOf(trade), epochSecond, trade.getPrice());
+    }
+
+    @Override
+    public void accept(Trade trade) {
+        recordTrade(trade);
+    }
+
+    // Merges the intervals of an aggregator built from trades that come later in the log
+    public void merge(IntradayIndexAggregator other) {
+        if (other.intervalSeconds != intervalSeconds) {
+            throw new IllegalArgumentException("Trying to merge intervals of " + other.intervalSeconds + "s with intervals of " + intervalSeconds + "s");
+        }
+        for (Map.Entry<Long, Interval> entry : other.intervals.entrySet()) {
+            Interval interval = intervalOf(entry.getKey());
+            Interval otherInterval = entry.getValue();
+            for (int slot = 0; slot < otherInterval.tickerIds.length; slot++) {
+                if (otherInterval.tickerIds[slot] >= 0) {
+                    interval.record(otherInterval.tickerIds[slot], otherInterval.closeTimes[slot], otherInterval.closePrices[slot]);
+                }
+            }
+        }
+    }
+
+    // Builds the index at the end of every interval, from the first to the last interval with trades of each day.
+    // The intervals of a day without trades keep the value of the interval before them.
+    public List<IntradayIndexPoint> indexSeries(IncrementalMarketIndex marketIndex) {
+        long[] intervalNumbers = intervals.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        List<IntradayIndexPoint> series = new ArrayList<>();
+        for (int i = 0; i < intervalNumbers.length; i++) {
+            long intervalNumber = intervalNumbers[i];
+            intervals.get(intervalNumber).applyTo(marketIndex);
+            BigDecimal value = marketIndex.isComplete() ? marketIndex.getValue() : null;
+            long nextWithTrades = i + 1 < intervalNumbers.length ? intervalNumbers[i + 1] : intervalNumber + 1;
+            long day = dayOf(intervalNumber);
+            for (long number = intervalNumber; number < nextWithTrades && dayOf(number) == day; number++) {
+                series.add(new IntradayIndexPoint(toLocalDateTime(number * intervalSeconds), toLocalDateTime((number + 1) * intervalSeconds), value));
+            }
+        }
+        return series;
+    }
+
+    private Interval intervalOf(long intervalNumber) {
+        if (intervalNumber != lastIntervalNumber) {
+            lastInterval = intervals.computeIfAbsent(intervalNumber, k -> new Interval());
+            lastIntervalNumber = intervalNumber;
+        }
+        return lastInterval;
+    }
+
+    private long dayOf(long intervalNumber) {
+        return Math.floorDiv(intervalNumber * intervalSeconds, SECONDS_PER_DAY);
+    }
+
+    // The last trade of every ticker traded in an interval, in an open addressing table keyed by ticker id
+    private static final class Interval {
+        private int[] tickerIds = newTickerIds(8);
+        private long[] closeTimes = new long[8];
+        private BigDecimal[] closePrices = new BigDecimal[8];
+        private int size;
+
+        private void record(int tickerId, long epochSecond, BigDecimal price) {
+            int slot = slotOf(tickerIds, tickerId);
+            if (tickerIds[slot] < 0) {
+                tickerIds[slot] = tickerId;
+                closeTimes[slot] = epochSecond;
+                closePrices[slot] = price;
+                //Keep the table at most half full
+                if (++size * 2 > tickerIds.length) {
+                    resize();
+                }
+            } else if (epochSecond > closeTimes[slot]) {
+                closeTimes[slot] = epochSecond;
+                closePrices[slot] = price;
+            }
+        }
+
+        private void applyTo(IncrementalMarketIndex marketIndex) {
+            for (int slot = 0; slot < tickerIds.length; slot++) {
+                if (tickerIds[slot] >= 0) {
+                    marketIndex.updatePrice(tickerIds[slot], closePrices[slot]);
+                }
+            }
+        }
+
+        private void resize() {
+            int[] oldTickerIds = tickerIds;
+            long[] oldCloseTimes = closeTimes;
+            BigDecimal[] oldClosePrices = closePrices;
+            tickerIds = newTickerIds(oldTickerIds.length * 2);
+            closeTimes = new long[tickerIds.length];
+            closePrices = new BigDecimal[tickerIds.length];
+            for (int i = 0; i < oldTickerIds.length; i++) {
+                if (oldTickerIds[i] >= 0) {
+                    int slot = slotOf(tickerIds, oldTickerIds[i]);
+                    tickerIds[slot] = oldTickerIds[i];
+                    closeTimes[slot] = oldCloseTimes[i];
+                    closePrices[slot] = oldClosePrices[i];
+                }
+            }
+        }
+
+        // Slot of the ticker, or the empty slot where it goes
+        private static int slotOf(int[] tickerIds, int tickerId) {
+            int mask = tickerIds.length - 1;
+            int slot = (tickerId * 0x9E3779B9) >>> 16 & mask;
+            while (tickerIds[slot] >= 0 && tickerIds[slot] != tickerId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int[] newTickerIds(int capacity) {
+            int[] tickerIds = new int[capacity];
+            Arrays.fill(tickerIds, -1);
+            return tickerIds;
+        }
+    }
+}
@@ -1,89 +1,729 @@
 package com.market.aggregator.service;
 
+import com.market.aggregator.MarketAggregatorProperties;
 import com.market.aggregator.domain.AggregationRecord;
-import com.market.aggregator.infrastructure.FileMarketWeightsParser;
+import com.market.aggregator.domain.IntradayIndexPoint;
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.infrastructure.ColumnarExportWriter;
 import com.market.aggregator.infrastructure.FileTradeParser;
+import com.market.aggregator.infrastructure.MappedTradeParser;
+import com.market.aggregator.infrastructure.MarketWeightsCache;
+import com.market.aggregator.infrastructure.RejectFile;
+import com.market.aggregator.infrastructure.RejectedLine;
+import com.market.aggregator.infrastructure.TradeLogFollower;
+import com.market.aggregator.infrastructure.TradeLogIndex;
+import com.market.aggregator.metrics.MetricsRegistry;
+import com.market.aggregator.metrics.TradeMeter;
 import com.market.aggregator.printer.AggregationPrinter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-// FUTURE IMPROVEMENT:
-// To enhance performance, we can consider reading and processing the data in batches
-// Currently, this is not implemented.
-
 //This class is responsible for processing trades and calculating market indices.
 @Service
+@Slf4j
 public class MarketAggregatorService {
+    // Number of chunks per thread when a log is parsed in parallel, more chunks than threads balance the load
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Number of trades handed over at once to a worker in batched mode, and read before freeing them in ring buffer mode
+    private static final int BATCH_SIZE = 1024;
+    // Bytes of the log read between two checks of the snapshot interval
+    private static final long REPLAY_SEGMENT_BYTES = 64L * 1024 * 1024;
+
     private final FileTradeParser tradeParser;
-    private final FileMarketWeightsParser weightsParser;
+    private final MappedTradeParser mappedTradeParser;
+    // The market weights are only parsed again when they changed since the previous run
+    private final MarketWeightsCache weightsCache;
     private final MarketIndexCalculator marketIndexCalculator;
     private final ITickerAggregatorManager tickerAggregatorManager;
     private final AggregationPrinter printer = new AggregationPrinter();
+    private final TickerSymbolTable symbols;
+    private final MetricsRegistry metrics;
+    // Length of the intervals of the intraday index, zero when only the daily index is reported
+    private final Duration intradayInterval;
+    // File the reported days are exported to in the binary columnar format, null when they are only printed
+    private final Path exportFile;
+    // Saves and restores the aggregations of a log file, null when every run reads the whole log
+    private final AggregationSnapshotStore snapshotStore;
+    private final Duration snapshotInterval;
+    // When the parsing is lenient, the malformed lines are skipped and written to the reject file instead of stopping
+    // the run. The reject file is null when they are only counted.
+    private final boolean lenientParsing;
+    private final Path rejectFile;
+    // Number of log files read at the same time when several logs are ingested together, zero for one per thread
+    private final int maxConcurrentFiles;
+    // Events of the ring between the parser and the workers in ring buffer mode, and how they wait for each other
+    private final int ringBufferSize;
+    private final WaitStrategy waitStrategy;
 
-    // Thread pool for processing trades concurrently
-    private final ExecutorService executorService = Executors.newFixedThreadPool(
-            Runtime.getRuntime().availableProcessors(),
-            r -> {
-                Thread t = new Thread(r);
-                t.setDaemon(true);
-                return t;
-            }
-    );
+    // Bounded pool of platform threads for the CPU-bound aggregation, one thread per core unless configured
+    private final int parallelism;
+    private final ExecutorService executorService;
+    // Threads that read and parse the files when several logs are ingested together, the aggregation pool by default
+    private final ThreadMode readThreads;
+    private final ExecutorService readExecutor;
 
-    //We instantiate the class with the necessary dependencies
+    //We instantiate the class with the necessary dependencies, the settings of the application and its threads
     public MarketAggregatorService(FileTradeParser tradeParser,
-                                   FileMarketWeightsParser weightsParser,
+                                   MappedTradeParser mappedTradeParser,
+                                   MarketWeightsCache weightsCache,
                                    MarketIndexCalculator marketIndexCalculator,
-                                   TickerAggregatorManager tickerAggregatorManager) {
+                                   ITickerAggregatorManager tickerAggregatorManager,
+                                   TickerSymbolTable symbols,
+                                   MetricsRegistry metrics,
+                                   MarketAggregatorProperties properties,
+                                   AggregationExecutors executors) {
         this.tradeParser = tradeParser;
+        this.symbols = symbols;
+        this.metrics = metrics;
+        this.mappedTradeParser = mappedTradeParser;
         this.tickerAggregatorManager = tickerAggregatorManager;
-        this.weightsParser = weightsParser;
+        this.weightsCache = weightsCache;
         this.marketIndexCalculator = marketIndexCalculator;
+        this.intradayInterval = properties.intradayInterval();
+        this.exportFile = properties.exportFile();
+        // The next run restores the snapshot and only reads the lines appended since
+        this.snapshotStore = properties.snapshotFile() == null ? null : new AggregationSnapshotStore(properties.snapshotFile());
+        this.snapshotInterval = properties.snapshotInterval();
+        this.lenientParsing = properties.lenientParsing();
+        this.rejectFile = properties.rejectFile();
+        this.maxConcurrentFiles = properties.maxConcurrentFiles();
+        this.ringBufferSize = properties.ringBufferSize();
+        this.waitStrategy = properties.waitStrategy();
+        this.parallelism = executors.parallelism();
+        this.executorService = executors.aggregationPool();
+        this.readThreads = executors.readThreads();
+        this.readExecutor = executors.readExecutor();
+        metrics.gauge(MetricsRegistry.EXECUTOR_QUEUE, executors::queuedTasks);
     }
 
     public Map<String, AggregationRecord> getAggregationFor(LocalDate date) {
         return tickerAggregatorManager.getAggregationFor(date);
     }
 
+    // Aggregates the trades of one day of a log file, reading only the lines of that day.
+    // The aggregations loaded in the service are not changed.
+    public Map<String, AggregationRecord> getAggregationFor(Path tradesFile, LocalDate date) throws IOException {
+        return aggregateDays(tradesFile, date, date).getAggregationFor(date);
+    }
+
+    // Aggregates the trades of the days from one date to another, both included, of a log file. The byte ranges of
+    // those days are found in the day index kept next to the log, which is built or completed first when needed.
+    public TickerAggregatorManager aggregateDays(Path tradesFile, LocalDate from, LocalDate to) throws IOException {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException(String.format("The range of days starts after its end: %s - %s", from, to));
+        }
+        TradeLogIndex index = TradeLogIndex.of(mappedTradeParser, tradesFile);
+        TickerAggregatorManager aggregations = new TickerAggregatorManager(symbols);
+        Consumer<Trade> aggregation = TradeMeter.of(aggregations::recordTrade, metrics);
+        try (FileChannel channel = FileChannel.open(tradesFile, StandardOpenOption.READ)) {
+            // In log order, so that the first trade read still wins when timestamps are equal
+            for (MappedTradeParser.Chunk range : index.rangesFor(from, to)) {
+                mappedTradeParser.parseRange(channel, range.start(), range.end(), aggregation);
+            }
+        } finally {
+            TradeMeter.close(aggregation);
+        }
+        return aggregations;
+    }
+
     // Processes trades and calculates market indices
     public void processTrades(InputStream tradesFile, InputStream weightsFile) throws IOException {
+        processTrades(tradesFile, weightsFile, IngestionMode.FAN_OUT);
+    }
+
+    // Processes the trades with one task per trade
+    private void processTradesFanOut(InputStream tradesFile, InputStream weightsFile, RejectFile rejects) throws IOException {
         // 1. Parse the trades from the provided input stream
-        var trades = tradeParser.parseTrades(tradesFile);
+        List<Trade> trades = new ArrayList<>();
+        tradeParser.parseTrades(tradesFile, TradeMeter.parsing(trades::add, metrics), rejects);
 
-        // 2. Parse the market weights from the provided input stream
-        var marketWeights = weightsParser.parseMarketWeights(weightsFile);
+        // 2. Load the market weights from the provided input stream
+        var marketWeights = weightsCache.load(weightsFile);
 
-        // 3. Process the trades concurrently using a thread pool
-        List<CompletableFuture<Void>> futures = trades.stream()
-                .map(trade -> CompletableFuture.runAsync(() -> tickerAggregatorManager.recordTrade(trade), executorService))
-                .toList();
+        // 3. Bucket the trades by interval on this thread, the intraday index needs them in the order of the log
+        IntradayIndexAggregator intradayAggregator = newIntradayAggregator();
+        if (intradayAggregator != null) {
+            trades.forEach(intradayAggregator);
+        }
+
+        // 4. Process the trades concurrently using a thread pool
+        List<CompletableFuture<Void>> futures = new ArrayList<>(trades.size());
+        for (int i = 0; i < trades.size(); i++) {
+            futures.add(CompletableFuture.runAsync(TradeMeter.task(trades.get(i), i, tickerAggregatorManager::recordTrade, metrics), executorService));
+        }
 
-        // 4. Wait for all trade processing tasks to complete
+        // 5. Wait for all trade processing tasks to complete
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        metrics.counter(MetricsRegistry.AGGREGATED_TRADES).add(trades.size());
+
+        // 6. Print the aggregations and the market index for every day
+        reportAggregations(marketWeights, intradayAggregator);
+    }
+
+    // Processes trades with the given ingestion mode and calculates market indices
+    public void processTrades(InputStream tradesFile, InputStream weightsFile, IngestionMode ingestionMode) throws IOException {
+        // The reader of the stream numbers the lines itself, the log file is not needed to find them
+        try (RejectFile rejects = openRejects(null)) {
+            switch (ingestionMode) {
+                case FAN_OUT -> processTradesFanOut(tradesFile, weightsFile, rejects);
+                case STREAMING -> processTradesStreaming(tradesFile, weightsFile, rejects);
+                case BATCHED -> processTradesBatched(tradesFile, weightsFile, rejects);
+                case RING_BUFFER -> processTradesThroughRingBuffer(tradesFile, weightsFile, rejects);
+                case PARALLEL_CHUNKED -> {
+                    // A stream cannot be split into byte ranges, so it is read in one go
+                    log.warn("Parallel chunked ingestion needs a file, the stream is processed in streaming mode");
+                    processTradesStreaming(tradesFile, weightsFile, rejects);
+                }
+            }
+        }
+    }
+
+    // Processes the trades of a log file with the given ingestion mode and calculates market indices
+    public void processTrades(Path tradesFile, InputStream weightsFile, IngestionMode ingestionMode) throws IOException {
+        if (snapshotStore != null) {
+            // Only the end of the log is read, one line after the other
+            if (ingestionMode != IngestionMode.STREAMING) {
+                log.info("Snapshots are enabled, the log is processed in streaming mode instead of {}", ingestionMode);
+            }
+            try (RejectFile rejects = openRejects(tradesFile)) {
+                processTradesFromSnapshot(tradesFile, weightsFile, rejects);
+            }
+            return;
+        }
+        if (ingestionMode == IngestionMode.PARALLEL_CHUNKED) {
+            try (RejectFile rejects = openRejects(tradesFile)) {
+                processTradesInParallelChunks(tradesFile, weightsFile, rejects);
+            }
+            return;
+        }
+        try (InputStream tradesStream = Files.newInputStream(tradesFile)) {
+            processTrades(tradesStream, weightsFile, ingestionMode);
+        }
+    }
+
+    // Processes trades without materializing them: every parsed trade goes straight into the aggregator manager,
+    // so the memory used depends on the number of tickers and days and not on the number of trades.
+    private void processTradesStreaming(InputStream tradesFile, InputStream weightsFile, RejectFile rejects) throws IOException {
+        // 1. Load the market weights first, they are small and needed once the trades are aggregated
+        var marketWeights = weightsCache.load(weightsFile);
+
+        // 2. Record each trade on the parsing thread as soon as it is read
+        IntradayIndexAggregator intradayAggregator = newIntradayAggregator();
+        Consumer<Trade> aggregation = TradeMeter.of(alsoIntraday(tickerAggregatorManager::recordTrade, intradayAggregator), metrics);
+        try {
+            streamTrades(tradesFile, aggregation, rejects);
+        } finally {
+            TradeMeter.close(aggregation);
+        }
+
+        // 3. Print the aggregations and the market index for every day
+        reportAggregations(marketWeights, intradayAggregator);
+    }
+
+    // Streams the parsed trades to the consumer, the malformed lines go to the reject file when the parsing is lenient
+    private void streamTrades(InputStream tradesFile, Consumer<Trade> tradeConsumer, RejectFile rejects) throws IOException {
+        if (rejects == null) {
+            tradeParser.parseTrades(tradesFile, tradeConsumer);
+        } else {
+            tradeParser.parseTrades(tradesFile, tradeConsumer, rejects);
+        }
+    }
+
+    // Restores the last snapshot of the log and only parses the lines appended to the log since it was taken.
+    // Snapshots are saved while the log is read and once it has been read, so the next run starts from there.
+    private void processTradesFromSnapshot(Path tradesFile, InputStream weightsFile, RejectFile rejects) throws IOException {
+        // 1. Load the market weights
+        var marketWeights = weightsCache.load(weightsFile);
+
+        // 2. Restore the snapshot and read the rest of the log
+        IntradayIndexAggregator intradayAggregator = newIntradayAggregator();
+        try (TradeLogFollower follower = resume(tradesFile, rejects)) {
+            if (intradayAggregator != null && follower.getPosition() > 0) {
+                log.warn("The intraday index is not part of the snapshot, it only covers the trades read after it");
+            }
+            replay(follower, alsoIntraday(tickerAggregatorManager::recordTrade, intradayAggregator), new SnapshotSchedule(tradesFile, follower.getPosition()));
+        }
+
+        // 3. Print the aggregations and the market index for every day
+        reportAggregations(marketWeights, intradayAggregator);
+    }
+
+    // Opens the log where the last snapshot left it, once the aggregations of the snapshot are restored
+    private TradeLogFollower resume(Path tradesFile, RejectFile rejects) throws IOException {
+        long position = snapshotStore == null ? 0 : snapshotStore.restore(tickerAggregatorManager, tradesFile);
+        return new TradeLogFollower(mappedTradeParser, tradesFile, position, rejects);
+    }
+
+    // Returns the reject file of a run when the parsing is lenient, or null when a malformed line stops the run.
+    // The log file is needed to number the lines that the memory-mapped parser only knows by their offset.
+    private RejectFile openRejects(Path tradesFile) throws IOException {
+        return lenientParsing ? new RejectFile(rejectFile, tradesFile) : null;
+    }
+
+    // Reads the rest of the log a segment at a time, saving a snapshot when it is due and once the log is read
+    private void replay(TradeLogFollower follower, Consumer<Trade> tradeConsumer, SnapshotSchedule snapshots) throws IOException {
+        Consumer<Trade> aggregation = TradeMeter.of(tradeConsumer, metrics);
+        long position;
+        try {
+            do {
+                position = follower.getPosition();
+                follower.poll(aggregation, REPLAY_SEGMENT_BYTES);
+                snapshots.saveIfDue(follower.getPosition());
+            } while (follower.getPosition() != position);
+        } finally {
+            TradeMeter.close(aggregation);
+        }
+        snapshots.save(follower.getPosition());
+    }
+
+    // Saves a snapshot when the snapshot interval has passed since the last one, if the log was read further since then
+    private final class SnapshotSchedule {
+        private final Path tradesFile;
+        private long savedPosition;
+        private long savedAt = System.nanoTime();
+
+        private SnapshotSchedule(Path tradesFile, long restoredPosition) {
+            this.tradesFile = tradesFile;
+            this.savedPosition = restoredPosition;
+        }
+
+        private void saveIfDue(long position) throws IOException {
+            if (System.nanoTime() - savedAt >= snapshotInterval.toNanos()) {
+                save(position);
+            }
+        }
+
+        private void save(long position) throws IOException {
+            if (snapshotStore == null || position == savedPosition) {
+                return;
+            }
+            snapshotStore.save(tickerAggregatorManager, tradesFile, position);
+            savedPosition = position;
+            savedAt = System.nanoTime();
+        }
+    }
+
+    // Processes trades in batches routed by ticker: the parsing thread hands batches of trades to the worker that owns
+    // their ticker, so every aggregation record has a single writer and no task is created per trade.
+    private void processTradesBatched(InputStream tradesFile, InputStream weightsFile, RejectFile rejects) throws IOException {
+        // 1. Load the market weights
+        var marketWeights = weightsCache.load(weightsFile);
+
+        // 2. Route every parsed trade to the worker of its ticker
+        TickerPartitionedAggregator aggregator = new TickerPartitionedAggregator(executorService, parallelism, BATCH_SIZE, symbols, metrics);
+        IntradayIndexAggregator intradayAggregator = newIntradayAggregator();
+        // The workers count and time the aggregation of their trades, this thread only times the parsing
+        Consumer<Trade> handOver = TradeMeter.parsing(alsoIntraday(aggregator, intradayAggregator), metrics);
+        try (aggregator) {
+            streamTrades(tradesFile, handOver, rejects);
+        }
+
+        // 3. Merge the aggregations of the workers, their tickers do not overlap
+        mergePartialAggregations(aggregator.getPartialAggregations());
+
+        // 4. Print the aggregations and the market index for every day
+        reportAggregations(marketWeights, intradayAggregator);
+    }
+
+    // Processes trades like the batched mode, but hands them over to the workers through a bounded ring of events that
+    // are reused: the parser waits when the workers fall behind, so the memory used does not grow with the backlog.
+    private void processTradesThroughRingBuffer(InputStream tradesFile, InputStream weightsFile, RejectFile rejects) throws IOException {
+        // 1. Load the market weights
+        var marketWeights = weightsCache.load(weightsFile);
+
+        // 2. Publish every parsed trade to the worker of its ticker
+        RingBufferAggregator aggregator = new RingBufferAggregator(executorService, parallelism, ringBufferSize, waitStrategy, BATCH_SIZE,
+                symbols, metrics);
+        metrics.gauge(MetricsRegistry.RING_BUFFER_BACKLOG, aggregator::backlog);
+        IntradayIndexAggregator intradayAggregator = newIntradayAggregator();
+        Consumer<Trade> handOver = TradeMeter.parsing(alsoIntraday(aggregator, intradayAggregator), metrics);
+        try (aggregator) {
+            streamTrades(tradesFile, handOver, rejects);
+        }
+
+        // 3. Merge the aggregations of the workers, their tickers do not overlap
+        mergePartialAggregations(aggregator.getPartialAggregations());
+
+        // 4. Print the aggregations and the market index for every day
+        reportAggregations(marketWeights, intradayAggregator);
+    }
+
+    // Processes a log file by splitting it into newline-aligned byte ranges that are parsed and aggregated on all
+    // the threads of the pool at the same time. Each range is aggregated on its own and the partial aggregations
+    // are merged at the end, in the order of the ranges, so the result is the same as reading the file in one go.
+    private void processTradesInParallelChunks(Path tradesFile, InputStream weightsFile, RejectFile rejects) throws IOException {
+        // 1. Load the market weights
+        var marketWeights = weightsCache.load(weightsFile);
+
+        IntradayIndexAggregator intradayAggregator = newIntradayAggregator();
+        try (FileChannel channel = FileChannel.open(tradesFile, StandardOpenOption.READ)) {
+            // 2. Split the log into byte ranges that only hold complete lines
+            List<MappedTradeParser.Chunk> chunks = mappedTradeParser.splitIntoChunks(channel, parallelism * CHUNKS_PER_THREAD);
+
+            // 3. Parse and aggregate every range into its own partial aggregation
+            List<CompletableFuture<ChunkAggregation>> futures = chunks.stream()
+                    .map(chunk -> CompletableFuture.supplyAsync(() -> aggregateChunk(channel, chunk, rejects != null, null), executorService))
+                    .toList();
+            List<TickerAggregatorManager> partials = new ArrayList<>(futures.size());
+            for (CompletableFuture<ChunkAggregation> future : futures) {
+                ChunkAggregation chunkAggregation = join(future);
+                partials.add(chunkAggregation.aggregations());
+                if (intradayAggregator != null) {
+                    intradayAggregator.merge(chunkAggregation.intradayAggregations());
+                }
+                // The malformed lines are rejected in the order of the log too
+                if (rejects != null) {
+                    chunkAggregation.rejectedLines().forEach(rejects);
+                }
+            }
+
+            // 4. Merge the partial aggregations in the order of the ranges
+            mergePartialAggregations(partials);
+        }
+
+        // 5. Print the aggregations and the market index for every day
+        reportAggregations(marketWeights, intradayAggregator);
+    }
 
-        // 5. Retrieve all dates for which trades have been recorded
+    // Processes several log files as one market log, e.g. one log per venue and per day, and calculates market indices.
+    // Every file is parsed and aggregated on its own thread, with at most maxConcurrentFiles of them read at the same
+    // time, one per aggregation thread when it is not set. The partial aggregations are merged in the order of the list
+    // as the files are done: the open and close of a ticker come from its earliest and latest trades whatever their
+    // file, the first file winning a tie.
+    public void processTrades(List<Path> tradesFiles, InputStream weightsFile) throws IOException {
+        if (snapshotStore != null) {
+            log.warn("Snapshots are only taken of a single log, the {} logs are read from the start", tradesFiles.size());
+        }
+        // 1. Load the market weights
+        var marketWeights = weightsCache.load(weightsFile);
+
+        // 2. Parse and aggregate every file into its own partial aggregation
+        IntradayIndexAggregator intradayAggregator = newIntradayAggregator();
+        // The readers are bounded whatever their threads, every one of them holds a read buffer and a partial aggregation
+        Semaphore readers = new Semaphore(maxConcurrentFiles > 0 ? maxConcurrentFiles : parallelism);
+        try (RejectFile rejects = openRejects(null)) {
+            List<CompletableFuture<ChunkAggregation>> futures = tradesFiles.stream()
+                    .map(file -> CompletableFuture.supplyAsync(() -> aggregateFile(file, readers, rejects != null), readExecutor))
+                    .toList();
+
+            // 3. Merge the partial aggregations in the order of the files, each one is dropped once merged
+            for (int i = 0; i < futures.size(); i++) {
+                ChunkAggregation fileAggregation = join(futures.get(i));
+                mergePartialAggregations(List.of(fileAggregation.aggregations()));
+                if (intradayAggregator != null) {
+                    intradayAggregator.merge(fileAggregation.intradayAggregations());
+                }
+                if (rejects != null) {
+                    rejects.startLog(tradesFiles.get(i));
+                    fileAggregation.rejectedLines().forEach(rejects);
+                }
+            }
+        }
+
+        // 4. Print the aggregations and the market index for every day
+        reportAggregations(marketWeights, intradayAggregator);
+    }
+
+    // Parses a whole log file into a partial aggregation, once one of the readers is free. The partial aggregation is
+    // only used by one thread at a time, the aggregations shared by the files are merged by the calling thread.
+    // A virtual read thread only does the blocking reads, the trades are parsed and aggregated on the aggregation pool.
+    private ChunkAggregation aggregateFile(Path tradesFile, Semaphore readers, boolean lenient) {
+        try {
+            readers.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to read " + tradesFile, e);
+        }
+        try (FileChannel channel = FileChannel.open(tradesFile, StandardOpenOption.READ)) {
+            return aggregateChunk(channel, new MappedTradeParser.Chunk(0, channel.size()), lenient,
+                    readThreads == ThreadMode.VIRTUAL ? executorService : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            readers.release();
+        }
+    }
+
+    // Follows a log file that is still being written to, until the thread is interrupted. What is already in the log is
+    // aggregated and printed first, then the log is polled: only the lines appended since the previous poll are parsed,
+    // and the days they changed are printed again with their market index.
+    public void followTrades(Path tradesFile, InputStream weightsFile, Duration pollInterval) throws IOException {
+        followTrades(tradesFile, weightsCache.load(weightsFile), null, pollInterval);
+    }
+
+    // Follows a log file like followTrades with a stream of weights, but the weights file is checked at every poll too:
+    // when its content changed, the market index of every day is calculated again with the new weights and the days
+    // whose index changed are printed again.
+    public void followTrades(Path tradesFile, Path weightsFile, Duration pollInterval) throws IOException {
+        followTrades(tradesFile, weightsCache.load(weightsFile), weightsFile, pollInterval);
+    }
+
+    // The weights file is null when the weights cannot change
+    private void followTrades(Path tradesFile, MarketWeights marketWeights, Path weightsFile, Duration pollInterval) throws IOException {
+        try (RejectFile rejects = openRejects(tradesFile);
+             TradeLogFollower follower = resume(tradesFile, rejects)) {
+            // 1. Aggregate and print what is already in the log, after the last snapshot if there is one
+            SnapshotSchedule snapshots = new SnapshotSchedule(tradesFile, follower.getPosition());
+            replay(follower, tickerAggregatorManager::recordTrade, snapshots);
+            FollowedIndex followedIndex = new FollowedIndex(marketWeights);
+            publishDays(new TreeSet<>(tickerAggregatorManager.getAggregationDates()), followedIndex);
+
+            // 2. Poll the log for new lines
+            SortedSet<LocalDate> updatedDates = new TreeSet<>();
+            Consumer<Trade> aggregation = TradeMeter.of(trade -> {
+                tickerAggregatorManager.recordTrade(trade);
+                updatedDates.add(trade.getTimestamp().toLocalDate());
+            }, metrics);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                updatedDates.clear();
+                follower.poll(aggregation);
+                TradeMeter.close(aggregation);
+                if (rejects != null) {
+                    rejects.flush();
+                }
+                if (!updatedDates.isEmpty()) {
+                    publishDays(updatedDates, followedIndex);
+                }
+                if (weightsFile != null) {
+                    reloadWeights(weightsFile, followedIndex);
+                }
+                snapshots.saveIfDue(follower.getPosition());
+            }
+            snapshots.save(follower.getPosition());
+            log.info("Stopped following {} at byte {}", tradesFile, follower.getPosition());
+        }
+    }
+
+    // Prints the given days with their market index. The index is brought up to date with the close prices of the days,
+    // so the days before them are not applied again, unless a late trade changed a day that was already applied.
+    // The later days are printed again too when their index changed.
+    private void publishDays(SortedSet<LocalDate> updatedDates, FollowedIndex followedIndex) throws IOException {
+        if (updatedDates.isEmpty()) {
+            return;
+        }
+        publishDays(updatedDates.first(), updatedDates, followedIndex);
+    }
+
+    // Calculates the index again from the given day on, the days of the updated set are printed even when their index
+    // did not change
+    private void publishDays(LocalDate firstUpdatedDate, Set<LocalDate> updatedDates, FollowedIndex followedIndex) throws IOException {
+        followedIndex.addDays(updatedDates);
+        SortedSet<LocalDate> dates = followedIndex.dates;
+        List<String> allTickers = followedIndex.allTickers;
+        if (followedIndex.lastAppliedDate != null && firstUpdatedDate.isBefore(followedIndex.lastAppliedDate)) {
+            // The close prices of the later days may now be wrong, the index is built again from the first day
+            followedIndex.reset();
+            for (LocalDate date : dates.headSet(firstUpdatedDate)) {
+                followedIndex.apply(date);
+            }
+        }
+        for (LocalDate date : dates.tailSet(firstUpdatedDate)) {
+            BigDecimal indexValue = followedIndex.apply(date);
+            BigDecimal publishedValue = followedIndex.publishedValues.put(date, indexValue);
+            if (updatedDates.contains(date) || !sameValue(indexValue, publishedValue)) {
+                printer.printDayAggregations(date, allTickers, tickerAggregatorManager.getAggregationFor(date));
+                printer.printMarketIndex(date, indexValue);
+            }
+        }
+        printer.flush();
+    }
+
+    // Loads the weights file again if it was modified. When its content changed, the index is calculated again from the
+    // first day and only the days whose index changed are printed again. A file that cannot be read or parsed, e.g. one
+    // that is still being written, does not stop the follow: the index keeps the weights it has until the file is valid.
+    private void reloadWeights(Path weightsFile, FollowedIndex followedIndex) throws IOException {
+        MarketWeights weights;
+        try {
+            weights = weightsCache.load(weightsFile);
+        } catch (IOException | IllegalArgumentException e) {
+            // The same failure is only logged once, the file is checked again at every poll
+            if (!e.toString().equals(followedIndex.weightsFailure)) {
+                log.warn("The market weights of {} cannot be loaded, the current weights are kept: {}", weightsFile, e.getMessage());
+                followedIndex.weightsFailure = e.toString();
+            }
+            return;
+        }
+        followedIndex.weightsFailure = null;
+        if (weights == followedIndex.weights) {
+            return;
+        }
+        log.info("The market weights of {} changed, the market index is calculated again", weightsFile);
+        followedIndex.weights = weights;
+        followedIndex.reset();
+        if (!followedIndex.dates.isEmpty()) {
+            publishDays(followedIndex.dates.first(), Set.of(), followedIndex);
+        }
+    }
+
+    // The market index of a followed log, with the last day whose close prices were applied to it. The days and the
+    // tickers of the log are kept too, so a poll only looks at the days it updated.
+    private final class FollowedIndex {
+        private final SortedSet<LocalDate> dates = new TreeSet<>();
+        private final SortedSet<String> tickers = new TreeSet<>();
+        // The tickers in the order they are printed, built again only when a new ticker is traded
+        private List<String> allTickers = List.of();
+        private MarketWeights weights;
+        // Last failure to load the weights file, null once it was loaded
+        private String weightsFailure;
+        // Index printed for every day
+        private final Map<LocalDate, BigDecimal> publishedValues = new HashMap<>();
+        private IncrementalMarketIndex marketIndex;
+        private LocalDate lastAppliedDate;
+        private BigDecimal lastIndexValue;
+
+        private FollowedIndex(MarketWeights weights) {
+            this.weights = weights;
+            reset();
+        }
+
+        private void addDays(Set<LocalDate> updatedDates) {
+            boolean newTicker = false;
+            for (LocalDate date : updatedDates) {
+                dates.add(date);
+                newTicker |= tickers.addAll(tickerAggregatorManager.getTickersFor(date));
+            }
+            if (newTicker) {
+                allTickers = List.copyOf(tickers);
+            }
+        }
+
+        private void reset() {
+            marketIndex = marketIndexCalculator.incrementalIndex(weights);
+            lastAppliedDate = null;
+            lastIndexValue = null;
+        }
+
+        // Applies the close prices of the day and returns its index, or the last known one when the index is incomplete.
+        // A day can be applied again, its close prices replace the ones applied before.
+        private BigDecimal apply(LocalDate date) {
+            tickerAggregatorManager.forEachClosePrice(date, marketIndex::updatePrice);
+            if (marketIndex.isComplete()) {
+                lastIndexValue = marketIndex.getValue();
+            }
+            lastAppliedDate = date;
+            return lastIndexValue;
+        }
+    }
+
+    private static boolean sameValue(BigDecimal value, BigDecimal other) {
+        return value == null ? other == null : other != null && value.compareTo(other) == 0;
+    }
+
+    // Parses one byte range of the log into a partial aggregation that is only used by one thread at a time. When a
+    // parsing pool is given, the range is read with blocking reads on the current thread and every buffer read is parsed
+    // and aggregated on the pool. Otherwise the range is mapped and parsed on the current thread.
+    private ChunkAggregation aggregateChunk(FileChannel channel, MappedTradeParser.Chunk chunk, boolean lenient, Executor parsingPool) {
+        TickerAggregatorManager partial = new TickerAggregatorManager(symbols);
+        List<RejectedLine> rejectedLines = lenient ? new ArrayList<>() : null;
+        IntradayIndexAggregator intradayPartial = newIntradayAggregator();
+        // Every chunk is parsed by one thread at a time, so it gets a meter of its own
+        Consumer<Trade> aggregation = TradeMeter.of(alsoIntraday(partial::recordTrade, intradayPartial), metrics);
+        try {
+            if (parsingPool != null) {
+                mappedTradeParser.readRange(channel, chunk.start(), chunk.end(), aggregation, lenient ? rejectedLines::add : null, parsingPool);
+            } else {
+                mappedTradeParser.parseRange(channel, chunk.start(), chunk.end(), aggregation, lenient ? rejectedLines::add : null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            TradeMeter.close(aggregation);
+        }
+        return new ChunkAggregation(partial, intradayPartial, rejectedLines);
+    }
+
+    // The partial aggregations of one byte range of the log, the intraday ones are null when they are turned off.
+    // The malformed lines of the range are kept when the parsing is lenient, null otherwise.
+    private record ChunkAggregation(TickerAggregatorManager aggregations, IntradayIndexAggregator intradayAggregations,
+                                    List<RejectedLine> rejectedLines) {
+    }
+
+    // Returns a new intraday aggregator, or null when the intraday index is turned off
+    private IntradayIndexAggregator newIntradayAggregator() {
+        return intradayInterval.isZero() ? null : new IntradayIndexAggregator(intradayInterval, symbols);
+    }
+
+    // Hands every trade to the intraday aggregator too, when there is one
+    private static Consumer<Trade> alsoIntraday(Consumer<Trade> consumer, IntradayIndexAggregator intradayAggregator) {
+        return intradayAggregator == null ? consumer : consumer.andThen(intradayAggregator);
+    }
+
+    // Merges the partial aggregations into the aggregator manager, in the order of the list
+    private void mergePartialAggregations(List<TickerAggregatorManager> partials) {
+        for (TickerAggregatorManager partial : partials) {
+            for (LocalDate date : partial.getAggregationDates()) {
+                for (AggregationRecord record : partial.getAggregationFor(date).values()) {
+                    tickerAggregatorManager.mergeAggregation(date, record);
+                }
+            }
+        }
+    }
+
+    // Waits for a task and rethrows its failure as it was thrown by the task
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    // Prints the aggregation of every recorded day together with its market index
+    private void reportAggregations(MarketWeights weights, IntradayIndexAggregator intradayAggregator) throws IOException {
+        // 1. Retrieve all dates for which trades have been recorded
         SortedSet<LocalDate> dates = new TreeSet<>(tickerAggregatorManager.getAggregationDates());
 
-        // 6. Build a set of all tickers that have been traded
-        Set<String> allTickers = buildAllTickers(dates);
+        // 2. Build the sorted list of all tickers that have been traded, it is sorted once for all the days
+        List<String> allTickers = buildAllTickers(dates);
+
+        // 3. Start the market index, it is updated with the close prices of every day
+        IncrementalMarketIndex marketIndex = marketIndexCalculator.incrementalIndex(weights);
 
-        // 7. Initialize the last known weighted prices for each ticker
-        Map<String, BigDecimal> lastWeightedPrices = initializeLastWeightedPrices(marketWeights);
+        // 4. Build the intraday index, with an index of its own, and group its points by day
+        Map<LocalDate, List<IntradayIndexPoint>> intradayIndex = intradayAggregator == null ? Map.of()
+                : intradayAggregator.indexSeries(marketIndexCalculator.incrementalIndex(weights)).stream()
+                .collect(Collectors.groupingBy(point -> point.start().toLocalDate()));
 
         BigDecimal lastIndexValue = null;
 
-        // 8. Process each day and calculate the market index
-        for (LocalDate date : dates) {
-            lastIndexValue = processDay(date, marketWeights, lastWeightedPrices, lastIndexValue, allTickers);
+        // 5. Process each day and calculate the market index
+        try (ColumnarExportWriter exportWriter = exportFile == null ? null : new ColumnarExportWriter(exportFile)) {
+            for (LocalDate date : dates) {
+                lastIndexValue = processDay(date, marketIndex, lastIndexValue, allTickers, intradayIndex.getOrDefault(date, List.of()), exportWriter);
+            }
         }
+        printer.flush();
     }
 
     // Returns the first aggregation date
@@ -91,71 +731,58 @@ public class MarketAggregatorService {
         return tickerAggregatorManager.getAggregationDates();
     }
 
-    // Builds a set of all tickers that have been traded across all dates.
-    private Set<String> buildAllTickers(SortedSet<LocalDate> dates) {
+    // Builds the sorted list of all tickers that have been traded across all dates, the records are only built to print them.
+    private List<String> buildAllTickers(SortedSet<LocalDate> dates) {
         return dates.stream()
-                //Get the aggregation for each date
-                .flatMap(date -> tickerAggregatorManager.getAggregationFor(date).keySet().stream())
-                //Collect all tickers into a set
-                .collect(Collectors.toSet());
-    }
-
-    // Initializes the last known weighted prices for each ticker
-    private Map<String, BigDecimal> initializeLastWeightedPrices(Map<String, BigDecimal> marketWeights) {
-        Map<String, BigDecimal> lastPrices = new HashMap<>();
-        for (String ticker : marketWeights.keySet()) {
-            lastPrices.put(ticker, null);
-        }
-        return lastPrices;
+                //Get the tickers of each date
+                .flatMap(date -> tickerAggregatorManager.getTickersFor(date).stream())
+                //Keep every ticker once, in the order they are printed
+                .distinct()
+                .sorted()
+                .toList();
     }
 
     // Processes a single day of trades and calculates the market index
     private BigDecimal processDay(LocalDate date,
-                                  Map<String, BigDecimal> marketWeights,
-                                  Map<String, BigDecimal> lastWeightedPrices,
+                                  IncrementalMarketIndex marketIndex,
                                   BigDecimal lastIndexValue,
-                                  Set<String> allTickers) throws IOException {
+                                  List<String> allTickers,
+                                  List<IntradayIndexPoint> intradayIndex,
+                                  ColumnarExportWriter exportWriter) throws IOException {
         // Get the aggregation for the current day
         var dayAggregation = tickerAggregatorManager.getAggregationFor(date);
         // Print the daily aggregations
+        long start = System.nanoTime();
         printer.printDayAggregations(date, allTickers, dayAggregation);
+        long printNanos = System.nanoTime() - start;
 
-        // Initialize variables for index calculation
-        boolean completeForIndex = true;
-        Map<String, BigDecimal> weightedPricesForToday = new HashMap<>();
-
-        // Update last weighted prices and prepare today's weighted prices
-        for (String ticker : marketWeights.keySet()) {
-            // Get the aggregation record for the current ticker
-            AggregationRecord record = dayAggregation.get(ticker);
-
-            // Update last weighted prices and prepare today's weighted prices
-            if (record != null && record.getClosePrice() != null) {
-                // Update the last known price for the ticker
-                lastWeightedPrices.put(ticker, record.getClosePrice());
-                weightedPricesForToday.put(ticker, record.getClosePrice());
-            } else if (lastWeightedPrices.get(ticker) != null) {
-                // Use the last known price if today's price is not available
-                weightedPricesForToday.put(ticker, lastWeightedPrices.get(ticker));
-            } else {
-                // If no price is available for the ticker, mark as incomplete
-                completeForIndex = false;
-                weightedPricesForToday.put(ticker, null);
-            }
-        }
+        // Update the index with the close prices of the day, only the prices that changed are applied.
+        // The tickers that were not traded that day keep their last known price.
+        tickerAggregatorManager.forEachClosePrice(date, marketIndex::updatePrice);
 
         // Calculate the market index
         BigDecimal indexValue;
-        // If the index is complete, calculate the index value
-        if (completeForIndex) {
-            indexValue = marketIndexCalculator.calculate(weightedPricesForToday, marketWeights);
+        // If every ticker of the index has a price, take the index value
+        if (marketIndex.isComplete()) {
+            indexValue = marketIndex.getValue();
             lastIndexValue = indexValue;
         } else {
             // If the index is incomplete, use the last known index value
             indexValue = lastIndexValue;
         }
+        metrics.histogram(MetricsRegistry.INDEX_LATENCY).record(System.nanoTime() - start - printNanos);
+        start = System.nanoTime();
+        // Print the intraday index of the day, if any, before the index of the whole day
+        for (IntradayIndexPoint point : intradayIndex) {
+            printer.printIntradayIndex(point);
+        }
         // Print the market index for the day
         printer.printMarketIndex(date, indexValue);
+        metrics.histogram(MetricsRegistry.PRINT_LATENCY).record(printNanos + System.nanoTime() - start);
+        // Export the day with the same index value, if an export file is configured
+        if (exportWriter != null) {
+            exportWriter.writeDay(date, dayAggregation, indexValue);
+        }
         return lastIndexValue;
     }
-}
\ No newline at end of file
+}
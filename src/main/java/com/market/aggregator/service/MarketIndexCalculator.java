@@ -1,5 +1,7 @@
 package com.market.aggregator.service;
 
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -10,6 +12,11 @@ import java.util.Map;
 @Component
 @Slf4j
 public class MarketIndexCalculator {
+    private final TickerSymbolTable symbols;
+
+    public MarketIndexCalculator(TickerSymbolTable symbols) {
+        this.symbols = symbols;
+    }
 
     public BigDecimal calculate(Map<String, BigDecimal> weightedPrices, Map<String, BigDecimal> marketWeights) {
         // Start with an index value of zero.
@@ -37,4 +44,37 @@ public class MarketIndexCalculator {
         }
         return indexValue;
     }
-}
\ No newline at end of file
+
+    // Same calculation with the prices indexed by ticker id, as held by the aggregation.
+    public BigDecimal calculateIndex(BigDecimal[] pricesById, MarketWeights marketWeights) {
+        BigDecimal indexValue = BigDecimal.ZERO;
+
+        // Loop over the id of each ticker of the index.
+        for (int i = 0; i < marketWeights.size(); i++) {
+            int tickerId = marketWeights.constituentId(i);
+            BigDecimal weight = marketWeights.weightOf(tickerId);
+            BigDecimal price = tickerId < pricesById.length ? pricesById[tickerId] : null;
+
+            if (price == null) {
+                throw new IllegalArgumentException("Price for ticker " + symbols.tickerOf(tickerId) + " is null during index calculation");
+            }
+            if (weight == null) {
+                throw new IllegalArgumentException("Market weight for ticker " + symbols.tickerOf(tickerId) + " is null during index calculation");
+            }
+
+            indexValue = indexValue.add(price.multiply(weight));
+        }
+        return indexValue;
+    }
+
+    // Starts an index that is updated one price at a time, every weight must be set.
+    public IncrementalMarketIndex incrementalIndex(MarketWeights marketWeights) {
+        for (int i = 0; i < marketWeights.size(); i++) {
+            int tickerId = marketWeights.constituentId(i);
+            if (marketWeights.weightOf(tickerId) == null) {
+                throw new IllegalArgumentException("Market weight for ticker " + symbols.tickerOf(tickerId) + " is null during index calculation");
+            }
+        }
+        return new IncrementalMarketIndex(marketWeights);
+    }
+}
@@ -0,0 +1,109 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.MarketAggregatorProperties;
+import com.market.aggregator.domain.InstrumentTickSizes;
+import com.market.aggregator.domain.TickerSymbolTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// This class is used to store the aggregations outside of the Java heap, in direct ByteBuffers.
+// Every cell is a fixed 64 byte record: the state in the first byte, then the seven fields as longs:
+// open time, close time, open, close, highest and lowest price, volume.
+// The records live in segments of 1 MB, adding days only adds segments, so the heap does not grow with the
+// history: it only holds the segment references, the index of the days and the tick size of every ticker.
+@Service
+@ConditionalOnProperty(name = "market.aggregator.store", havingValue = "OFF_HEAP")
+public class OffHeapTickerAggregatorManager extends FixedPointTickerAggregatorManager {
+    static final int RECORD_SIZE = 64;
+    // Offset of the first field in a record, the fields follow each other
+    private static final int FIELDS_OFFSET = 8;
+    // Segments of 1 MB, a whole number of records so that no record crosses two segments
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private ByteBuffer[] segments = new ByteBuffer[0];
+
+    // With the default tick size for every instrument
+    public OffHeapTickerAggregatorManager(TickerSymbolTable symbols) {
+        this(symbols, InstrumentTickSizes.defaults());
+    }
+
+    @Autowired
+    public OffHeapTickerAggregatorManager(TickerSymbolTable symbols, MarketAggregatorProperties properties) {
+        this(symbols, properties.instrumentTickSizes());
+    }
+
+    public OffHeapTickerAggregatorManager(TickerSymbolTable symbols, InstrumentTickSizes tickSizes) {
+        super(symbols, tickSizes);
+        segments = allocate(segments, (long) INITIAL_DAY_CAPACITY * INITIAL_TICKER_CAPACITY);
+    }
+
+    // Bytes of direct memory used by the records
+    public synchronized long getOffHeapBytes() {
+        return (long) segments.length * SEGMENT_SIZE;
+    }
+
+    @Override
+    protected byte state(int cell) {
+        long address = (long) cell * RECORD_SIZE;
+        return segments[(int) (address >>> SEGMENT_SHIFT)].get((int) (address & SEGMENT_MASK));
+    }
+
+    @Override
+    protected void setState(int cell, byte state) {
+        long address = (long) cell * RECORD_SIZE;
+        segments[(int) (address >>> SEGMENT_SHIFT)].put((int) (address & SEGMENT_MASK), state);
+    }
+
+    @Override
+    protected long get(int cell, int field) {
+        long address = (long) cell * RECORD_SIZE;
+        return segments[(int) (address >>> SEGMENT_SHIFT)].getLong((int) (address & SEGMENT_MASK) + FIELDS_OFFSET + field * Long.BYTES);
+    }
+
+    @Override
+    protected void set(int cell, int field, long value) {
+        long address = (long) cell * RECORD_SIZE;
+        segments[(int) (address >>> SEGMENT_SHIFT)].putLong((int) (address & SEGMENT_MASK) + FIELDS_OFFSET + field * Long.BYTES, value);
+    }
+
+    @Override
+    void resizeCells(int dayCount, int oldTickerCapacity, int dayCapacity, int tickerCapacity) {
+        long cells = (long) dayCapacity * tickerCapacity;
+        if (tickerCapacity == oldTickerCapacity) {
+            // The records keep their address, only the segments of the new days are added
+            segments = allocate(segments, cells);
+            return;
+        }
+        // The days get wider, every record is copied to its new address in new segments
+        ByteBuffer[] newSegments = allocate(new ByteBuffer[0], cells);
+        for (int daySlot = 0; daySlot < dayCount; daySlot++) {
+            for (int tickerId = 0; tickerId < oldTickerCapacity; tickerId++) {
+                long from = ((long) daySlot * oldTickerCapacity + tickerId) * RECORD_SIZE;
+                long to = ((long) daySlot * tickerCapacity + tickerId) * RECORD_SIZE;
+                newSegments[(int) (to >>> SEGMENT_SHIFT)].put((int) (to & SEGMENT_MASK),
+                        segments[(int) (from >>> SEGMENT_SHIFT)], (int) (from & SEGMENT_MASK), RECORD_SIZE);
+            }
+        }
+        segments = newSegments;
+    }
+
+    // Adds zeroed segments until the given number of records fits, the existing segments are kept
+    private static ByteBuffer[] allocate(ByteBuffer[] segments, long cells) {
+        int segmentCount = (int) ((cells * RECORD_SIZE + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        if (segmentCount <= segments.length) {
+            return segments;
+        }
+        ByteBuffer[] grown = Arrays.copyOf(segments, segmentCount);
+        for (int i = segments.length; i < segmentCount; i++) {
+            grown[i] = ByteBuffer.allocateDirect(SEGMENT_SIZE).order(ByteOrder.nativeOrder());
+        }
+        return grown;
+    }
+}
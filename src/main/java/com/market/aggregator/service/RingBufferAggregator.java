@@ -0,0 +1,106 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import com.market.aggregator.metrics.TradeMeter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+// This class is used to aggregate trades with a single writer per ticker, like TickerPartitionedAggregator, but the
+// trades go through a TradeRingBuffer: the parser fills events allocated once instead of a new batch per hand-over,
+// and it waits when the ring is full, so the memory used stays the same whatever the rate of the trades.
+// Every worker reads all the events and records the trades of its own tickers.
+class RingBufferAggregator implements Consumer<Trade>, AutoCloseable {
+    private final TradeRingBuffer ringBuffer;
+    private final int batchSize;
+    private final List<TickerAggregatorManager> partials;
+    private final List<CompletableFuture<Void>> workers;
+    private boolean closed;
+
+    RingBufferAggregator(ExecutorService executorService, int workerCount, int ringSize, WaitStrategy waitStrategy, int batchSize,
+                         TickerSymbolTable symbols, MetricsRegistry metrics) {
+        this.ringBuffer = new TradeRingBuffer(ringSize, workerCount, waitStrategy);
+        this.batchSize = batchSize;
+        this.partials = new ArrayList<>(workerCount);
+        this.workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            int worker = i;
+            TickerAggregatorManager partial = new TickerAggregatorManager(symbols);
+            partials.add(partial);
+            workers.add(CompletableFuture.runAsync(() -> aggregate(worker, TradeMeter.aggregating(partial::recordTrade, metrics)), executorService));
+        }
+    }
+
+    // Publishes the trade to the worker that owns its ticker, waiting for a free event when the ring is full
+    @Override
+    public void accept(Trade trade) {
+        int worker = Math.floorMod(trade.getTicker().hashCode(), workers.size());
+        ringBuffer.claim().set(trade, worker);
+        ringBuffer.publish();
+    }
+
+    // Tells the workers that there are no more trades.
+    // It must be called even when parsing fails, otherwise the workers keep waiting for trades.
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        ringBuffer.close();
+    }
+
+    // Waits for the workers and returns their aggregations. The tickers of the aggregations do not overlap.
+    List<TickerAggregatorManager> getPartialAggregations() {
+        close();
+        for (CompletableFuture<Void> worker : workers) {
+            join(worker);
+        }
+        return partials;
+    }
+
+    // Number of trades published and not yet read by every worker
+    long backlog() {
+        return ringBuffer.backlog();
+    }
+
+    // Worker loop: records the trades of its tickers, freeing the events a batch at a time so the parser does not
+    // wait for a whole ring to be read when it is full
+    private void aggregate(int worker, Consumer<Trade> aggregation) {
+        try {
+            long next = 0;
+            for (long available = ringBuffer.waitForPublished(next); available >= 0; available = ringBuffer.waitForPublished(next)) {
+                long batchEnd = Math.min(available, next + batchSize);
+                for (; next < batchEnd; next++) {
+                    TradeRingBuffer.TradeEvent event = ringBuffer.get(next);
+                    if (event.getConsumer() == worker) {
+                        aggregation.accept(event.getTrade());
+                    }
+                }
+                ringBuffer.release(worker, next);
+            }
+        } catch (RuntimeException e) {
+            ringBuffer.abandon();
+            throw e;
+        } finally {
+            TradeMeter.close(aggregation);
+        }
+    }
+
+    private static void join(CompletableFuture<Void> worker) {
+        try {
+            worker.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.market.aggregator.service;
+
+// This enum is used to select the threads that read and parse the log files when several logs are ingested together.
+public enum ThreadMode {
+    // The bounded pool of platform threads that aggregates the trades reads the files too, the files are mapped.
+    PLATFORM,
+    // Every file is read on a virtual thread with blocking reads. A thread waiting for a slow file system is unmounted
+    // and the CPUs parse the files that are ready in the meantime.
+    VIRTUAL
+}
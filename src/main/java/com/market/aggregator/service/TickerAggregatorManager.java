@@ -1,29 +1,40 @@
 package com.market.aggregator.service;
 
 import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.ConcurrentAggregationRecord;
+import com.market.aggregator.domain.TickerSymbolTable;
 import com.market.aggregator.domain.Trade;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 @Service
 @Primary
+@ConditionalOnProperty(name = "market.aggregator.store", havingValue = "HEAP", matchIfMissing = true)
 public class TickerAggregatorManager implements ITickerAggregatorManager {
 
     // This map holds the aggregated trade data for each day.
-    // The key is the date, and the value is another map that holds data for each ticker.
-    private final Map<LocalDate, Map<String, AggregationRecord>> aggregationMap;
+    // The key is the date, and the value holds the records of that day indexed by ticker id.
+    private final Map<LocalDate, DayAggregation> aggregationMap;
+    private final TickerSymbolTable symbols;
+    // Segment trees over the days, for the aggregations of a ticker over a range of days
+    private final AggregationRangeIndex rangeIndex = new AggregationRangeIndex(this);
 
     private LocalDate firstAggregationDate;
     private LocalDate lastAggregationDate;
 
-    public TickerAggregatorManager() {
+    public TickerAggregatorManager(TickerSymbolTable symbols) {
+        this.symbols = symbols;
         this.aggregationMap = new ConcurrentHashMap<>();
         this.firstAggregationDate = null;
         this.lastAggregationDate = null;
@@ -33,18 +44,91 @@ public class TickerAggregatorManager implements ITickerAggregatorManager {
     @Override
     public void recordTrade(Trade trade) {
         // Convert the trade timestamp to a date and use it as the key.
-        // For that date, get or create a map for all tickers.
-        // For that ticker, get or create an AggregationRecord and then update it with the trade.
-        aggregationMap.computeIfAbsent(trade.getTimestamp().toLocalDate(), k -> new ConcurrentHashMap<>())
-                .computeIfAbsent(trade.getTicker(), AggregationRecord::of)
-                .recordTrade(trade);
+        // For that date, get or create the records of all tickers.
+        // For the id of that ticker, get or create a record and then update it with the trade.
+        // The records are lock-free, trades of the same ticker can be recorded by many threads at once.
+        LocalDate date = trade.getTimestamp().toLocalDate();
+        int tickerId = symbols.idOf(trade);
+        dayAggregation(date).getOrCreate(tickerId, trade.getTicker()).recordTrade(trade);
+        rangeIndex.update(date, tickerId);
+    }
+
+    //Merge a partial aggregation of a ticker into the record of that day.
+    @Override
+    public void mergeAggregation(LocalDate date, AggregationRecord partialAggregation) {
+        // The partial record is merged into a record owned by this manager, it is never shared.
+        // Partials of the same ticker can be merged by many threads at once.
+        int tickerId = symbols.idOf(partialAggregation.getTicker());
+        dayAggregation(date).getOrCreate(tickerId, partialAggregation.getTicker()).merge(partialAggregation);
+        rangeIndex.update(date, tickerId);
+    }
+
+    // Get or create the records of a day. A new day is only added to the range index once it is in the map.
+    private DayAggregation dayAggregation(LocalDate date) {
+        DayAggregation dayAggregation = aggregationMap.get(date);
+        if (dayAggregation == null) {
+            dayAggregation = aggregationMap.computeIfAbsent(date, k -> new DayAggregation());
+            rangeIndex.invalidate();
+        }
+        return dayAggregation;
     }
 
     // Get the aggregated data for a specific day.
     @Override
     public Map<String, AggregationRecord> getAggregationFor(LocalDate date) {
-        // Return the data for that date, or an empty map if no data exists.
-        return Collections.unmodifiableMap(aggregationMap.getOrDefault(date, new ConcurrentHashMap<>()));
+        // Return a copy of the data for that date, or an empty map if no data exists.
+        DayAggregation dayAggregation = aggregationMap.get(date);
+        if (dayAggregation == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, AggregationRecord> records = new HashMap<>();
+        dayAggregation.recordsByTicker.forEach((ticker, record) -> records.put(ticker, record.toAggregationRecord()));
+        return Collections.unmodifiableMap(records);
+    }
+
+    // Get the tickers traded on a specific day, straight from the keys of its records.
+    @Override
+    public Set<String> getTickersFor(LocalDate date) {
+        DayAggregation dayAggregation = aggregationMap.get(date);
+        return dayAggregation == null ? Collections.emptySet() : Collections.unmodifiableSet(dayAggregation.recordsByTicker.keySet());
+    }
+
+    // Get the aggregated data of a ticker, by its id, for a specific day.
+    @Override
+    public AggregationRecord getAggregationFor(LocalDate date, int tickerId) {
+        DayAggregation dayAggregation = aggregationMap.get(date);
+        ConcurrentAggregationRecord record = dayAggregation == null ? null : dayAggregation.get(tickerId);
+        return record == null ? null : record.toAggregationRecord();
+    }
+
+    // Get the aggregated data of a ticker, by its id, over a range of days.
+    @Override
+    public AggregationRecord getAggregationBetween(LocalDate from, LocalDate to, int tickerId) {
+        return rangeIndex.query(from, to, tickerId);
+    }
+
+    // Get the aggregated data of a ticker, by its name, over a range of days.
+    @Override
+    public AggregationRecord getAggregationBetween(LocalDate from, LocalDate to, String ticker) {
+        int tickerId = symbols.find(ticker);
+        return tickerId < 0 ? null : rangeIndex.query(from, to, tickerId);
+    }
+
+    // Hand over the close price of every ticker traded that day, walking the records of the day by ticker id.
+    @Override
+    public void forEachClosePrice(LocalDate date, ClosePriceConsumer consumer) {
+        DayAggregation dayAggregation = aggregationMap.get(date);
+        if (dayAggregation == null) {
+            return;
+        }
+        AtomicReferenceArray<ConcurrentAggregationRecord> records = dayAggregation.recordsById;
+        for (int tickerId = 0; tickerId < records.length(); tickerId++) {
+            ConcurrentAggregationRecord record = records.get(tickerId);
+            BigDecimal closePrice = record == null ? null : record.getClosePrice();
+            if (closePrice != null) {
+                consumer.accept(tickerId, closePrice);
+            }
+        }
     }
 
     // Get the earliest date for which we have aggregated data.
@@ -89,4 +173,41 @@ public class TickerAggregatorManager implements ITickerAggregatorManager {
                 .max(LocalDate::compareTo)
                 .orElseThrow(() -> new IllegalStateException("Aggregation window is empty"));
     }
-}
\ No newline at end of file
+
+    // This class holds the records of one day in an array indexed by ticker id, so recording a trade does not
+    // hash the ticker. The records are also kept by ticker in a map for the callers that look them up by name.
+    private static final class DayAggregation {
+        private final Map<String, ConcurrentAggregationRecord> recordsByTicker = new ConcurrentHashMap<>();
+        private volatile AtomicReferenceArray<ConcurrentAggregationRecord> recordsById = new AtomicReferenceArray<>(16);
+
+        private ConcurrentAggregationRecord get(int tickerId) {
+            AtomicReferenceArray<ConcurrentAggregationRecord> records = recordsById;
+            return tickerId >= 0 && tickerId < records.length() ? records.get(tickerId) : null;
+        }
+
+        private ConcurrentAggregationRecord getOrCreate(int tickerId, String ticker) {
+            ConcurrentAggregationRecord record = get(tickerId);
+            return record != null ? record : create(tickerId, ticker);
+        }
+
+        // Records are only created under the lock, a reader that sees no record comes here to check again
+        private synchronized ConcurrentAggregationRecord create(int tickerId, String ticker) {
+            ConcurrentAggregationRecord record = get(tickerId);
+            if (record != null) {
+                return record;
+            }
+            AtomicReferenceArray<ConcurrentAggregationRecord> records = recordsById;
+            if (tickerId >= records.length()) {
+                AtomicReferenceArray<ConcurrentAggregationRecord> grown = new AtomicReferenceArray<>(Math.max(tickerId + 1, records.length() * 2));
+                for (int i = 0; i < records.length(); i++) {
+                    grown.set(i, records.get(i));
+                }
+                recordsById = records = grown;
+            }
+            record = ConcurrentAggregationRecord.of(ticker);
+            recordsByTicker.put(ticker, record);
+            records.set(tickerId, record);
+            return record;
+        }
+    }
+}
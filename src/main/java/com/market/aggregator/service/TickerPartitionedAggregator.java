@@ -0,0 +1,152 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import com.market.aggregator.metrics.TradeMeter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// This class is used to aggregate trades with a single writer per ticker.
+// Every trade is routed to a worker by the hash of its ticker and handed over in batches, so each
+// AggregationRecord is only updated by one thread: no task per trade and no locking on the records.
+class TickerPartitionedAggregator implements Consumer<Trade>, AutoCloseable {
+    // Marks the end of the trades for a worker
+    private static final List<Trade> END_OF_TRADES = List.of();
+    // Batches waiting per worker, a slow worker makes the parser wait instead of piling up trades
+    private static final int QUEUED_BATCHES_PER_WORKER = 16;
+
+    private final int batchSize;
+    private final List<BlockingQueue<List<Trade>>> queues;
+    private final List<TickerAggregatorManager> partials;
+    private final List<CompletableFuture<Void>> workers;
+    private final List<List<Trade>> batches;
+    private boolean closed;
+
+    TickerPartitionedAggregator(ExecutorService executorService, int workerCount, int batchSize, TickerSymbolTable symbols,
+                                MetricsRegistry metrics) {
+        this.batchSize = batchSize;
+        this.queues = new ArrayList<>(workerCount);
+        this.partials = new ArrayList<>(workerCount);
+        this.workers = new ArrayList<>(workerCount);
+        this.batches = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<List<Trade>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES_PER_WORKER);
+            TickerAggregatorManager partial = new TickerAggregatorManager(symbols);
+            queues.add(queue);
+            partials.add(partial);
+            batches.add(new ArrayList<>(batchSize));
+            workers.add(CompletableFuture.runAsync(() -> aggregate(queue, TradeMeter.aggregating(partial::recordTrade, metrics)), executorService));
+        }
+    }
+
+    // Adds the trade to the batch of the worker that owns its ticker
+    @Override
+    public void accept(Trade trade) {
+        int worker = Math.floorMod(trade.getTicker().hashCode(), batches.size());
+        List<Trade> batch = batches.get(worker);
+        batch.add(trade);
+        if (batch.size() == batchSize) {
+            handOver(worker, batch);
+            batches.set(worker, new ArrayList<>(batchSize));
+        }
+    }
+
+    // Hands over the last batches and tells the workers that there are no more trades.
+    // It must be called even when parsing fails, otherwise the workers keep waiting for trades. Every worker is told,
+    // even when another one failed: the workers run on the shared pool and would hold its threads forever.
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        RuntimeException failure = null;
+        for (int worker = 0; worker < batches.size(); worker++) {
+            if (failure != null) {
+                // The run failed, the trades still to aggregate are dropped
+                stop(worker);
+                continue;
+            }
+            try {
+                if (!batches.get(worker).isEmpty()) {
+                    handOver(worker, batches.get(worker));
+                }
+                handOver(worker, END_OF_TRADES);
+            } catch (RuntimeException e) {
+                stop(worker);
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Tells the worker that there are no more trades without waiting for it. The parsing thread is the only one that
+    // adds batches, so the queue has room for the end once the batches it holds are dropped.
+    private void stop(int worker) {
+        BlockingQueue<List<Trade>> queue = queues.get(worker);
+        queue.clear();
+        queue.offer(END_OF_TRADES);
+    }
+
+    // Waits for the workers and returns their aggregations. The tickers of the aggregations do not overlap.
+    List<TickerAggregatorManager> getPartialAggregations() {
+        close();
+        for (CompletableFuture<Void> worker : workers) {
+            join(worker);
+        }
+        return partials;
+    }
+
+    // Worker loop: records the trades of its batches until the end of the trades
+    private static void aggregate(BlockingQueue<List<Trade>> queue, Consumer<Trade> aggregation) {
+        try {
+            for (List<Trade> batch = queue.take(); batch != END_OF_TRADES; batch = queue.take()) {
+                for (Trade trade : batch) {
+                    aggregation.accept(trade);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while aggregating trades", e);
+        } finally {
+            TradeMeter.close(aggregation);
+        }
+    }
+
+    // Waits for room in the queue of the worker, failing if the worker stopped because of an error
+    private void handOver(int worker, List<Trade> batch) {
+        try {
+            while (!queues.get(worker).offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (workers.get(worker).isDone()) {
+                    workers.get(worker).join();
+                    throw new IllegalStateException("Aggregation worker " + worker + " stopped before the end of the trades");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing over trades", e);
+        }
+    }
+
+    private static void join(CompletableFuture<Void> worker) {
+        try {
+            worker.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
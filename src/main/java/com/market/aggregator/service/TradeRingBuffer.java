@@ -0,0 +1,210 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.Trade;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+// This class is used to hand over the parsed trades to the aggregation workers through a bounded ring of events
+// that are allocated once and reused. A single parser fills the next free event and publishes it, every worker reads
+// all the published events in order and releases them a batch at a time. When the slowest worker is a whole ring
+// behind the parser waits for it, so the trades in flight never exceed the size of the ring.
+final class TradeRingBuffer {
+    // Checks of the sequences before a yielding or sleeping wait gives up the core
+    private static final int SPIN_TRIES = 100;
+    // Yields before a sleeping wait starts to sleep
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    // The sequences of the workers are this many longs apart, so they do not share a cache line
+    private static final int SEQUENCE_SPACING = 8;
+
+    private final TradeEvent[] events;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    // Sequence of the next event the parser publishes, the events before it can be read
+    private final AtomicLong published = new AtomicLong();
+    // Sequence of the next event every worker reads, the events before it are free again
+    private final AtomicLongArray consumed;
+    private final int consumers;
+    private volatile boolean closed;
+    private volatile boolean abandoned;
+
+    // Blocking wait: the side that moves a sequence only takes the lock when a thread waits on it, and once the
+    // waiting threads are woken up the next moves do not take it again until one of them waits again
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition moved = lock.newCondition();
+    private volatile boolean blocked;
+
+    // The parser's side, only used by the parser thread
+    private long nextSequence;
+    private long cachedSlowestConsumed;
+
+    TradeRingBuffer(int size, int consumers, WaitStrategy waitStrategy) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("The size of the ring buffer must be a power of two: " + size);
+        }
+        if (consumers <= 0) {
+            throw new IllegalArgumentException("The ring buffer needs at least one consumer: " + consumers);
+        }
+        this.events = new TradeEvent[size];
+        for (int i = 0; i < size; i++) {
+            events[i] = new TradeEvent();
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.consumers = consumers;
+        this.consumed = new AtomicLongArray(consumers * SEQUENCE_SPACING);
+    }
+
+    // Returns the next free event, waiting while the slowest consumer is a whole ring behind.
+    // It fails if a consumer stopped, the event would never be freed.
+    TradeEvent claim() {
+        long wrapPoint = nextSequence - events.length;
+        if (wrapPoint >= cachedSlowestConsumed) {
+            await(() -> abandoned || slowestConsumed() > wrapPoint);
+            if (abandoned) {
+                throw new IllegalStateException("An aggregation worker stopped before the end of the trades");
+            }
+            cachedSlowestConsumed = slowestConsumed();
+        }
+        return events[(int) nextSequence & mask];
+    }
+
+    // Makes the claimed event visible to the consumers
+    void publish() {
+        published.set(++nextSequence);
+        wakeUp();
+    }
+
+    // No more events are published, the consumers stop once they have read the published ones
+    void close() {
+        closed = true;
+        wakeUp();
+    }
+
+    // Tells the parser that a consumer stopped, e.g. on a failure, so it does not wait for it forever
+    void abandon() {
+        abandoned = true;
+        wakeUp();
+    }
+
+    // Waits until events from the given sequence on are published and returns the sequence after the last one,
+    // or -1 once the ring is closed and every event has been read
+    long waitForPublished(long sequence) {
+        await(() -> closed || published.get() > sequence);
+        long available = published.get();
+        return available > sequence ? available : -1;
+    }
+
+    TradeEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    // Frees the events the consumer has read, up to the given sequence
+    void release(int consumer, long sequence) {
+        consumed.set(consumer * SEQUENCE_SPACING, sequence);
+        wakeUp();
+    }
+
+    // Number of events published and not yet read by every consumer
+    long backlog() {
+        return published.get() - slowestConsumed();
+    }
+
+    int size() {
+        return events.length;
+    }
+
+    private long slowestConsumed() {
+        long slowest = Long.MAX_VALUE;
+        for (int consumer = 0; consumer < consumers; consumer++) {
+            slowest = Math.min(slowest, consumed.get(consumer * SEQUENCE_SPACING));
+        }
+        return slowest;
+    }
+
+    private void await(BooleanSupplier ready) {
+        for (int tries = 0; !ready.getAsBoolean(); tries++) {
+            switch (waitStrategy) {
+                case BUSY_SPIN -> Thread.onSpinWait();
+                case YIELDING -> {
+                    if (tries < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                case SLEEPING -> {
+                    if (tries < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(SLEEP_NANOS);
+                    }
+                }
+                case BLOCKING -> block(ready);
+            }
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting on the ring buffer");
+            }
+        }
+    }
+
+    // A thread marks itself as blocked before it checks the sequences again, so a thread that moves a sequence
+    // after that check sees the mark and signals
+    private void block(BooleanSupplier ready) {
+        lock.lock();
+        try {
+            while (true) {
+                blocked = true;
+                if (ready.getAsBoolean()) {
+                    return;
+                }
+                moved.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void wakeUp() {
+        if (waitStrategy == WaitStrategy.BLOCKING && blocked) {
+            lock.lock();
+            try {
+                blocked = false;
+                moved.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // A slot of the ring, filled again by the parser once every consumer has read it
+    static final class TradeEvent {
+        private Trade trade;
+        // Consumer that records the trade
+        private int consumer;
+
+        void set(Trade trade, int consumer) {
+            this.trade = trade;
+            this.consumer = consumer;
+        }
+
+        Trade getTrade() {
+            return trade;
+        }
+
+        int getConsumer() {
+            return consumer;
+        }
+    }
+}
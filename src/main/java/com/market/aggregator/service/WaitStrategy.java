@@ -0,0 +1,15 @@
+package com.market.aggregator.service;
+
+// This enum is used to select how the parser and the aggregation workers wait for each other on the ring buffer,
+// the parser for a free slot and a worker for a published trade. The busier the wait, the sooner a waiting thread
+// goes on, but the more it takes a core from the other threads.
+public enum WaitStrategy {
+    // Spin on the sequence, the lowest latency when every thread has a core of its own
+    BUSY_SPIN,
+    // Spin for a while, then yield the core to the other threads between checks
+    YIELDING,
+    // Spin, yield, then sleep for a few microseconds between checks, light on the cores at the cost of latency
+    SLEEPING,
+    // Block on a lock until the other side signals, the lightest on the cores
+    BLOCKING
+}
@@ -0,0 +1,81 @@
+package com.market.aggregator;
+
+import com.market.aggregator.domain.InstrumentTickSizes;
+import com.market.aggregator.service.IngestionMode;
+import com.market.aggregator.service.ThreadMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.NestedExceptionUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketAggregatorPropertiesTest {
+
+    @Test
+    void testBind_givenApplicationDefaults_thenEmptyFilesAreNull() {
+        MarketAggregatorProperties properties = bind(Map.of(
+                "market.aggregator.weights-file", "",
+                "market.aggregator.export-file", "",
+                "market.aggregator.snapshot-file", "",
+                "market.aggregator.reject-file", ""));
+
+        assertEquals(MarketAggregatorProperties.defaults(), properties);
+        assertNull(properties.weightsFile());
+        assertNull(properties.exportFile());
+    }
+
+    @Test
+    void testBind_givenSettings_thenTheyAreKept() {
+        MarketAggregatorProperties properties = bind(Map.of(
+                "market.aggregator.ingestion-mode", "RING_BUFFER",
+                "market.aggregator.intraday-interval", "30s",
+                "market.aggregator.export-file", "export.bin",
+                "market.aggregator.read-threads", "VIRTUAL",
+                "market.aggregator.aggregation-threads", "3"));
+
+        assertEquals(IngestionMode.RING_BUFFER, properties.ingestionMode());
+        assertEquals(Duration.ofSeconds(30), properties.intradayInterval());
+        assertEquals(Path.of("export.bin"), properties.exportFile());
+        assertEquals(ThreadMode.VIRTUAL, properties.readThreads());
+        assertEquals(3, properties.aggregationParallelism());
+    }
+
+    @Test
+    void testBind_givenTickSizes_thenTheStoresKeepTheirDecimals() {
+        MarketAggregatorProperties properties = bind(Map.of(
+                "market.aggregator.tick-size", "0.001",
+                "market.aggregator.tick-sizes.FX", "0.0001",
+                "market.aggregator.tick-sizes.IDX", "5"));
+
+        InstrumentTickSizes tickSizes = properties.instrumentTickSizes();
+        assertEquals(3, tickSizes.scaleFor("ABC"));
+        assertEquals(4, tickSizes.scaleFor("FX"));
+        assertEquals(0, tickSizes.scaleFor("IDX"));
+        assertEquals(2, MarketAggregatorProperties.defaults().instrumentTickSizes().scaleFor("ABC"));
+    }
+
+    @Test
+    void testBind_givenInvalidSetting_thenFailsBeforeAnyTradeIsRead() {
+        for (Map.Entry<String, String> setting : Map.of(
+                "market.aggregator.intraday-interval", "7s",
+                "market.aggregator.ring-buffer-size", "1000",
+                "market.aggregator.max-concurrent-files", "-1",
+                "market.aggregator.aggregation-threads", "-2",
+                "market.aggregator.tick-size", "0",
+                "market.aggregator.tick-sizes.FX", "-0.01").entrySet()) {
+            BindException e = assertThrows(BindException.class, () -> bind(Map.of(setting.getKey(), setting.getValue())));
+            assertInstanceOf(IllegalArgumentException.class, NestedExceptionUtils.getMostSpecificCause(e), setting.getKey());
+        }
+    }
+
+    private static MarketAggregatorProperties bind(Map<String, String> settings) {
+        return new Binder(new MapConfigurationPropertySource(settings))
+                .bindOrCreate("market.aggregator", MarketAggregatorProperties.class);
+    }
+}
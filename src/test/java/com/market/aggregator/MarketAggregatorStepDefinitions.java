@@ -1,12 +1,19 @@
 package com.market.aggregator;
 
 import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.TickerSymbolTable;
 import com.market.aggregator.infrastructure.FileMarketWeightsParser;
 import com.market.aggregator.infrastructure.FileTradeParser;
+import com.market.aggregator.infrastructure.MappedTradeParser;
+import com.market.aggregator.infrastructure.MarketWeightsCache;
+import com.market.aggregator.metrics.MetricsRegistry;
+import com.market.aggregator.service.AggregationExecutors;
 import com.market.aggregator.service.MarketAggregatorService;
 import com.market.aggregator.service.MarketIndexCalculator;
+import com.market.aggregator.service.ThreadMode;
 import com.market.aggregator.service.TickerAggregatorManager;
 import io.cucumber.datatable.DataTable;
+import io.cucumber.java.After;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
@@ -26,6 +33,14 @@ public class MarketAggregatorStepDefinitions {
     private String weightsContent;
     private Map<String, AggregationRecord> aggregationResult;
     private MarketAggregatorService aggregatorService;
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AggregationExecutors executors = new AggregationExecutors(ThreadMode.PLATFORM, 2);
+
+    @After
+    public void shutdownExecutors() {
+        executors.close();
+    }
 
     @Given("a market log file with the following trades:")
     public void givenMarketLogFileWithTheFollowingTrades(String fileContent) {
@@ -39,11 +54,13 @@ public class MarketAggregatorStepDefinitions {
 
     @When("the trades are processed")
     public void whenTheTradesAreProcessed() throws Exception {
-        FileTradeParser tradeParser = new FileTradeParser();
+        FileTradeParser tradeParser = new FileTradeParser(symbols, metrics);
         FileMarketWeightsParser weightsParser = new FileMarketWeightsParser();
-        MarketIndexCalculator calculator = new MarketIndexCalculator();
-        TickerAggregatorManager tickerManager = new TickerAggregatorManager();
-        aggregatorService = new MarketAggregatorService(tradeParser, weightsParser, calculator, tickerManager);
+        MarketIndexCalculator calculator = new MarketIndexCalculator(symbols);
+        TickerAggregatorManager tickerManager = new TickerAggregatorManager(symbols);
+        aggregatorService = new MarketAggregatorService(tradeParser, new MappedTradeParser(symbols, metrics),
+                new MarketWeightsCache(weightsParser, symbols), calculator, tickerManager, symbols, metrics,
+                MarketAggregatorProperties.defaults(), executors);
 
         ByteArrayInputStream tradesStream = new ByteArrayInputStream(tradesContent.getBytes(StandardCharsets.UTF_8));
         ByteArrayInputStream weightsStream = new ByteArrayInputStream(weightsContent.getBytes(StandardCharsets.UTF_8));
@@ -90,7 +107,7 @@ public class MarketAggregatorStepDefinitions {
         ByteArrayInputStream weightsStream = new ByteArrayInputStream(weightsContent.getBytes(StandardCharsets.UTF_8));
         Map<String, BigDecimal> marketWeights = parser.parseMarketWeights(weightsStream);
 
-        MarketIndexCalculator calculator = new MarketIndexCalculator();
+        MarketIndexCalculator calculator = new MarketIndexCalculator(symbols);
         BigDecimal actual = null;
 
         // Sorted dates in descending order, considering dates up to targetDate.
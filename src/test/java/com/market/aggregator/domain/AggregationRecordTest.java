@@ -0,0 +1,61 @@
+package com.market.aggregator.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AggregationRecordTest {
+
+    @Test
+    void testMergeMatchesSequentialAggregation() {
+        List<Trade> trades = List.of(
+                trade("2025-01-20T09:30:00", "105", 600),
+                trade("2025-01-20T09:00:00", "100", 500),
+                trade("2025-01-20T09:45:00", "98.5", 100),
+                // Same timestamps as the open and the close above, the first trade read must win
+                trade("2025-01-20T09:00:00", "101", 10),
+                trade("2025-01-20T09:45:00", "99", 20));
+
+        AggregationRecord sequential = AggregationRecord.of("ABC");
+        trades.forEach(sequential::recordTrade);
+
+        AggregationRecord first = AggregationRecord.of("ABC");
+        AggregationRecord second = AggregationRecord.of("ABC");
+        trades.subList(0, 2).forEach(first::recordTrade);
+        trades.subList(2, trades.size()).forEach(second::recordTrade);
+        first.merge(second);
+
+        assertEquals(sequential, first);
+    }
+
+    @Test
+    void testMergeIntoEmptyRecord() {
+        AggregationRecord partial = AggregationRecord.of("ABC");
+        partial.recordTrade(trade("2025-01-20T09:00:00", "100", 500));
+
+        AggregationRecord merged = AggregationRecord.of("ABC");
+        merged.merge(partial);
+        merged.merge(AggregationRecord.of("ABC"));
+
+        assertEquals(partial, merged);
+    }
+
+    @Test
+    void testMergeDifferentTicker() {
+        assertThrows(IllegalArgumentException.class, () -> AggregationRecord.of("ABC").merge(AggregationRecord.of("XYZ")));
+    }
+
+    private static Trade trade(String timestamp, String price, int quantity) {
+        return Trade.builder()
+                .timestamp(LocalDateTime.parse(timestamp))
+                .ticker("ABC")
+                .price(new BigDecimal(price))
+                .quantity(quantity)
+                .build();
+    }
+}
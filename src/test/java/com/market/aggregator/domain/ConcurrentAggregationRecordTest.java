@@ -0,0 +1,160 @@
+package com.market.aggregator.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrentAggregationRecordTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void testRecordTradeMatchesAggregationRecord() {
+        // Equal timestamps and prices of different scales, recorded in order the first trade wins like in AggregationRecord
+        Random random = new Random(7);
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            trades.add(trade(LocalDateTime.of(2025, 1, 20, 9, random.nextInt(10), random.nextInt(60)),
+                    BigDecimal.valueOf(1 + random.nextInt(1_000), random.nextInt(3)), random.nextInt(1_000)));
+        }
+
+        ConcurrentAggregationRecord record = ConcurrentAggregationRecord.of("ABC");
+        trades.forEach(record::recordTrade);
+
+        assertEquals(aggregate(trades), record.toAggregationRecord());
+        assertEquals(aggregate(trades).getClosePrice(), record.getClosePrice());
+    }
+
+    @Test
+    void testConcurrentRecordTradeMatchesAggregationRecord() throws Exception {
+        // Every trade has its own timestamp, so the open and close do not depend on the order of the threads
+        List<Trade> trades = distinctTimestampTrades(200_000);
+        for (int round = 0; round < 5; round++) {
+            ConcurrentAggregationRecord record = ConcurrentAggregationRecord.of("ABC");
+            runOnThreads(thread -> {
+                for (int i = thread; i < trades.size(); i += THREADS) {
+                    record.recordTrade(trades.get(i));
+                }
+            });
+
+            assertEquals(aggregate(trades), record.toAggregationRecord(), "Round " + round);
+        }
+    }
+
+    @Test
+    void testConcurrentMergeMatchesAggregationRecord() throws Exception {
+        List<Trade> trades = distinctTimestampTrades(100_000);
+        // One partial aggregation per block of 100 trades
+        List<AggregationRecord> partials = new ArrayList<>();
+        for (int from = 0; from < trades.size(); from += 100) {
+            partials.add(aggregate(trades.subList(from, from + 100)));
+        }
+
+        ConcurrentAggregationRecord record = ConcurrentAggregationRecord.of("ABC");
+        runOnThreads(thread -> {
+            for (int i = thread; i < partials.size(); i += THREADS) {
+                record.merge(partials.get(i));
+            }
+        });
+
+        assertEquals(aggregate(trades), record.toAggregationRecord());
+    }
+
+    @Test
+    void testToAggregationRecord_whileTheFirstTradeIsRecorded_thenNoPriceIsMissing() throws Exception {
+        Trade trade = trade(LocalDateTime.of(2025, 1, 20, 9, 0), new BigDecimal("10.50"), 100);
+        for (int round = 0; round < 200; round++) {
+            ConcurrentAggregationRecord record = ConcurrentAggregationRecord.of("ABC");
+            runOnThreads(thread -> {
+                if (thread == 0) {
+                    record.recordTrade(trade);
+                    return;
+                }
+                // The other threads copy the record until they see the trade, every copy has all its prices or none
+                AggregationRecord copy;
+                do {
+                    copy = record.toAggregationRecord();
+                    assertEquals(copy.getOpenTime() == null, copy.getHighestPrice() == null);
+                    assertEquals(copy.getOpenTime() == null, copy.getLowestPrice() == null);
+                    assertEquals(copy.getOpenTime() == null, copy.getClosePrice() == null);
+                } while (copy.getOpenTime() == null);
+            });
+        }
+    }
+
+    @Test
+    void testEmptyRecord() {
+        ConcurrentAggregationRecord record = ConcurrentAggregationRecord.of("ABC");
+        record.merge(AggregationRecord.of("ABC"));
+
+        assertEquals(AggregationRecord.of("ABC"), record.toAggregationRecord());
+        assertNull(record.getClosePrice());
+    }
+
+    @Test
+    void testRecordTradeDifferentTicker() {
+        ConcurrentAggregationRecord record = ConcurrentAggregationRecord.of("ABC");
+        Trade trade = Trade.builder().timestamp(LocalDateTime.of(2025, 1, 20, 9, 0)).ticker("XYZ")
+                .price(BigDecimal.ONE).quantity(1).build();
+
+        assertThrows(IllegalArgumentException.class, () -> record.recordTrade(trade));
+        assertThrows(IllegalArgumentException.class, () -> record.merge(AggregationRecord.of("XYZ")));
+    }
+
+    // Starts all the threads together so they collide on the record
+    private static void runOnThreads(IntConsumer work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int id = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    work.accept(id);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Shuffled trades one second apart, with prices of two decimals so equal prices are equal BigDecimals
+    private static List<Trade> distinctTimestampTrades(int count) {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 20, 0, 0);
+        List<Trade> trades = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            trades.add(trade(start.plusSeconds(i), BigDecimal.valueOf(1 + random.nextInt(100_000), 2), 1 + random.nextInt(1_000)));
+        }
+        Collections.shuffle(trades, random);
+        return trades;
+    }
+
+    private static AggregationRecord aggregate(List<Trade> trades) {
+        AggregationRecord record = AggregationRecord.of("ABC");
+        trades.forEach(record::recordTrade);
+        return record;
+    }
+
+    private static Trade trade(LocalDateTime timestamp, BigDecimal price, int quantity) {
+        return Trade.builder().timestamp(timestamp).ticker("ABC").price(price).quantity(quantity).build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.market.aggregator.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedPointAggregationRecordTest {
+
+    @Test
+    void testRecordTradeMatchesAggregationRecord() {
+        Random random = new Random(7);
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            trades.add(trade(LocalDateTime.of(2025, 1, 20, 9, random.nextInt(60), random.nextInt(60)),
+                    BigDecimal.valueOf(1 + random.nextInt(100_000), random.nextInt(3)), random.nextInt(1_000)));
+        }
+
+        FixedPointAggregationRecord fixedPoint = FixedPointAggregationRecord.of("ABC", InstrumentTickSizes.defaults());
+        trades.forEach(fixedPoint::recordTrade);
+
+        assertFalse(fixedPoint.isFallback());
+        assertSameValues(aggregate(trades), fixedPoint.toAggregationRecord());
+    }
+
+    @Test
+    void testRecordTradeFallsBackOnTooManyDecimals() {
+        List<Trade> trades = List.of(
+                trade(LocalDateTime.of(2025, 1, 20, 9, 0, 0), new BigDecimal("100.25"), 10),
+                trade(LocalDateTime.of(2025, 1, 20, 9, 0, 1), new BigDecimal("100.125"), 10),
+                trade(LocalDateTime.of(2025, 1, 20, 9, 0, 2), new BigDecimal("99.5"), 10));
+
+        FixedPointAggregationRecord fixedPoint = FixedPointAggregationRecord.of("ABC", InstrumentTickSizes.defaults());
+        trades.forEach(fixedPoint::recordTrade);
+
+        assertTrue(fixedPoint.isFallback());
+        assertSameValues(aggregate(trades), fixedPoint.toAggregationRecord());
+    }
+
+    @Test
+    void testRecordTradeFallsBackOnOverflow() {
+        FixedPointAggregationRecord fixedPoint = FixedPointAggregationRecord.of("ABC", 2);
+        long epochSecond = FixedPointAggregationRecord.toEpochSecond(LocalDateTime.of(2025, 1, 20, 9, 0, 0));
+
+        fixedPoint.recordTrade(epochSecond, Long.MAX_VALUE / 10, 100);
+        fixedPoint.recordTrade(epochSecond + 1, Long.MAX_VALUE / 10, 100);
+
+        assertTrue(fixedPoint.isFallback());
+        BigDecimal price = BigDecimal.valueOf(Long.MAX_VALUE / 10, 2);
+        assertEquals(0, price.multiply(BigDecimal.valueOf(200)).compareTo(fixedPoint.toAggregationRecord().getVolumeOfTrades()));
+    }
+
+    @Test
+    void testTickSizePerInstrument() {
+        InstrumentTickSizes tickSizes = InstrumentTickSizes.defaults()
+                .tickSize("FX", new BigDecimal("0.0001"))
+                .tickSize("IDX", new BigDecimal("5"));
+
+        assertEquals(2, tickSizes.scaleFor("ABC"));
+        assertEquals(4, tickSizes.scaleFor("FX"));
+        assertEquals(0, tickSizes.scaleFor("IDX"));
+        assertThrows(IllegalArgumentException.class, () -> tickSizes.tickSize("BAD", BigDecimal.ZERO));
+    }
+
+    private static AggregationRecord aggregate(List<Trade> trades) {
+        AggregationRecord record = AggregationRecord.of("ABC");
+        trades.forEach(record::recordTrade);
+        return record;
+    }
+
+    // The scales of the BigDecimals may differ, the values and what is printed must not
+    private static void assertSameValues(AggregationRecord expected, AggregationRecord actual) {
+        assertEquals(expected.getOpenTime(), actual.getOpenTime());
+        assertEquals(expected.getCloseTime(), actual.getCloseTime());
+        assertEquals(0, expected.getOpenPrice().compareTo(actual.getOpenPrice()));
+        assertEquals(0, expected.getClosePrice().compareTo(actual.getClosePrice()));
+        assertEquals(0, expected.getHighestPrice().compareTo(actual.getHighestPrice()));
+        assertEquals(0, expected.getLowestPrice().compareTo(actual.getLowestPrice()));
+        assertEquals(0, expected.getVolumeOfTrades().compareTo(actual.getVolumeOfTrades()));
+        assertEquals(String.format("%.1f %.2f", expected.getClosePrice().doubleValue(), expected.getVolumeOfTrades().doubleValue()),
+                String.format("%.1f %.2f", actual.getClosePrice().doubleValue(), actual.getVolumeOfTrades().doubleValue()));
+    }
+
+    private static Trade trade(LocalDateTime timestamp, BigDecimal price, int quantity) {
+        return Trade.builder().timestamp(timestamp).ticker("ABC").price(price).quantity(quantity).build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.market.aggregator.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickerSymbolTableTest {
+
+    @Test
+    void testIdOf_givenSameTicker_thenSameId() {
+        TickerSymbolTable symbols = new TickerSymbolTable();
+
+        int id = symbols.idOf("ABC");
+
+        assertEquals(0, id);
+        assertEquals(id, symbols.idOf("ABC"));
+        assertEquals(1, symbols.idOf("XYZ"));
+        assertEquals(2, symbols.size());
+        assertEquals("ABC", symbols.tickerOf(id));
+    }
+
+    @Test
+    void testIdOf_givenBytes_thenSameIdAndInstanceAsString() {
+        TickerSymbolTable symbols = new TickerSymbolTable();
+        int id = symbols.idOf("ABC");
+        ByteBuffer line = ByteBuffer.wrap("x;ABC;1".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(id, symbols.idOf(line, 2, 5));
+        assertEquals(1, symbols.idOf(line, 0, 1));
+        assertSame(symbols.tickerOf(1), symbols.tickerOf(symbols.idOf("x")));
+    }
+
+    @Test
+    void testIdOf_givenManyTickers_thenDenseIds() {
+        TickerSymbolTable symbols = new TickerSymbolTable();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, symbols.idOf("T" + i));
+        }
+        Set<String> tickers = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            byte[] ticker = ("T" + i).getBytes(StandardCharsets.UTF_8);
+            assertEquals(i, symbols.idOf(ByteBuffer.wrap(ticker), 0, ticker.length));
+            tickers.add(symbols.tickerOf(i));
+        }
+        assertEquals(10_000, tickers.size());
+        assertEquals(10_000, symbols.size());
+    }
+
+    @Test
+    void testIdOf_givenTrade_thenUsesIdOfTrade() {
+        TickerSymbolTable symbols = new TickerSymbolTable();
+        symbols.idOf("ABC");
+        Trade.TradeBuilder builder = Trade.builder().timestamp(LocalDateTime.of(2025, 1, 20, 9, 0)).ticker("XYZ").price(BigDecimal.ONE).quantity(1);
+
+        assertEquals(1, symbols.idOf(builder.build()));
+        assertEquals(0, symbols.idOf(builder.tickerId(0).build()));
+    }
+
+    @Test
+    void testFind_givenUnknownTicker() {
+        TickerSymbolTable symbols = new TickerSymbolTable();
+
+        assertEquals(-1, symbols.find("ABC"));
+        assertEquals(0, symbols.size());
+        assertThrows(IllegalArgumentException.class, () -> symbols.tickerOf(0));
+    }
+}
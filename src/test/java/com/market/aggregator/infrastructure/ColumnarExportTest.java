@@ -0,0 +1,127 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarExportTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 20);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testReadBackEveryDayAndTicker() throws IOException {
+        Map<LocalDate, Map<String, AggregationRecord>> days = generateDays(40, 30);
+        Path file = tempDir.resolve("export.bin");
+        try (ColumnarExportWriter writer = new ColumnarExportWriter(file)) {
+            for (LocalDate date : days.keySet().stream().sorted().toList()) {
+                writer.writeDay(date, days.get(date), date.getDayOfMonth() % 3 == 0 ? null : new BigDecimal("180." + date.getDayOfMonth()));
+            }
+        }
+
+        try (ColumnarExportReader reader = new ColumnarExportReader(file)) {
+            assertEquals(days.keySet().stream().sorted().toList(), reader.getDates());
+            assertEquals(30, reader.getTickers().size());
+            for (LocalDate date : reader.getDates()) {
+                // The values are the same, scale included
+                assertEquals(days.get(date), reader.readDay(date));
+                assertEquals(date.getDayOfMonth() % 3 == 0 ? null : new BigDecimal("180." + date.getDayOfMonth()), reader.getIndexValue(date));
+                for (String ticker : reader.getTickers()) {
+                    assertEquals(days.get(date).get(ticker), reader.readRecord(date, ticker));
+                }
+            }
+            String ticker = reader.getTickers().get(7);
+            Map<LocalDate, AggregationRecord> tickerDays = reader.readTicker(ticker);
+            assertFalse(tickerDays.isEmpty());
+            days.forEach((date, day) -> assertEquals(day.get(ticker), tickerDays.get(date)));
+        }
+    }
+
+    @Test
+    void testMissingDaysAndTickers() throws IOException {
+        Path file = tempDir.resolve("export.bin");
+        AggregationRecord notTraded = AggregationRecord.of("XYZ");
+        try (ColumnarExportWriter writer = new ColumnarExportWriter(file)) {
+            writer.writeDay(FIRST_DAY, Map.of("ABC", record("ABC", FIRST_DAY, "100.50"), "XYZ", notTraded), null);
+            writer.writeDay(FIRST_DAY.plusDays(2), Map.of(), BigDecimal.TEN);
+        }
+
+        try (ColumnarExportReader reader = new ColumnarExportReader(file)) {
+            assertEquals(List.of(FIRST_DAY, FIRST_DAY.plusDays(2)), reader.getDates());
+            assertEquals(1, reader.readDay(FIRST_DAY).size());
+            assertNull(reader.readRecord(FIRST_DAY, "XYZ"));
+            assertNull(reader.readRecord(FIRST_DAY, "MEGA"));
+            assertNull(reader.readRecord(FIRST_DAY.plusDays(2), "ABC"));
+            assertTrue(reader.readDay(FIRST_DAY.plusDays(1)).isEmpty());
+            assertTrue(reader.readDay(FIRST_DAY.plusDays(2)).isEmpty());
+            assertTrue(reader.readTicker("MEGA").isEmpty());
+            assertNull(reader.getIndexValue(FIRST_DAY));
+            assertEquals(BigDecimal.TEN, reader.getIndexValue(FIRST_DAY.plusDays(2)));
+        }
+    }
+
+    @Test
+    void testDaysMustBeWrittenInOrder() throws IOException {
+        try (ColumnarExportWriter writer = new ColumnarExportWriter(tempDir.resolve("export.bin"))) {
+            writer.writeDay(FIRST_DAY, Map.of(), null);
+
+            assertThrows(IllegalArgumentException.class, () -> writer.writeDay(FIRST_DAY, Map.of(), null));
+            assertThrows(IllegalArgumentException.class, () -> writer.writeDay(FIRST_DAY.minusDays(1), Map.of(), null));
+        }
+    }
+
+    @Test
+    void testValueThatDoesNotFitThrows() throws IOException {
+        try (ColumnarExportWriter writer = new ColumnarExportWriter(tempDir.resolve("export.bin"))) {
+            Map<String, AggregationRecord> day = Map.of("ABC", record("ABC", FIRST_DAY, "123456789012345678901234567890"));
+
+            assertThrows(IllegalArgumentException.class, () -> writer.writeDay(FIRST_DAY, day, null));
+        }
+    }
+
+    @Test
+    void testReadOtherFileThrows() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("market_log.txt"), "2025-01-20 09:00:01;ABC;100;500\n");
+
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarExportReader(file));
+    }
+
+    private static Map<LocalDate, Map<String, AggregationRecord>> generateDays(int dayCount, int tickerCount) {
+        Random random = new Random(13);
+        Map<LocalDate, Map<String, AggregationRecord>> days = new HashMap<>();
+        for (int i = 0; i < dayCount; i++) {
+            // Some days are skipped, like week-ends
+            LocalDate date = FIRST_DAY.plusDays(i + i / 5 * 2);
+            Map<String, AggregationRecord> day = new HashMap<>();
+            for (int t = 0; t < tickerCount; t++) {
+                if (random.nextInt(4) != 0) {
+                    String ticker = "TK" + (char) ('A' + t % 26) + t;
+                    day.put(ticker, record(ticker, date, BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(4)).toPlainString()));
+                }
+            }
+            days.put(date, day);
+        }
+        return days;
+    }
+
+    private static AggregationRecord record(String ticker, LocalDate date, String price) {
+        AggregationRecord record = AggregationRecord.of(ticker);
+        record.recordTrade(Trade.builder().timestamp(date.atTime(9, 0, 1)).ticker(ticker).price(new BigDecimal(price)).quantity(10).build());
+        record.recordTrade(Trade.builder().timestamp(date.atTime(16, 59, 59)).ticker(ticker).price(new BigDecimal("-0.5")).quantity(3).build());
+        return record;
+    }
+}
@@ -1,19 +1,25 @@
 package com.market.aggregator.infrastructure;
 
+import com.market.aggregator.MarketAggregatorConfiguration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.market.aggregator.domain.Trade;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@ContextConfiguration(classes = {FileTradeParser.class})
+@ContextConfiguration(classes = {FileTradeParser.class, MarketAggregatorConfiguration.class})
 @ExtendWith(SpringExtension.class)
 class FileTradeParserTest {
     @Autowired
@@ -24,4 +30,46 @@ class FileTradeParserTest {
         assertThrows(IllegalArgumentException.class, () -> fileTradeParser.parseTrades(new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8))));
         assertTrue(fileTradeParser.parseTrades(new ByteArrayInputStream(new byte[]{})).isEmpty());
     }
+
+    @Test
+    void testParseTradesStreaming() throws IOException {
+        String log = "date+time;ticker;price;number of securities traded\n"
+                + "2025-01-20 09:00:01;ABC;100;500\n"
+                + "\n"
+                + "2025-01-20 09:20:05;ABC;105;600\n";
+        List<Trade> streamed = new ArrayList<>();
+
+        long parsed = fileTradeParser.parseTrades(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)), streamed::add);
+
+        assertEquals(2, parsed);
+        assertEquals(fileTradeParser.parseTrades(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8))), streamed);
+    }
+
+    @Test
+    void testParseTradesLenient() throws IOException {
+        String log = "date+time;ticker;price;number of securities traded\r\n"
+                + "2025-01-20 09:00:01;ABC;100;500\r\n"
+                + "not-a-date;ABC;100;500\r\n"
+                + "2025-01-20 09:00:02;ABC;n/a;500\n"
+                + "2025-01-20 09:00:03;ABC;100\n"
+                + "\n"
+                + "2025-01-20 09:00:04;ABC;100;many\n"
+                + "2025-13-20 09:00:05;ABC;100;500\n"
+                + "2025-01-20 09:00:06;ABC;1e2;600";
+        List<Trade> trades = new ArrayList<>();
+        List<RejectedLine> rejects = new ArrayList<>();
+
+        long parsed = fileTradeParser.parseTrades(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)), trades::add, rejects::add);
+
+        assertEquals(2, parsed);
+        assertEquals(600, trades.get(1).getQuantity());
+        assertEquals(List.of(
+                new RejectedLine(3, -1, RejectReason.INVALID_TIMESTAMP, "not-a-date;ABC;100;500"),
+                new RejectedLine(4, -1, RejectReason.INVALID_PRICE, "2025-01-20 09:00:02;ABC;n/a;500"),
+                new RejectedLine(5, -1, RejectReason.MISSING_FIELDS, "2025-01-20 09:00:03;ABC;100"),
+                new RejectedLine(7, -1, RejectReason.INVALID_QUANTITY, "2025-01-20 09:00:04;ABC;100;many"),
+                new RejectedLine(8, -1, RejectReason.INVALID_TIMESTAMP, "2025-13-20 09:00:05;ABC;100;500")), rejects);
+        // Without a consumer for the rejected lines, the first one still stops the parsing
+        assertThrows(RuntimeException.class, () -> fileTradeParser.parseTrades(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)), trades::add));
+    }
 }
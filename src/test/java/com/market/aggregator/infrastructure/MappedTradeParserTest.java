@@ -0,0 +1,178 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.MarketAggregatorConfiguration;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ContextConfiguration(classes = {MappedTradeParser.class, FileTradeParser.class, MarketAggregatorConfiguration.class})
+@ExtendWith(SpringExtension.class)
+class MappedTradeParserTest {
+    // Lines that exercise trimming, line breaks, comments, decimals, signs and the BigDecimal fallback
+    private static final String TRICKY_LOG = "date+time;ticker;price;number of securities traded\r\n"
+            + "  2025-01-20 09:00:01 ; ABC ;100.50; 500 \r\n"
+            + "# comment\n"
+            + "\n"
+            + "2025-02-30 23:59:59;MEGA;-2;+7;extra field\n"
+            + "2025-01-20 09:00:01;ABC;1e3;1\n"
+            + "2025-01-20 09:00:01;abc;.5;0\n"
+            + "2024-02-29 00:00:00;XYZ;5.;2147483647";
+
+    @Autowired
+    private MappedTradeParser mappedTradeParser;
+
+    @Autowired
+    private FileTradeParser fileTradeParser;
+
+    @Autowired
+    private TickerSymbolTable symbols;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testParseTradesMatchesReferenceParser() throws IOException {
+        Path log = write(TRICKY_LOG);
+
+        assertEquals(parseWithReference(log), parseMapped(mappedTradeParser, log));
+    }
+
+    @Test
+    void testParseTradesMatchesReferenceParserOnDefaultLog() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        try (InputStream resource = new ClassPathResource("market_log.txt").getInputStream()) {
+            Files.copy(resource, log);
+        }
+
+        assertEquals(parseWithReference(log), parseMapped(mappedTradeParser, log));
+    }
+
+    @Test
+    void testParseTradesAcrossWindowBoundaries() throws IOException {
+        Path log = write(TRICKY_LOG);
+
+        // Windows smaller than most lines force the parser to carry lines over to the next window
+        assertEquals(parseWithReference(log), parseMapped(new MappedTradeParser(symbols, metrics, 64), log));
+    }
+
+    @Test
+    void testReadRangeMatchesReferenceParser() throws IOException {
+        Path log = write(TRICKY_LOG);
+        List<Trade> trades = new ArrayList<>();
+
+        // A buffer smaller than most lines forces the parser to read the cut lines again
+        try (FileChannel channel = FileChannel.open(log)) {
+            new MappedTradeParser(symbols, metrics, 64).readRange(channel, 0, channel.size(), trades::add, null);
+        }
+
+        assertEquals(parseWithReference(log), trades);
+    }
+
+    @Test
+    void testReadRangeParsesOnTheExecutor() throws IOException {
+        Path log = write(TRICKY_LOG);
+        List<Trade> trades = new ArrayList<>();
+        Set<String> parsingThreads = new HashSet<>();
+        ExecutorService parser = Executors.newSingleThreadExecutor(r -> new Thread(r, "parser"));
+
+        // The reading thread only reads, every buffer is parsed by the executor
+        try (FileChannel channel = FileChannel.open(log)) {
+            new MappedTradeParser(symbols, metrics, 64).readRange(channel, 0, channel.size(), trade -> {
+                parsingThreads.add(Thread.currentThread().getName());
+                trades.add(trade);
+            }, null, parser);
+        } finally {
+            parser.shutdown();
+        }
+
+        assertEquals(parseWithReference(log), trades);
+        assertEquals(Set.of("parser"), parsingThreads);
+        // A malformed line is thrown on the reading thread as it was thrown by the parser
+        Path badLine = write("2025-01-20 09:00:01;ABC;100\n");
+        try (FileChannel channel = FileChannel.open(badLine)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> mappedTradeParser.readRange(channel, 0, channel.size(), trades::add, null, Runnable::run));
+        }
+    }
+
+    @Test
+    void testParseTradesInvalidLine() throws IOException {
+        Path log = write("2025-01-20 09:00:01;ABC;100;500\n2025-01-20 09:00:01;ABC;100\n");
+        Path badTimestamp = write("2025-13-20 09:00:01;ABC;100;500\n");
+
+        assertThrows(IllegalArgumentException.class, () -> parseMapped(mappedTradeParser, log));
+        assertThrows(IllegalArgumentException.class, () -> parseMapped(mappedTradeParser, badTimestamp));
+        assertTrue(parseMapped(mappedTradeParser, write("")).isEmpty());
+    }
+
+    @Test
+    void testParseTradesLenient() throws IOException {
+        Path log = write("2025-01-20 09:00:01;ABC;100;500\r\n"
+                + "not-a-date;ABC;100;500\r\n"
+                + "2025-01-20 09:00:02;ABC;n/a;500\n"
+                + "2025-01-20 09:00:03;ABC;100\n"
+                + "2025-01-20 09:00:04;ABC;100;many\n"
+                + "2025-01-20 09:00:05;ABC;100;99999999999\n"
+                + "2025-01-20 09:0x:05;ABC;100;500\n"
+                + "2025-01-20 09:00:06;ABC;1e2;600");
+        List<Trade> trades = new ArrayList<>();
+        List<RejectedLine> rejects = new ArrayList<>();
+
+        long parsed = new MappedTradeParser(symbols, metrics, 64).parseTrades(log, trades::add, rejects::add);
+
+        assertEquals(2, parsed);
+        assertEquals(600, trades.get(1).getQuantity());
+        assertEquals(List.of(RejectReason.INVALID_TIMESTAMP, RejectReason.INVALID_PRICE, RejectReason.MISSING_FIELDS,
+                        RejectReason.INVALID_QUANTITY, RejectReason.INVALID_QUANTITY, RejectReason.INVALID_TIMESTAMP),
+                rejects.stream().map(RejectedLine::reason).toList());
+        // The lines are rejected with their offset, the numbers are found by RejectFile
+        assertEquals(new RejectedLine(-1, 33, RejectReason.INVALID_TIMESTAMP, "not-a-date;ABC;100;500"), rejects.get(0));
+        assertEquals(new RejectedLine(-1, 57, RejectReason.INVALID_PRICE, "2025-01-20 09:00:02;ABC;n/a;500"), rejects.get(1));
+        assertThrows(IllegalArgumentException.class, () -> parseMapped(mappedTradeParser, log));
+    }
+
+    private Path write(String content) throws IOException {
+        Path log = Files.createTempFile(tempDir, "market_log", ".txt");
+        Files.writeString(log, content, StandardCharsets.UTF_8);
+        return log;
+    }
+
+    private List<Trade> parseMapped(MappedTradeParser parser, Path log) throws IOException {
+        List<Trade> trades = new ArrayList<>();
+        parser.parseTrades(log, trades::add);
+        return trades;
+    }
+
+    private List<Trade> parseWithReference(Path log) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(log)) {
+            return fileTradeParser.parseTrades(inputStream);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//This class is used to generate market logs and their market weights for load and scale tests and for the benchmarks.
+//The log is cut into blocks of lines. Every block gets its own random generator, seeded from the seed of the log and
+//the position of the block, so the blocks are generated in parallel and written in order, and the same settings always
+//give the same bytes whatever the number of threads. Only a few blocks per thread are in memory at once, so the size
+//of the log is only limited by the disk.
+public class MarketLogGenerator {
+    private static final byte[] HEADER = "date+time;company ticker;price;number of securities traded\n".getBytes(StandardCharsets.US_ASCII);
+    // Trading hours of a day, from 9:00 to 17:00
+    private static final int OPEN_SECOND = 9 * 60 * 60;
+    private static final int TRADING_SECONDS = 8 * 60 * 60;
+    // Lines per block, about 2 MB of log
+    private static final int BLOCK_LINES = 64 * 1024;
+    // Blocks generated ahead of the writer per thread
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+    // Prices of the tickers are in cents, a trade moves at most 5% away from the reference price of its ticker
+    private static final int PRICE_SPREAD_PERCENT = 5;
+
+    private final Settings settings;
+    private final List<LocalDate> dates;
+    private final byte[][] tickers;
+    private final long[] referencePrices;
+    // Cumulative probability of the tickers by rank when the ticker frequencies are skewed, null when they are uniform
+    private final double[] tickerDistribution;
+
+    public MarketLogGenerator(Settings settings) {
+        settings.validate();
+        this.settings = settings;
+        this.dates = tradingDates(settings);
+        this.tickers = new byte[settings.tickerCount][];
+        this.referencePrices = new long[settings.tickerCount];
+        SplittableRandom random = new SplittableRandom(settings.seed);
+        for (int i = 0; i < settings.tickerCount; i++) {
+            tickers[i] = tickerOf(i).getBytes(StandardCharsets.US_ASCII);
+            referencePrices[i] = 100 + random.nextLong(100_000);
+        }
+        this.tickerDistribution = settings.skew == 0 ? null : zipfDistribution(settings.tickerCount, settings.skew);
+    }
+
+    // Settings of a generated log, every one has a default so that only the ones that matter to a test are given
+    @Value
+    @Builder
+    public static class Settings {
+        @Builder.Default
+        long seed = 42;
+        @Builder.Default
+        int tickerCount = 100;
+        @Builder.Default
+        long tradesPerDay = 100_000;
+        @Builder.Default
+        int days = 5;
+        @Builder.Default
+        LocalDate firstDay = LocalDate.of(2025, 1, 20);
+        // Zipf exponent of the ticker frequencies: 0 gives every ticker the same frequency, 1 makes the first ticker
+        // trade twice as often as the second one, three times as often as the third one...
+        @Builder.Default
+        double skew = 0;
+        // Share of the trades written with a timestamp up to maxDelaySeconds earlier than the trades around them
+        @Builder.Default
+        double outOfOrderRate = 0;
+        @Builder.Default
+        int maxDelaySeconds = 60;
+        // Share of the lines that cannot be parsed: a missing field, a price or a quantity that is not a number, or a
+        // timestamp that is not a date
+        @Builder.Default
+        double malformedRate = 0;
+        // Share of the calendar days without any trade, e.g. holidays
+        @Builder.Default
+        double dayGapRate = 0;
+        @Builder.Default
+        boolean skipWeekends = false;
+        // Tickers of the market weights, the most traded ones
+        @Builder.Default
+        int indexTickerCount = 4;
+        @Builder.Default
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        private void validate() {
+            if (tickerCount <= 0 || tradesPerDay <= 0 || days <= 0 || threads <= 0) {
+                throw new IllegalArgumentException(String.format(
+                        "Tickers, trades per day, days and threads must be positive: %d, %d, %d, %d", tickerCount, tradesPerDay, days, threads));
+            }
+            if (skew < 0 || maxDelaySeconds < 0 || indexTickerCount <= 0 || indexTickerCount > tickerCount) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid skew %s, maximum delay %d or index ticker count %d", skew, maxDelaySeconds, indexTickerCount));
+            }
+            if (!isRate(outOfOrderRate) || !isRate(malformedRate) || !(dayGapRate >= 0 && dayGapRate < 1)) {
+                throw new IllegalArgumentException(String.format(
+                        "Rates must be between 0 and 1: out of order %s, malformed %s, day gaps %s", outOfOrderRate, malformedRate, dayGapRate));
+            }
+        }
+
+        private static boolean isRate(double rate) {
+            return rate >= 0 && rate <= 1;
+        }
+    }
+
+    // Generates a log and its weights from the command line, e.g.
+    // java -cp <classpath> com.market.aggregator.infrastructure.MarketLogGenerator big_log.txt big_weights.txt
+    //      --tickers=2000 --trades-per-day=10000000 --days=250 --skew=1.1 --out-of-order=0.01 --skip-weekends
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: MarketLogGenerator <log file> <weights file> [--option=value...]");
+        }
+        Settings.SettingsBuilder settings = Settings.builder();
+        for (int i = 2; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            String value = option.length == 2 ? option[1] : "true";
+            switch (option[0]) {
+                case "--seed" -> settings.seed(Long.parseLong(value));
+                case "--tickers" -> settings.tickerCount(Integer.parseInt(value));
+                case "--trades-per-day" -> settings.tradesPerDay(Long.parseLong(value));
+                case "--days" -> settings.days(Integer.parseInt(value));
+                case "--first-day" -> settings.firstDay(LocalDate.parse(value));
+                case "--skew" -> settings.skew(Double.parseDouble(value));
+                case "--out-of-order" -> settings.outOfOrderRate(Double.parseDouble(value));
+                case "--max-delay" -> settings.maxDelaySeconds(Integer.parseInt(value));
+                case "--malformed" -> settings.malformedRate(Double.parseDouble(value));
+                case "--day-gaps" -> settings.dayGapRate(Double.parseDouble(value));
+                case "--skip-weekends" -> settings.skipWeekends(Boolean.parseBoolean(value));
+                case "--index-tickers" -> settings.indexTickerCount(Integer.parseInt(value));
+                case "--threads" -> settings.threads(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        MarketLogGenerator generator = new MarketLogGenerator(settings.build());
+        long start = System.nanoTime();
+        long lines = generator.writeLog(Path.of(args[0]));
+        generator.writeWeights(Path.of(args[1]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d lines, %,d bytes in %.1f s%n", lines, Files.size(Path.of(args[0])), seconds);
+    }
+
+    // Ticker of the given rank: A, B... Z, AA, AB...
+    public static String tickerOf(int rank) {
+        StringBuilder ticker = new StringBuilder();
+        for (int i = rank; i >= 0; i = i / 26 - 1) {
+            ticker.append((char) ('A' + i % 26));
+        }
+        return ticker.reverse().toString();
+    }
+
+    // Days of the log, in order
+    public List<LocalDate> getDates() {
+        return dates;
+    }
+
+    // Writes the whole log to the file and returns the number of lines written, the header included
+    public long writeLog(Path logFile) throws IOException {
+        try (OutputStream out = Files.newOutputStream(logFile)) {
+            return writeLog(out);
+        }
+    }
+
+    public long writeLog(OutputStream out) throws IOException {
+        out.write(HEADER);
+        long blocksPerDay = (settings.tradesPerDay + BLOCK_LINES - 1) / BLOCK_LINES;
+        long blockCount = blocksPerDay * dates.size();
+        ExecutorService executorService = Executors.newFixedThreadPool(settings.threads, r -> {
+            Thread t = new Thread(r, "market-log-generator");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            long nextBlock = 0;
+            while (nextBlock < blockCount || !pending.isEmpty()) {
+                while (nextBlock < blockCount && pending.size() < settings.threads * BLOCKS_IN_FLIGHT_PER_THREAD) {
+                    int day = (int) (nextBlock / blocksPerDay);
+                    long block = nextBlock % blocksPerDay;
+                    pending.add(executorService.submit(() -> generateBlock(day, block)));
+                    nextBlock++;
+                }
+                out.write(pending.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating the log", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to generate the log", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        return 1 + settings.tradesPerDay * dates.size();
+    }
+
+    // The whole log in memory, for the benchmarks that parse it again and again
+    public byte[] logBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeLog(out);
+        return out.toByteArray();
+    }
+
+    // The trades of the log in the order of the lines, parsed with the ticker ids of the table
+    public List<Trade> trades(TickerSymbolTable symbols) throws IOException {
+        return new FileTradeParser(symbols, new MetricsRegistry()).parseTrades(new ByteArrayInputStream(logBytes()));
+    }
+
+    // Market weights of the most traded tickers, in the order of the tickers
+    public Map<String, BigDecimal> weights() {
+        SplittableRandom random = new SplittableRandom(settings.seed);
+        int[] shares = new int[settings.indexTickerCount];
+        int total = 0;
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = 1 + random.nextInt(100);
+            total += shares[i];
+        }
+        Map<String, BigDecimal> weights = new LinkedHashMap<>();
+        for (int i = 0; i < shares.length; i++) {
+            weights.put(tickerOf(i), BigDecimal.valueOf(shares[i]).divide(BigDecimal.valueOf(total), 4, RoundingMode.HALF_UP));
+        }
+        return weights;
+    }
+
+    // The weights in the format of market_weights.txt
+    public byte[] weightsBytes() {
+        StringBuilder weights = new StringBuilder();
+        weights().forEach((ticker, weight) -> weights.append(ticker).append(": ").append(weight.toPlainString()).append('\n'));
+        return weights.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public void writeWeights(Path weightsFile) throws IOException {
+        Files.write(weightsFile, weightsBytes());
+    }
+
+    // Generates the lines [block * BLOCK_LINES, (block + 1) * BLOCK_LINES) of the day
+    private byte[] generateBlock(int day, long block) {
+        SplittableRandom random = new SplittableRandom(mix(settings.seed, day, block));
+        byte[] datePrefix = (dates.get(day) + " ").getBytes(StandardCharsets.US_ASCII);
+        long first = block * BLOCK_LINES;
+        long last = Math.min(settings.tradesPerDay, first + BLOCK_LINES);
+        LineBuffer lines = new LineBuffer((int) (last - first) * 40);
+        for (long trade = first; trade < last; trade++) {
+            long second = OPEN_SECOND + trade * TRADING_SECONDS / settings.tradesPerDay;
+            if (settings.outOfOrderRate > 0 && random.nextDouble() < settings.outOfOrderRate) {
+                second = Math.max(0, second - 1 - random.nextInt(settings.maxDelaySeconds + 1));
+            }
+            int ticker = nextTicker(random);
+            long referencePrice = referencePrices[ticker];
+            long spread = referencePrice * PRICE_SPREAD_PERCENT / 100;
+            long price = Math.max(1, referencePrice - spread + random.nextLong(2 * spread + 1));
+            int quantity = 1 + random.nextInt(1000);
+            int malformation = settings.malformedRate > 0 && random.nextDouble() < settings.malformedRate ? 1 + random.nextInt(4) : 0;
+
+            // date+time;ticker;price;quantity, with one of the fields spoiled when the line is malformed
+            if (malformation == 1) {
+                lines.append("not-a-date");
+            } else {
+                lines.append(datePrefix).appendTime((int) second);
+            }
+            lines.append((byte) ';').append(tickers[ticker]).append((byte) ';');
+            if (malformation == 2) {
+                lines.append("n/a");
+            } else {
+                lines.appendCents(price);
+            }
+            if (malformation == 3) {
+                // The quantity is missing
+                lines.append((byte) '\n');
+                continue;
+            }
+            lines.append((byte) ';');
+            if (malformation == 4) {
+                lines.append("many");
+            } else {
+                lines.appendNumber(quantity);
+            }
+            lines.append((byte) '\n');
+        }
+        return lines.toByteArray();
+    }
+
+    private int nextTicker(SplittableRandom random) {
+        if (tickerDistribution == null) {
+            return random.nextInt(settings.tickerCount);
+        }
+        int rank = Arrays.binarySearch(tickerDistribution, random.nextDouble());
+        return Math.min(rank < 0 ? -rank - 1 : rank, settings.tickerCount - 1);
+    }
+
+    private static double[] zipfDistribution(int tickerCount, double skew) {
+        double[] cumulative = new double[tickerCount];
+        double sum = 0;
+        for (int rank = 0; rank < tickerCount; rank++) {
+            sum += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < tickerCount; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static List<LocalDate> tradingDates(Settings settings) {
+        SplittableRandom random = new SplittableRandom(settings.seed);
+        List<LocalDate> dates = new ArrayList<>(settings.days);
+        for (LocalDate date = settings.firstDay; dates.size() < settings.days; date = date.plusDays(1)) {
+            boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+            // The random draw is made for every day so that the gaps do not depend on skipWeekends
+            boolean gap = random.nextDouble() < settings.dayGapRate;
+            if (!gap && !(weekend && settings.skipWeekends)) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+
+    // Seed of the random generator of a block, the blocks next to each other get unrelated seeds
+    private static long mix(long seed, int day, long block) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) day << 32) + block + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Growable byte array that formats the fields of the lines without creating Strings
+    private static final class LineBuffer {
+        private byte[] bytes;
+        private int size;
+
+        private LineBuffer(int capacity) {
+            bytes = new byte[Math.max(capacity, 64)];
+        }
+
+        private LineBuffer append(byte b) {
+            ensureCapacity(1);
+            bytes[size++] = b;
+            return this;
+        }
+
+        private LineBuffer append(byte[] b) {
+            ensureCapacity(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+            return this;
+        }
+
+        private LineBuffer append(String ascii) {
+            return append(ascii.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        // hh:mm:ss of the second of the day
+        private LineBuffer appendTime(int secondOfDay) {
+            ensureCapacity(8);
+            appendTwoDigits(secondOfDay / 3600);
+            bytes[size++] = ':';
+            appendTwoDigits(secondOfDay / 60 % 60);
+            bytes[size++] = ':';
+            appendTwoDigits(secondOfDay % 60);
+            return this;
+        }
+
+        // A price in cents with its two decimals, e.g. 12345 gives 123.45
+        private LineBuffer appendCents(long cents) {
+            appendNumber(cents / 100);
+            ensureCapacity(3);
+            bytes[size++] = '.';
+            appendTwoDigits((int) (cents % 100));
+            return this;
+        }
+
+        private LineBuffer appendNumber(long value) {
+            ensureCapacity(20);
+            int start = size;
+            do {
+                bytes[size++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            // The digits were written from the last one
+            for (int i = start, j = size - 1; i < j; i++, j--) {
+                byte digit = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = digit;
+            }
+            return this;
+        }
+
+        private void appendTwoDigits(int value) {
+            bytes[size++] = (byte) ('0' + value / 10);
+            bytes[size++] = (byte) ('0' + value % 10);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketLogGeneratorTest {
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testSameSettingsGiveSameLogWhateverTheThreads() throws IOException {
+        // More lines per day than a block, so that every day is generated by several tasks
+        MarketLogGenerator.Settings.SettingsBuilder settings = MarketLogGenerator.Settings.builder()
+                .tickerCount(20).tradesPerDay(70_000).days(2).skew(1).outOfOrderRate(0.01).malformedRate(0.001);
+
+        byte[] singleThread = generate(settings.threads(1).build());
+        byte[] threeThreads = generate(settings.threads(3).build());
+        byte[] otherSeed = generate(settings.threads(3).seed(7).build());
+
+        assertArrayEquals(singleThread, threeThreads);
+        assertNotEquals(new String(singleThread, StandardCharsets.US_ASCII), new String(otherSeed, StandardCharsets.US_ASCII));
+        assertEquals(1 + 140_000, new String(singleThread, StandardCharsets.US_ASCII).lines().count());
+    }
+
+    @Test
+    void testLogIsParsedWithSkewedTickersAndLateTrades() throws IOException {
+        MarketLogGenerator.Settings settings = MarketLogGenerator.Settings.builder()
+                .tickerCount(10).tradesPerDay(10_000).days(3).skew(1).outOfOrderRate(0.1).maxDelaySeconds(30).build();
+        Path log = tempDir.resolve("market_log.txt");
+        assertEquals(1 + 30_000, new MarketLogGenerator(settings).writeLog(log));
+
+        List<Trade> trades = new FileTradeParser(symbols, metrics).parseTrades(Files.newInputStream(log));
+
+        assertEquals(30_000, trades.size());
+        Map<String, Integer> tradesByTicker = new HashMap<>();
+        int lateTrades = 0;
+        for (int i = 0; i < trades.size(); i++) {
+            Trade trade = trades.get(i);
+            LocalTime time = trade.getTimestamp().toLocalTime();
+            assertFalse(time.isBefore(LocalTime.of(8, 59)) || time.isAfter(LocalTime.of(17, 0)), trade.toString());
+            assertTrue(trade.getPrice().signum() > 0 && trade.getPrice().scale() == 2);
+            assertTrue(trade.getQuantity() >= 1 && trade.getQuantity() <= 1000);
+            if (i > 0 && trade.getTimestamp().isBefore(trades.get(i - 1).getTimestamp())) {
+                lateTrades++;
+            }
+            tradesByTicker.merge(trade.getTicker(), 1, Integer::sum);
+        }
+        // With a skew of 1 the first ticker trades about ten times as often as the tenth one
+        assertTrue(tradesByTicker.get("A") > 5 * tradesByTicker.get("J"), tradesByTicker.toString());
+        assertTrue(lateTrades > 1_000 && lateTrades < 5_000, "late trades: " + lateTrades);
+    }
+
+    @Test
+    void testMalformedLinesAreNotParsed() throws IOException {
+        MarketLogGenerator.Settings settings = MarketLogGenerator.Settings.builder()
+                .tickerCount(5).tradesPerDay(10_000).days(1).malformedRate(0.1).build();
+        List<Trade> trades = new ArrayList<>();
+        List<RejectedLine> rejects = new ArrayList<>();
+
+        new FileTradeParser(symbols, metrics).parseTrades(new ByteArrayInputStream(generate(settings)), trades::add, rejects::add);
+
+        assertEquals(10_000, trades.size() + rejects.size());
+        assertTrue(rejects.size() > 800 && rejects.size() < 1_200, "malformed lines: " + rejects.size());
+    }
+
+    @Test
+    void testDayGapsAndWeekendsAreSkipped() {
+        MarketLogGenerator.Settings settings = MarketLogGenerator.Settings.builder()
+                .days(60).dayGapRate(0.2).skipWeekends(true).firstDay(LocalDate.of(2025, 1, 4)).build();
+
+        List<LocalDate> dates = new MarketLogGenerator(settings).getDates();
+
+        assertEquals(60, dates.size());
+        assertEquals(List.copyOf(new TreeSet<>(dates)), dates);
+        assertTrue(dates.stream().noneMatch(date -> date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY));
+        // 60 days without weekends take 84 calendar days, the gaps take more
+        assertTrue(dates.get(59).isAfter(LocalDate.of(2025, 1, 4).plusDays(84)), dates.get(59).toString());
+    }
+
+    @Test
+    void testWeightsOfTheMostTradedTickers() throws IOException {
+        MarketLogGenerator generator = new MarketLogGenerator(MarketLogGenerator.Settings.builder().indexTickerCount(3).build());
+        Path weightsFile = tempDir.resolve("market_weights.txt");
+
+        generator.writeWeights(weightsFile);
+        Map<String, BigDecimal> weights = new FileMarketWeightsParser().parseMarketWeights(Files.newInputStream(weightsFile));
+
+        assertEquals(List.of("A", "B", "C"), new ArrayList<>(new TreeSet<>(weights.keySet())));
+        BigDecimal total = weights.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertTrue(total.subtract(BigDecimal.ONE).abs().compareTo(new BigDecimal("0.001")) <= 0, total.toString());
+    }
+
+    @Test
+    void testTradesAreTheLinesOfTheLog() throws IOException {
+        MarketLogGenerator.Settings settings = MarketLogGenerator.Settings.builder().tickerCount(5).tradesPerDay(1_000).days(2).build();
+        MarketLogGenerator generator = new MarketLogGenerator(settings);
+
+        List<Trade> trades = generator.trades(symbols);
+
+        assertArrayEquals(generate(settings), generator.logBytes());
+        assertEquals(2_000, trades.size());
+        assertEquals(symbols.idOf(trades.get(0).getTicker()), trades.get(0).getTickerId());
+        assertEquals(generator.getDates().get(1), trades.get(1_999).getTimestamp().toLocalDate());
+    }
+
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new MarketLogGenerator(MarketLogGenerator.Settings.builder().tickerCount(0).build()));
+        assertThrows(IllegalArgumentException.class, () -> new MarketLogGenerator(MarketLogGenerator.Settings.builder().malformedRate(1.5).build()));
+        assertThrows(IllegalArgumentException.class, () -> new MarketLogGenerator(MarketLogGenerator.Settings.builder().dayGapRate(1).build()));
+        assertThrows(IllegalArgumentException.class, () -> new MarketLogGenerator(MarketLogGenerator.Settings.builder().indexTickerCount(200).build()));
+        assertEquals("Z", MarketLogGenerator.tickerOf(25));
+        assertEquals("AA", MarketLogGenerator.tickerOf(26));
+    }
+
+    private static byte[] generate(MarketLogGenerator.Settings settings) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MarketLogGenerator(settings).writeLog(out);
+        return out.toByteArray();
+    }
+}
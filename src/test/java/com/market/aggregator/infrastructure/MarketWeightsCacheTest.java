@@ -0,0 +1,106 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MarketWeightsCacheTest {
+    private static final String WEIGHTS = "ABC: 0.25\nXYZ: 0.75\n";
+    private static final String NEW_WEIGHTS = "ABC: 0.75\nXYZ: 0.25\n";
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MarketWeightsCache cache = new MarketWeightsCache(new FileMarketWeightsParser(), symbols);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testLoadStream_givenSameContent_thenCachedWeights() throws IOException {
+        assertNull(cache.current());
+        MarketWeights weights = cache.load(stream(WEIGHTS));
+
+        assertSame(weights, cache.load(stream(WEIGHTS)));
+        assertSame(weights, cache.current());
+        assertEquals(new BigDecimal("0.25"), weights.weightOf(symbols.idOf("ABC")));
+    }
+
+    @Test
+    void testLoadStream_givenNewContent_thenNewWeights() throws IOException {
+        MarketWeights weights = cache.load(stream(WEIGHTS));
+        MarketWeights newWeights = cache.load(stream(NEW_WEIGHTS));
+
+        assertNotSame(weights, newWeights);
+        assertSame(newWeights, cache.current());
+        assertEquals(new BigDecimal("0.75"), newWeights.weightOf(symbols.idOf("ABC")));
+        // The weights loaded before are left as they were
+        assertEquals(new BigDecimal("0.25"), weights.weightOf(symbols.idOf("ABC")));
+    }
+
+    @Test
+    void testLoadFile_givenSameModificationTime_thenFileNotRead() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("weights.txt"), WEIGHTS, StandardCharsets.UTF_8);
+        FileTime modified = FileTime.from(Instant.parse("2025-01-20T09:00:00Z"));
+        Files.setLastModifiedTime(file, modified);
+        MarketWeights weights = cache.load(file);
+
+        // Same size and same modification time, the new content is not read
+        Files.writeString(file, NEW_WEIGHTS, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, modified);
+        assertSame(weights, cache.load(file));
+    }
+
+    @Test
+    void testLoadFile_givenTouchedFile_thenCachedWeights() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("weights.txt"), WEIGHTS, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-20T09:00:00Z")));
+        MarketWeights weights = cache.load(file);
+
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-20T10:00:00Z")));
+        assertSame(weights, cache.load(file));
+    }
+
+    @Test
+    void testLoadFile_givenModifiedFile_thenNewWeights() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("weights.txt"), WEIGHTS, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-20T09:00:00Z")));
+        MarketWeights weights = cache.load(file);
+
+        Files.writeString(file, NEW_WEIGHTS + "# reviewed\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-20T10:00:00Z")));
+        MarketWeights newWeights = cache.load(file);
+
+        assertNotSame(weights, newWeights);
+        assertEquals(new BigDecimal("0.25"), newWeights.weightOf(symbols.idOf("XYZ")));
+    }
+
+    @Test
+    void testLoadFile_givenInvalidFile_thenLastWeightsKept() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("weights.txt"), WEIGHTS, StandardCharsets.UTF_8);
+        MarketWeights weights = cache.load(file);
+
+        Files.writeString(file, "ABC 0.25\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-20T10:00:00Z")));
+        assertThrows(IllegalArgumentException.class, () -> cache.load(file));
+        assertSame(weights, cache.current());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,53 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RejectFileTest {
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testRejectedLinesAreNumberedFromTheirOffset() throws IOException {
+        // \r\n, \r and \n line breaks are counted the same way as BufferedReader
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, "2025-01-20 09:00:01;ABC;100;500\r\n"
+                + "not-a-date;ABC;100;500\r"
+                + "\r\n"
+                + "2025-01-20 09:00:02;ABC;100\n"
+                + "2025-01-20 09:00:03;ABC;100;many", StandardCharsets.UTF_8);
+        Path rejectPath = tempDir.resolve("rejects.txt");
+        List<RejectedLine> rejects = new ArrayList<>();
+        new MappedTradeParser(symbols, metrics, 64).parseTrades(log, trades -> { }, rejects::add);
+
+        try (RejectFile rejectFile = new RejectFile(rejectPath, log)) {
+            rejects.forEach(rejectFile);
+            rejectFile.accept(new RejectedLine(9, -1, RejectReason.INVALID_PRICE, "numbered by the parser"));
+
+            assertEquals(4, rejectFile.getRejectedLines());
+            assertEquals(Map.of(RejectReason.INVALID_TIMESTAMP, 1L, RejectReason.MISSING_FIELDS, 1L,
+                    RejectReason.INVALID_QUANTITY, 1L, RejectReason.INVALID_PRICE, 1L), rejectFile.getCounts());
+        }
+
+        assertEquals(List.of(
+                "2;INVALID_TIMESTAMP;not-a-date;ABC;100;500",
+                "4;MISSING_FIELDS;2025-01-20 09:00:02;ABC;100",
+                "5;INVALID_QUANTITY;2025-01-20 09:00:03;ABC;100;many",
+                "9;INVALID_PRICE;numbered by the parser"), Files.readAllLines(rejectPath, StandardCharsets.UTF_8));
+    }
+}
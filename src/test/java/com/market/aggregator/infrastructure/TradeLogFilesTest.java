@@ -0,0 +1,37 @@
+package com.market.aggregator.infrastructure;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeLogFilesTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testResolveFileDirectoryAndGlob() throws IOException {
+        Path venueA = Files.createDirectories(tempDir.resolve("venue-a"));
+        Path venueB = Files.createDirectories(tempDir.resolve("venue-b"));
+        Path a20 = Files.writeString(venueA.resolve("2025-01-20.txt"), "");
+        Path a21 = Files.writeString(venueA.resolve("2025-01-21.txt"), "");
+        Path b20 = Files.writeString(venueB.resolve("2025-01-20.txt"), "");
+        // Day indexes and files being written are not logs
+        Files.writeString(TradeLogIndex.sidecarOf(a20), "");
+        Files.writeString(venueA.resolve("2025-01-22.txt.tmp"), "");
+
+        assertEquals(List.of(a20), TradeLogFiles.resolve(a20.toString()));
+        assertEquals(List.of(a20, a21), TradeLogFiles.resolve(venueA.toString()));
+        assertEquals(List.of(a20, a21, b20), TradeLogFiles.resolve(tempDir + "/venue-*/*.txt"));
+        assertEquals(List.of(a20, b20), TradeLogFiles.resolve(tempDir + "/*/2025-01-20.txt"));
+        assertEquals(List.of(a20, a21, b20), TradeLogFiles.resolve(tempDir + "/**.txt"));
+        assertTrue(TradeLogFiles.resolve(tempDir + "/venue-c/*.txt").isEmpty());
+        assertTrue(TradeLogFiles.resolve(tempDir.resolve("missing.txt").toString()).isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeLogFollowerTest {
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MappedTradeParser parser = new MappedTradeParser(symbols, metrics);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testPollOnlyParsesAppendedLines() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, "2025-01-20 09:00:01;ABC;100;500\n");
+        List<Trade> trades = new ArrayList<>();
+
+        try (TradeLogFollower follower = new TradeLogFollower(parser, log)) {
+            assertEquals(1, follower.poll(trades::add));
+            assertEquals(0, follower.poll(trades::add));
+
+            append(log, "2025-01-20 09:00:02;ABC;101;10\n2025-01-20 09:00:03;MEGA;20");
+            // The last line has no line break yet, it is still being written
+            assertEquals(1, follower.poll(trades::add));
+            assertEquals(63, follower.getPosition());
+
+            append(log, "0;5\r\n");
+            assertEquals(1, follower.poll(trades::add));
+            assertEquals(0, follower.poll(trades::add));
+        }
+
+        assertEquals(3, trades.size());
+        assertEquals(new BigDecimal("101"), trades.get(1).getPrice());
+        assertEquals("MEGA", trades.get(2).getTicker());
+        assertEquals(new BigDecimal("200"), trades.get(2).getPrice());
+        assertEquals(5, trades.get(2).getQuantity());
+    }
+
+    @Test
+    void testPollSegmentsFromPosition() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, "2025-01-20 09:00:01;ABC;100;500\n2025-01-20 09:00:02;ABC;101;10\n2025-01-20 09:00:03;MEGA;200;5\n");
+        List<Trade> trades = new ArrayList<>();
+
+        // Start after the first line, reading about 40 bytes at a time
+        try (TradeLogFollower follower = new TradeLogFollower(parser, log, 32)) {
+            assertEquals(1, follower.poll(trades::add, 40));
+            assertEquals(63, follower.getPosition());
+            // A line longer than the segment is read whole
+            assertEquals(1, follower.poll(trades::add, 10));
+            assertEquals(0, follower.poll(trades::add, 10));
+        }
+
+        assertEquals(List.of(new BigDecimal("101"), new BigDecimal("200")), trades.stream().map(Trade::getPrice).toList());
+    }
+
+    @Test
+    void testPollTruncatedLogThrows() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, "2025-01-20 09:00:01;ABC;100;500\n");
+
+        try (TradeLogFollower follower = new TradeLogFollower(parser, log)) {
+            follower.poll(trade -> { });
+            Files.writeString(log, "");
+
+            assertThrows(IllegalStateException.class, () -> follower.poll(trade -> { }));
+        }
+    }
+
+    @Test
+    void testLastLineEnd() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        // A line longer than the bytes read at a time when looking for a line break
+        Files.writeString(log, "a\r" + "b".repeat(20_000) + "\nc", StandardCharsets.UTF_8);
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            assertEquals(20_003, parser.lastLineEnd(channel, 0, channel.size()));
+            assertEquals(2, parser.lastLineEnd(channel, 0, 20_002));
+            assertEquals(2, parser.lastLineEnd(channel, 2, 20_002));
+            assertEquals(20_003, parser.lastLineEnd(channel, 20_003, channel.size()));
+        }
+    }
+
+    private static void append(Path log, String content) throws IOException {
+        Files.writeString(log, content, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+}
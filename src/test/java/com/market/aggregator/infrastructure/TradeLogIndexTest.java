@@ -0,0 +1,127 @@
+package com.market.aggregator.infrastructure;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeLogIndexTest {
+    private static final LocalDate DAY_1 = LocalDate.of(2025, 1, 20);
+    private static final LocalDate DAY_2 = LocalDate.of(2025, 1, 21);
+    private static final LocalDate DAY_3 = LocalDate.of(2025, 1, 22);
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MappedTradeParser parser = new MappedTradeParser(symbols, metrics);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testRangesHoldTheTradesOfTheirDays() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, """
+                2025-01-20 09:00:01;ABC;100;500
+                # a comment
+                2025-01-20 09:00:02;MEGA;20;5
+                2025-01-21 09:00:01;ABC;101;10
+                2025-01-20 17:00:00;ABC;99;1
+
+                2025-01-22 09:00:01;NGL;3;100
+                2025-01-22 10:00:01;ABC;102;7""");
+
+        TradeLogIndex index = TradeLogIndex.of(parser, log);
+
+        assertEquals(List.of(DAY_1, DAY_2, DAY_3), List.copyOf(index.getDates()));
+        // The late trade of the first day makes a second range
+        assertEquals(2, index.rangesFor(DAY_1, DAY_1).size());
+        // The last line has no line break, it is found but left out of the sidecar file until it gets one
+        assertEquals(Files.size(log) - "2025-01-22 10:00:01;ABC;102;7".length(), index.getIndexedSize());
+        for (LocalDate from : index.getDates()) {
+            for (LocalDate to : index.getDates().tailSet(from)) {
+                assertEquals(tradesBetween(parseAll(log), from, to), parse(log, index.rangesFor(from, to)));
+            }
+        }
+        assertTrue(index.rangesFor(DAY_3.plusDays(1), DAY_3.plusDays(5)).isEmpty());
+        assertTrue(Files.exists(TradeLogIndex.sidecarOf(log)));
+    }
+
+    @Test
+    void testIndexIsExtendedWhenTheLogGrows() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, "2025-01-20 09:00:01;ABC;100;500\n2025-01-21 09:00:01;ABC;101;10\n2025-01-21 09:00:02;MEGA;2");
+        TradeLogIndex index = TradeLogIndex.of(parser, log);
+        // The last line has no line break yet, it is still being written
+        assertEquals(63, index.getIndexedSize());
+
+        Files.writeString(log, "0;5\n2025-01-21 09:00:03;ABC;102;1\n2025-01-22 09:00:01;NGL;3;100\n", StandardOpenOption.APPEND);
+        index = TradeLogIndex.of(parser, log);
+
+        assertEquals(Files.size(log), index.getIndexedSize());
+        // The lines of the second day appended after the first index still make one range
+        assertEquals(1, index.rangesFor(DAY_2, DAY_2).size());
+        assertEquals(tradesBetween(parseAll(log), DAY_2, DAY_3), parse(log, index.rangesFor(DAY_2, DAY_3)));
+    }
+
+    @Test
+    void testIndexOfAnotherLogIsRebuilt() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, "2025-01-20 09:00:01;ABC;100;500\n2025-01-21 09:00:01;ABC;101;10\n");
+        TradeLogIndex.of(parser, log);
+
+        // Same length, other days
+        Files.writeString(log, "2025-01-22 09:00:01;ABC;100;500\n2025-01-22 09:00:02;ABC;101;10\n");
+        TradeLogIndex index = TradeLogIndex.of(parser, log);
+
+        assertEquals(List.of(DAY_3), List.copyOf(index.getDates()));
+        assertEquals(2, parse(log, index.rangesFor(DAY_1, DAY_3)).size());
+    }
+
+    @Test
+    void testDamagedIndexIsRebuilt() throws IOException {
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, "2025-01-20 09:00:01;ABC;100;500\n2025-01-21 09:00:01;ABC;101;10\n");
+        TradeLogIndex.of(parser, log);
+        Path sidecar = TradeLogIndex.sidecarOf(log);
+        byte[] content = Files.readAllBytes(sidecar);
+        content[content.length / 2] ^= 1;
+        Files.write(sidecar, content);
+
+        TradeLogIndex index = TradeLogIndex.of(parser, log);
+
+        assertEquals(List.of(DAY_1, DAY_2), List.copyOf(index.getDates()));
+        assertEquals(1, parse(log, index.rangesFor(DAY_2, DAY_2)).size());
+    }
+
+    private List<Trade> parse(Path log, List<MappedTradeParser.Chunk> ranges) throws IOException {
+        List<Trade> trades = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            for (MappedTradeParser.Chunk range : ranges) {
+                parser.parseRange(channel, range.start(), range.end(), trades::add);
+            }
+        }
+        return trades;
+    }
+
+    private List<Trade> parseAll(Path log) throws IOException {
+        return parse(log, List.of(new MappedTradeParser.Chunk(0, Files.size(log))));
+    }
+
+    private static List<Trade> tradesBetween(List<Trade> trades, LocalDate from, LocalDate to) {
+        return trades.stream()
+                .filter(trade -> !trade.getTimestamp().toLocalDate().isBefore(from) && !trade.getTimestamp().toLocalDate().isAfter(to))
+                .toList();
+    }
+}
@@ -0,0 +1,127 @@
+package com.market.aggregator.metrics;
+
+import com.market.aggregator.domain.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    void testCountersAreIgnoredWhenDisabled() {
+        Counter counter = registry.counter("lines");
+        counter.add(5);
+        counter.increment();
+        registry.setEnabled(false);
+        counter.add(100);
+        registry.histogram("latency").record(1_000);
+
+        assertEquals(6, registry.counter("lines").get());
+        assertEquals(0, registry.histogram("latency").getCount());
+        assertSame(counter, registry.counter("lines"));
+    }
+
+    @Test
+    void testBucketsHoldTheirBounds() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 100, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value, "upper bound of " + value);
+            assertTrue(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < value, "lower bound of " + value);
+            // Every bucket is at most 12.5% wide
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) - value <= value / 8 + 1, "width of " + value);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = registry.histogram("latency");
+        assertEquals(0, histogram.percentile(0.5));
+        List<Long> values = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long value = 100 + random.nextInt(1_000_000);
+            values.add(value);
+            histogram.record(value);
+        }
+        values.sort(null);
+
+        for (double share : new double[]{0.5, 0.9, 0.99, 1}) {
+            long exact = values.get((int) Math.ceil(share * values.size()) - 1);
+            long estimate = histogram.percentile(share);
+            assertTrue(estimate >= exact && estimate <= exact + exact / 8 + 1, share + ": " + estimate + " for " + exact);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(values.stream().mapToLong(Long::longValue).sum(), histogram.getTotalNanos());
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(1.5));
+    }
+
+    @Test
+    void testTradeMeterCountsAndSamplesTheTrades() {
+        List<Trade> aggregated = new ArrayList<>();
+        Consumer<Trade> meter = TradeMeter.of(aggregated::add, registry);
+        Trade trade = Trade.builder().timestamp(LocalDateTime.of(2025, 1, 20, 9, 0)).ticker("ABC").price(BigDecimal.TEN).quantity(1).build();
+
+        for (int i = 0; i < 5_000; i++) {
+            meter.accept(trade);
+        }
+        // Only the full batches of 1024 trades are counted before the meter is closed
+        assertEquals(4 * 1024, registry.counter(MetricsRegistry.AGGREGATED_TRADES).get());
+        TradeMeter.close(meter);
+
+        assertEquals(5_000, aggregated.size());
+        assertEquals(5_000, registry.counter(MetricsRegistry.AGGREGATED_TRADES).get());
+        assertEquals(4, registry.histogram(MetricsRegistry.AGGREGATE_LATENCY).getCount());
+        assertEquals(4, registry.histogram(MetricsRegistry.PARSE_LATENCY).getCount());
+
+        registry.setEnabled(false);
+        Consumer<Trade> unmetered = aggregated::add;
+        assertSame(unmetered, TradeMeter.of(unmetered, registry));
+    }
+
+    @Test
+    void testTradeMetersOfAParserAndOfItsWorkers() {
+        List<Trade> handedOver = new ArrayList<>();
+        Consumer<Trade> parsing = TradeMeter.parsing(handedOver::add, registry);
+        Consumer<Trade> aggregating = TradeMeter.aggregating(handedOver::add, registry);
+        Trade trade = Trade.builder().timestamp(LocalDateTime.of(2025, 1, 20, 9, 0)).ticker("ABC").price(BigDecimal.TEN).quantity(1).build();
+
+        for (int i = 0; i < 3_000; i++) {
+            parsing.accept(trade);
+            aggregating.accept(trade);
+            TradeMeter.task(trade, i, handedOver::add, registry).run();
+        }
+        TradeMeter.close(parsing);
+        TradeMeter.close(aggregating);
+
+        // The parser only times the parsing, the workers count and time the aggregation, a task of one trade only times it
+        assertEquals(9_000, handedOver.size());
+        assertEquals(3_000, registry.counter(MetricsRegistry.AGGREGATED_TRADES).get());
+        assertEquals(2, registry.histogram(MetricsRegistry.PARSE_LATENCY).getCount());
+        assertEquals(4, registry.histogram(MetricsRegistry.AGGREGATE_LATENCY).getCount());
+    }
+
+    @Test
+    void testSummary() {
+        registry.counter(MetricsRegistry.PARSED_LINES).add(42);
+        registry.histogram(MetricsRegistry.PRINT_LATENCY).record(2_500_000);
+        registry.gauge(MetricsRegistry.EXECUTOR_QUEUE, () -> 3);
+
+        try (MetricsReporter reporter = new MetricsReporter(registry, Duration.ZERO)) {
+            String summary = reporter.summary();
+            assertTrue(summary.contains("parse.lines=42 ("), summary);
+            assertTrue(summary.contains("latency.print p50=2.6 ms p99=2.6 ms n=1"), summary);
+            assertTrue(summary.contains("executor.queue=3"), summary);
+        }
+        assertEquals("850 ns", MetricsReporter.formatNanos(850));
+        assertEquals("12.5 us", MetricsReporter.formatNanos(12_500));
+    }
+}
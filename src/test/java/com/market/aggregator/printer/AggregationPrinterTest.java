@@ -0,0 +1,115 @@
+package com.market.aggregator.printer;
+
+import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.IntradayIndexPoint;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregationPrinterTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 1, 20);
+
+    // Values that exercise rounding, signs, leading zeros and numbers too long to be written directly
+    private static final List<String> TRICKY_VALUES = List.of("0", "0.05", "0.04", "-0.04", "-0.05", "105", "100.25",
+            "100.35", "1.005", "0.001", "-1234.5678", "99.95", "1E+3", "1E+20", "123456789012345.6", "0.1234567890123456789",
+            "2E+23", "-999999999999999");
+
+    @Test
+    void testPrintDayAggregationsIsTheSameAsPrintf() throws IOException {
+        List<String> values = new ArrayList<>(TRICKY_VALUES);
+        Random random = new Random(12);
+        for (int i = 0; i < 2000; i++) {
+            values.add(BigDecimal.valueOf(random.nextLong() % 100_000_000_000L, random.nextInt(6)).toPlainString());
+        }
+        Map<String, AggregationRecord> dayAggregation = new HashMap<>();
+        List<String> tickers = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            String ticker = "T" + i;
+            tickers.add(ticker);
+            BigDecimal value = new BigDecimal(values.get(i));
+            AggregationRecord record = AggregationRecord.of(ticker);
+            record.setOpenTime(DATE.atTime(9, 0));
+            record.setCloseTime(DATE.atTime(10, 0));
+            record.setOpenPrice(value);
+            record.setClosePrice(value.negate());
+            record.setHighestPrice(value);
+            record.setLowestPrice(value);
+            record.setVolumeOfTrades(value);
+            dayAggregation.put(ticker, record);
+        }
+        tickers.add("NOT_TRADED");
+
+        StringWriter out = new StringWriter();
+        AggregationPrinter printer = new AggregationPrinter(OutputSink.of(out));
+        printer.printDayAggregations(DATE, Set.copyOf(tickers), dayAggregation);
+        printer.printMarketIndex(DATE, new BigDecimal("180.05"));
+        printer.printMarketIndex(DATE, null);
+        printer.flush();
+
+        assertEquals(printfDayAggregations(tickers, dayAggregation), out.toString());
+    }
+
+    @Test
+    void testPrintIntradayIndex() throws IOException {
+        StringWriter out = new StringWriter();
+        AggregationPrinter printer = new AggregationPrinter(OutputSink.of(out));
+        LocalDateTime start = DATE.atTime(23, 59, 30);
+
+        printer.printIntradayIndex(new IntradayIndexPoint(start, start.plusSeconds(30), new BigDecimal("151.25")));
+        printer.printIntradayIndex(new IntradayIndexPoint(start, start.plusSeconds(30), null));
+        printer.flush();
+
+        String lineSeparator = System.lineSeparator();
+        assertEquals("Intraday index 2025-01-20 23:59:30-00:00: 151.3" + lineSeparator
+                + "Intraday index 2025-01-20 23:59:30-00:00: N/A" + lineSeparator, out.toString());
+    }
+
+    @Test
+    void testLinesAreBufferedUntilFlush() throws IOException {
+        List<String> writes = new ArrayList<>();
+        AggregationPrinter printer = new AggregationPrinter(text -> writes.add(text.toString()));
+
+        printer.printMarketIndex(DATE, BigDecimal.ONE);
+        assertTrue(writes.isEmpty());
+
+        printer.flush();
+        printer.flush();
+        assertEquals(1, writes.size());
+    }
+
+    private static String printfDayAggregations(List<String> tickers, Map<String, AggregationRecord> dayAggregation) {
+        StringBuilder expected = new StringBuilder();
+        expected.append("Date: ").append(DATE).append(System.lineSeparator());
+        for (String ticker : tickers.stream().sorted().toList()) {
+            AggregationRecord record = dayAggregation.get(ticker);
+            if (record != null) {
+                expected.append(String.format("Ticker: %s, Open: %.1f, Close: %.1f, High: %.1f, Low: %.1f, Volume: %.2f%n", ticker,
+                        record.getOpenPrice().doubleValue(),
+                        record.getClosePrice().doubleValue(),
+                        record.getHighestPrice().doubleValue(),
+                        record.getLowestPrice().doubleValue(),
+                        record.getVolumeOfTrades().doubleValue()));
+            } else {
+                expected.append(String.format("Ticker: %s, Open: N/A, Close: N/A, High: N/A, Low: N/A, Volume: 0.00%n", ticker));
+            }
+        }
+        expected.append(String.format("Index for %s: %.1f%n", DATE, 180.05));
+        expected.append("--------------------------------------------------").append(System.lineSeparator());
+        expected.append(String.format("Index for %s: N/A%n", DATE));
+        expected.append("--------------------------------------------------").append(System.lineSeparator());
+        return expected.toString();
+    }
+}
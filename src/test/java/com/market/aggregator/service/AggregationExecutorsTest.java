@@ -0,0 +1,37 @@
+package com.market.aggregator.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregationExecutorsTest {
+
+    @Test
+    void testClose_givenVirtualReadThreads_thenBothExecutorsAreShutDown() throws InterruptedException {
+        AggregationExecutors executors = new AggregationExecutors(ThreadMode.VIRTUAL, 2);
+        assertNotSame(executors.aggregationPool(), executors.readExecutor());
+
+        executors.close();
+
+        assertTrue(executors.aggregationPool().awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(executors.readExecutor().awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClose_givenPlatformReadThreads_thenFilesAreReadOnTheAggregationPool() throws InterruptedException {
+        AggregationExecutors executors = new AggregationExecutors(ThreadMode.PLATFORM, 2);
+        assertSame(executors.aggregationPool(), executors.readExecutor());
+        assertEquals(2, executors.parallelism());
+
+        executors.close();
+
+        assertTrue(executors.aggregationPool().awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testNew_givenNoThread_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new AggregationExecutors(ThreadMode.PLATFORM, 0));
+    }
+}
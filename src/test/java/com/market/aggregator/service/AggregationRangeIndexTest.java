@@ -0,0 +1,142 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.generateTrades;
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.trade;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The aggregation of a range of days must be the same as merging the records of every day of the range, in every store.
+class AggregationRangeIndexTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    private static final int DAY_COUNT = 23;
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+
+    @Test
+    @DisplayName("Test getAggregationBetween(LocalDate, LocalDate, int); given every range of days")
+    void testGetAggregationBetween_givenEveryRange_thenSameAsMergingTheDays() {
+        List<Trade> trades = generateTrades(5_000, 4, DAY_COUNT);
+        TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+        trades.forEach(expected::recordTrade);
+
+        for (ITickerAggregatorManager store : List.of(new TickerAggregatorManager(symbols),
+                new ColumnarTickerAggregatorManager(symbols), new OffHeapTickerAggregatorManager(symbols))) {
+            trades.forEach(store::recordTrade);
+            // The ranges start and end before and after the days of the store too
+            for (int from = -1; from <= DAY_COUNT; from++) {
+                for (int to = from; to <= DAY_COUNT; to++) {
+                    for (int ticker = 0; ticker < 4; ticker++) {
+                        assertSameRecord(mergeDays(expected, from, to, "C" + ticker),
+                                store.getAggregationBetween(FIRST_DAY.plusDays(from), FIRST_DAY.plusDays(to), "C" + ticker),
+                                store.getClass().getSimpleName() + " C" + ticker + " from day " + from + " to day " + to);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test getAggregationBetween(LocalDate, LocalDate, int); given trades recorded after a query")
+    void testGetAggregationBetween_givenNewTrades_thenRangesIncludeThem() {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 20, 9, 0);
+        TickerAggregatorManager manager = new TickerAggregatorManager(symbols);
+        manager.recordTrade(trade(time, "Ranged", "10"));
+        manager.recordTrade(trade(time.plusDays(2), "Ranged", "12"));
+        int tickerId = symbols.idOf("Ranged");
+        LocalDate from = time.toLocalDate();
+        LocalDate to = from.plusDays(6);
+
+        assertEquals(new BigDecimal("12"), manager.getAggregationBetween(from, to, tickerId).getClosePrice());
+
+        // A new day in the middle of the range, and a new close on the last day
+        manager.recordTrade(trade(time.plusDays(1), "Ranged", "15"));
+        manager.recordTrade(trade(time.plusDays(2).plusHours(1), "Ranged", "11"));
+        AggregationRecord week = manager.getAggregationBetween(from, to, tickerId);
+
+        assertEquals(new BigDecimal("10"), week.getOpenPrice());
+        assertEquals(new BigDecimal("11"), week.getClosePrice());
+        assertEquals(new BigDecimal("15"), week.getHighestPrice());
+        assertEquals(new BigDecimal("10"), week.getLowestPrice());
+        assertEquals(new BigDecimal("48000"), week.getVolumeOfTrades());
+        // The record is a copy, changing it does not change the next answers
+        week.setClosePrice(BigDecimal.ZERO);
+        assertEquals(new BigDecimal("11"), manager.getAggregationBetween(from, to, tickerId).getClosePrice());
+    }
+
+    @Test
+    @DisplayName("Test getAggregationBetween(LocalDate, LocalDate, int); given queries between the trades")
+    void testGetAggregationBetween_givenQueriesBetweenTrades_thenSameAsMergingTheDays() {
+        // Most trades fall on days the trees already have, some of them add a day
+        List<Trade> trades = generateTrades(3_000, 3, DAY_COUNT);
+        for (ITickerAggregatorManager store : List.of(new TickerAggregatorManager(symbols),
+                new ColumnarTickerAggregatorManager(symbols), new OffHeapTickerAggregatorManager(symbols))) {
+            TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+            for (int i = 0; i < trades.size(); i++) {
+                expected.recordTrade(trades.get(i));
+                store.recordTrade(trades.get(i));
+                if (i % 97 == 0) {
+                    int from = i % DAY_COUNT;
+                    int to = from + i % 7;
+                    for (int ticker = 0; ticker < 3; ticker++) {
+                        assertSameRecord(mergeDays(expected, from, to, "C" + ticker),
+                                store.getAggregationBetween(FIRST_DAY.plusDays(from), FIRST_DAY.plusDays(to), "C" + ticker),
+                                store.getClass().getSimpleName() + " C" + ticker + " after trade " + i);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test getAggregationBetween(LocalDate, LocalDate, String); given no trade in the range")
+    void testGetAggregationBetween_givenNoTrade_thenNull() {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 20, 9, 0);
+        ColumnarTickerAggregatorManager manager = new ColumnarTickerAggregatorManager(symbols);
+        manager.recordTrade(trade(time, "Ranged", "10"));
+        LocalDate day = time.toLocalDate();
+
+        assertNull(manager.getAggregationBetween(day.plusDays(1), day.plusDays(7), "Ranged"));
+        assertNull(manager.getAggregationBetween(day, day, "NeverTraded"));
+        assertThrows(IllegalArgumentException.class, () -> manager.getAggregationBetween(day, day.minusDays(1), "Ranged"));
+    }
+
+    // Merges the daily records of the ticker one day at a time
+    private static AggregationRecord mergeDays(TickerAggregatorManager aggregations, int from, int to, String ticker) {
+        AggregationRecord range = null;
+        for (int day = from; day <= to; day++) {
+            AggregationRecord record = aggregations.getAggregationFor(FIRST_DAY.plusDays(day)).get(ticker);
+            if (record != null) {
+                if (range == null) {
+                    range = AggregationRecord.of(ticker);
+                }
+                range.merge(record);
+            }
+        }
+        return range;
+    }
+
+    private static void assertSameRecord(AggregationRecord expected, AggregationRecord actual, String message) {
+        if (expected == null) {
+            assertNull(actual, message);
+            return;
+        }
+        assertEquals(expected.getTicker(), actual.getTicker(), message);
+        assertEquals(expected.getOpenTime(), actual.getOpenTime(), message);
+        assertEquals(expected.getCloseTime(), actual.getCloseTime(), message);
+        assertEquals(0, expected.getOpenPrice().compareTo(actual.getOpenPrice()), message);
+        assertEquals(0, expected.getClosePrice().compareTo(actual.getClosePrice()), message);
+        assertEquals(0, expected.getHighestPrice().compareTo(actual.getHighestPrice()), message);
+        assertEquals(0, expected.getLowestPrice().compareTo(actual.getLowestPrice()), message);
+        assertEquals(0, expected.getVolumeOfTrades().compareTo(actual.getVolumeOfTrades()), message);
+    }
+}
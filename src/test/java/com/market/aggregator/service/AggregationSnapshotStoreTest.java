@@ -0,0 +1,107 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.assertSameAggregations;
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.generateTrades;
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.trade;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregationSnapshotStoreTest {
+    private static final String LOG = "2025-01-20 09:00:01;ABC;100;500\n2025-01-20 09:20:05;ABC;105;600\n";
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testRestoreSavedAggregations() throws IOException {
+        TickerAggregatorManager aggregations = new TickerAggregatorManager(symbols);
+        generateTrades(5000, 40, 12).forEach(aggregations::recordTrade);
+        // Values that only round trip exactly with their scale and timestamps with nanos
+        aggregations.recordTrade(trade(LocalDateTime.of(2025, 2, 1, 9, 0, 0, 123_456_789), "ABC", "100.500"));
+        aggregations.recordTrade(trade(LocalDateTime.of(2025, 2, 1, 9, 0, 1), "ABC", "123456789012345678901234567890.1"));
+        Path log = Files.writeString(tempDir.resolve("market_log.txt"), LOG);
+        AggregationSnapshotStore store = new AggregationSnapshotStore(tempDir.resolve("snapshot.bin"));
+
+        store.save(aggregations, log, LOG.length());
+        TickerAggregatorManager restored = new TickerAggregatorManager(symbols);
+
+        assertEquals(LOG.length(), store.restore(restored, log));
+        assertSameAggregations(symbols, aggregations, restored);
+    }
+
+    @Test
+    void testRestoreIntoFixedPointStore() throws IOException {
+        TickerAggregatorManager aggregations = new TickerAggregatorManager(symbols);
+        List<Trade> trades = generateTrades(3000, 20, 5);
+        trades.forEach(aggregations::recordTrade);
+        Path log = Files.writeString(tempDir.resolve("market_log.txt"), LOG);
+        AggregationSnapshotStore store = new AggregationSnapshotStore(tempDir.resolve("snapshot.bin"));
+        store.save(aggregations, log, 32);
+
+        ColumnarTickerAggregatorManager restored = new ColumnarTickerAggregatorManager(symbols);
+
+        assertEquals(32, store.restore(restored, log));
+        assertSameAggregations(symbols, aggregations, restored);
+    }
+
+    @Test
+    void testRestoreWithoutSnapshotReadsTheWholeLog() throws IOException {
+        Path log = Files.writeString(tempDir.resolve("market_log.txt"), LOG);
+        TickerAggregatorManager restored = new TickerAggregatorManager(symbols);
+
+        assertEquals(0, new AggregationSnapshotStore(tempDir.resolve("snapshot.bin")).restore(restored, log));
+        assertTrue(restored.getAggregationDates().isEmpty());
+    }
+
+    @Test
+    void testSnapshotOfAnotherLogIsIgnored() throws IOException {
+        TickerAggregatorManager aggregations = new TickerAggregatorManager(symbols);
+        generateTrades(100, 5, 2).forEach(aggregations::recordTrade);
+        Path log = Files.writeString(tempDir.resolve("market_log.txt"), LOG);
+        AggregationSnapshotStore store = new AggregationSnapshotStore(tempDir.resolve("snapshot.bin"));
+        store.save(aggregations, log, LOG.length());
+
+        Path otherLog = Files.writeString(tempDir.resolve("other_log.txt"), LOG.replace("ABC", "XYZ"));
+        Path shorterLog = Files.writeString(tempDir.resolve("shorter_log.txt"), LOG.substring(0, 32));
+        TickerAggregatorManager restored = new TickerAggregatorManager(symbols);
+
+        assertEquals(0, store.restore(restored, otherLog));
+        assertEquals(0, store.restore(restored, shorterLog));
+        assertTrue(restored.getAggregationDates().isEmpty());
+    }
+
+    @Test
+    void testDamagedSnapshotIsIgnored() throws IOException {
+        TickerAggregatorManager aggregations = new TickerAggregatorManager(symbols);
+        generateTrades(100, 5, 2).forEach(aggregations::recordTrade);
+        Path log = Files.writeString(tempDir.resolve("market_log.txt"), LOG);
+        Path snapshotFile = tempDir.resolve("snapshot.bin");
+        AggregationSnapshotStore store = new AggregationSnapshotStore(snapshotFile);
+        store.save(aggregations, log, LOG.length());
+
+        byte[] snapshot = Files.readAllBytes(snapshotFile);
+        snapshot[snapshot.length / 2] ^= 1;
+        Files.write(snapshotFile, snapshot);
+        TickerAggregatorManager restored = new TickerAggregatorManager(symbols);
+
+        assertEquals(0, store.restore(restored, log));
+        assertTrue(restored.getAggregationDates().isEmpty());
+
+        // A snapshot cut short is ignored too
+        Files.write(snapshotFile, Arrays.copyOf(snapshot, snapshot.length - 20));
+        assertEquals(0, store.restore(restored, log));
+    }
+}
@@ -0,0 +1,71 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Reports the heap used by the aggregations of the heap store (TickerAggregatorManager) next to the columnar and the
+// off-heap stores. The direct memory of the off-heap store is reported on its own line.
+// It is not a test, run it with: java -cp <test classpath> com.market.aggregator.service.AggregationStoreFootprint [days] [tickers]
+public class AggregationStoreFootprint {
+
+    public static void main(String[] args) {
+        TickerSymbolTable symbols = new TickerSymbolTable();
+        int dayCount = args.length > 0 ? Integer.parseInt(args[0]) : 750;
+        int tickerCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        System.out.printf("%,d days x %,d tickers = %,d aggregations%n", dayCount, tickerCount, (long) dayCount * tickerCount);
+        long heap = measure(() -> fill(new TickerAggregatorManager(symbols), dayCount, tickerCount));
+        ColumnarTickerAggregatorManager columnar = new ColumnarTickerAggregatorManager(symbols);
+        long columnarHeap = measure(() -> fill(columnar, dayCount, tickerCount));
+        OffHeapTickerAggregatorManager offHeap = new OffHeapTickerAggregatorManager(symbols);
+        long offHeapHeap = measure(() -> fill(offHeap, dayCount, tickerCount));
+        report("heap", heap, dayCount, tickerCount);
+        report("columnar", columnarHeap, dayCount, tickerCount);
+        report("off-heap", offHeapHeap, dayCount, tickerCount);
+        report("direct", offHeap.getOffHeapBytes(), dayCount, tickerCount);
+        System.out.printf("columns only: %,d bytes, heap / columnar: %.1fx%n", columnar.getColumnBytes(), (double) heap / columnarHeap);
+    }
+
+    // Records two trades per ticker and per day, the second one moves the close price
+    private static ITickerAggregatorManager fill(ITickerAggregatorManager manager, int dayCount, int tickerCount) {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 2, 9, 0);
+        for (int day = 0; day < dayCount; day++) {
+            for (int ticker = 0; ticker < tickerCount; ticker++) {
+                String symbol = "F" + ticker;
+                manager.recordTrade(trade(start.plusDays(day), symbol, 1_000 + ticker));
+                manager.recordTrade(trade(start.plusDays(day).plusHours(1), symbol, 1_050 + ticker));
+            }
+        }
+        return manager;
+    }
+
+    // Heap retained by the store built by the task, after a full collection
+    private static long measure(java.util.function.Supplier<ITickerAggregatorManager> task) {
+        long before = usedHeap();
+        ITickerAggregatorManager manager = task.get();
+        long after = usedHeap();
+        if (manager.getAggregationDates().isEmpty()) {
+            throw new IllegalStateException("Nothing was aggregated");
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String name, long bytes, int dayCount, int tickerCount) {
+        System.out.printf("%-8s %,14d bytes, %6.1f bytes per aggregation%n", name, bytes, (double) bytes / dayCount / tickerCount);
+    }
+
+    private static Trade trade(LocalDateTime timestamp, String ticker, long cents) {
+        return Trade.builder().timestamp(timestamp).ticker(ticker).price(BigDecimal.valueOf(cents, 2)).quantity(10).build();
+    }
+}
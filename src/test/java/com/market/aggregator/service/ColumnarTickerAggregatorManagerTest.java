@@ -0,0 +1,149 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The columnar store must hold the same aggregations as TickerAggregatorManager.
+// Prices are compared by value: the columns keep the scale of the tick size, not the one of the log.
+class ColumnarTickerAggregatorManagerTest {
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+
+    @Test
+    @DisplayName("Test recordTrade(Trade); given more tickers and days than the initial capacity")
+    void testRecordTrade_givenManyTickersAndDays_thenSameAsHeapStore() {
+        List<Trade> trades = generateTrades(50_000, 150, 40);
+        TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+        ColumnarTickerAggregatorManager actual = new ColumnarTickerAggregatorManager(symbols);
+
+        trades.forEach(expected::recordTrade);
+        trades.forEach(actual::recordTrade);
+
+        assertSameAggregations(symbols, expected, actual);
+    }
+
+    @Test
+    @DisplayName("Test recordTrade(Trade); given prices with more decimals than the tick size or too big for a long")
+    void testRecordTrade_givenPricesOutsideTheColumns_thenFallsBack() {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 20, 9, 0);
+        List<Trade> trades = List.of(
+                trade(time, "Precise", "10.5"),
+                trade(time.plusSeconds(1), "Precise", "10.125"),
+                trade(time.plusSeconds(2), "Precise", "9"),
+                trade(time, "Huge", "92233720368547758.07"),
+                trade(time.plusSeconds(1), "Huge", "92233720368547758.07"));
+        TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+        ColumnarTickerAggregatorManager actual = new ColumnarTickerAggregatorManager(symbols);
+
+        trades.forEach(expected::recordTrade);
+        trades.forEach(actual::recordTrade);
+
+        assertSameAggregations(symbols, expected, actual);
+    }
+
+    @Test
+    @DisplayName("Test mergeAggregation(LocalDate, AggregationRecord)")
+    void testMergeAggregation_givenPartialsInOrder_thenSameAsRecordingTheTrades() {
+        List<Trade> trades = generateTrades(10_000, 30, 5);
+        TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+        trades.forEach(expected::recordTrade);
+
+        ColumnarTickerAggregatorManager actual = new ColumnarTickerAggregatorManager(symbols);
+        for (int from = 0; from < trades.size(); from += 3_000) {
+            TickerAggregatorManager partial = new TickerAggregatorManager(symbols);
+            trades.subList(from, Math.min(from + 3_000, trades.size())).forEach(partial::recordTrade);
+            for (LocalDate date : partial.getAggregationDates()) {
+                partial.getAggregationFor(date).values().forEach(record -> actual.mergeAggregation(date, record));
+            }
+        }
+
+        assertSameAggregations(symbols, expected, actual);
+    }
+
+    @Test
+    @DisplayName("Test forEachClosePrice(LocalDate, ClosePriceConsumer)")
+    void testForEachClosePrice_givenTradedTickers_thenHandsOverTheirClosePrices() {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 20, 9, 0);
+        ColumnarTickerAggregatorManager manager = new ColumnarTickerAggregatorManager(symbols);
+        manager.recordTrade(trade(time, "Traded", "12.5"));
+        manager.recordTrade(trade(time.plusSeconds(1), "Traded", "13"));
+        manager.recordTrade(trade(time, "Other", "7"));
+        manager.recordTrade(trade(time.plusDays(1), "NextDay", "1"));
+
+        Map<Integer, BigDecimal> closePrices = new HashMap<>();
+        manager.forEachClosePrice(time.toLocalDate(), closePrices::put);
+
+        assertEquals(2, closePrices.size());
+        assertEquals(0, new BigDecimal("13").compareTo(closePrices.get(symbols.idOf("Traded"))));
+        assertEquals(0, new BigDecimal("7").compareTo(closePrices.get(symbols.idOf("Other"))));
+    }
+
+    @Test
+    @DisplayName("Test getFirstAggregationDate()")
+    void testGetFirstAggregationDate_givenEmptyStore() {
+        ColumnarTickerAggregatorManager manager = new ColumnarTickerAggregatorManager(symbols);
+
+        assertThrows(IllegalStateException.class, manager::getFirstAggregationDate);
+        assertTrue(manager.getAggregationFor(LocalDate.of(1970, 1, 1)).isEmpty());
+    }
+
+    static void assertSameAggregations(TickerSymbolTable symbols, TickerAggregatorManager expected, ITickerAggregatorManager actual) {
+        assertEquals(expected.getAggregationDates(), actual.getAggregationDates());
+        assertEquals(expected.getFirstAggregationDate(), actual.getFirstAggregationDate());
+        assertEquals(expected.getLastAggregationDate(), actual.getLastAggregationDate());
+        for (LocalDate date : expected.getAggregationDates()) {
+            Map<String, AggregationRecord> expectedRecords = expected.getAggregationFor(date);
+            Map<String, AggregationRecord> actualRecords = actual.getAggregationFor(date);
+            assertEquals(expectedRecords.keySet(), actualRecords.keySet(), "Tickers mismatch for " + date);
+            assertEquals(expectedRecords.keySet(), expected.getTickersFor(date), "Tickers mismatch for " + date);
+            assertEquals(expectedRecords.keySet(), actual.getTickersFor(date), "Tickers mismatch for " + date);
+            for (AggregationRecord record : expectedRecords.values()) {
+                AggregationRecord columnar = actualRecords.get(record.getTicker());
+                String message = record.getTicker() + " on " + date;
+                assertEquals(record.getOpenTime(), columnar.getOpenTime(), message);
+                assertEquals(record.getCloseTime(), columnar.getCloseTime(), message);
+                assertEquals(0, record.getOpenPrice().compareTo(columnar.getOpenPrice()), message);
+                assertEquals(0, record.getClosePrice().compareTo(columnar.getClosePrice()), message);
+                assertEquals(0, record.getHighestPrice().compareTo(columnar.getHighestPrice()), message);
+                assertEquals(0, record.getLowestPrice().compareTo(columnar.getLowestPrice()), message);
+                assertEquals(0, record.getVolumeOfTrades().compareTo(columnar.getVolumeOfTrades()), message);
+                int tickerId = symbols.idOf(record.getTicker());
+                assertEquals(0, record.getClosePrice().compareTo(actual.getAggregationFor(date, tickerId).getClosePrice()), message);
+            }
+        }
+    }
+
+    // Random trades with many equal timestamps, a few of them with more decimals than the default tick size
+    static List<Trade> generateTrades(int tradeCount, int tickerCount, int dayCount) {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        List<Trade> trades = new ArrayList<>(tradeCount);
+        for (int i = 0; i < tradeCount; i++) {
+            int scale = random.nextInt(50) == 0 ? 3 : 2;
+            trades.add(Trade.builder()
+                    .timestamp(start.plusDays(random.nextInt(dayCount)).plusSeconds(random.nextInt(600)))
+                    .ticker("C" + random.nextInt(tickerCount))
+                    .price(BigDecimal.valueOf(1 + random.nextInt(100_000), scale))
+                    .quantity(1 + random.nextInt(1000))
+                    .build());
+        }
+        return trades;
+    }
+
+    static Trade trade(LocalDateTime timestamp, String ticker, String price) {
+        return Trade.builder().timestamp(timestamp).ticker(ticker).price(new BigDecimal(price)).quantity(1000).build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.IntradayIndexPoint;
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntradayIndexAggregatorTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 1, 20, 0, 0);
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MarketIndexCalculator marketIndexCalculator = new MarketIndexCalculator(symbols);
+    private final MarketWeights weights = MarketWeights.of(Map.of(
+            "INTRA_A", new BigDecimal("0.5"),
+            "INTRA_B", new BigDecimal("0.5")), symbols);
+
+    @Test
+    void testIndexAtTheEndOfEveryInterval() {
+        IntradayIndexAggregator aggregator = new IntradayIndexAggregator(Duration.ofMinutes(1), symbols);
+        aggregator.recordTrade(trade("08:59:30", "INTRA_A", "99"));
+        aggregator.recordTrade(trade("09:00:50", "INTRA_A", "102"));
+        aggregator.recordTrade(trade("09:00:10", "INTRA_A", "100"));
+        aggregator.recordTrade(trade("09:00:30", "INTRA_B", "200"));
+        aggregator.recordTrade(trade("09:03:05", "INTRA_B", "210"));
+
+        List<IntradayIndexPoint> series = aggregator.indexSeries(marketIndexCalculator.incrementalIndex(weights));
+
+        // The intervals without trades keep the value of the interval before them
+        assertEquals(5, series.size());
+        assertPoint(series.get(0), "08:59:00", "09:00:00", null);
+        assertPoint(series.get(1), "09:00:00", "09:01:00", "151");
+        assertPoint(series.get(2), "09:01:00", "09:02:00", "151");
+        assertPoint(series.get(3), "09:02:00", "09:03:00", "151");
+        assertPoint(series.get(4), "09:03:00", "09:04:00", "156");
+    }
+
+    @Test
+    void testFirstTradeReadWinsOnEqualTimestamps() {
+        IntradayIndexAggregator aggregator = new IntradayIndexAggregator(Duration.ofSeconds(30), symbols);
+        aggregator.recordTrade(trade("10:00:00", "INTRA_A", "100"));
+        aggregator.recordTrade(trade("10:00:00", "INTRA_A", "300"));
+        aggregator.recordTrade(trade("10:00:00", "INTRA_B", "200"));
+
+        List<IntradayIndexPoint> series = aggregator.indexSeries(marketIndexCalculator.incrementalIndex(weights));
+
+        assertEquals(1, series.size());
+        assertPoint(series.get(0), "10:00:00", "10:00:30", "150");
+    }
+
+    @Test
+    void testIntervalsWithoutTradesAreNotFilledAcrossDays() {
+        IntradayIndexAggregator aggregator = new IntradayIndexAggregator(Duration.ofHours(1), symbols);
+        aggregator.recordTrade(trade("23:10:00", "INTRA_A", "100"));
+        aggregator.recordTrade(trade("23:20:00", "INTRA_B", "200"));
+        aggregator.recordTrade(Trade.builder().timestamp(DAY.plusDays(1).plusHours(2)).ticker("INTRA_A").price(new BigDecimal("110")).quantity(1).build());
+
+        List<IntradayIndexPoint> series = aggregator.indexSeries(marketIndexCalculator.incrementalIndex(weights));
+
+        assertEquals(2, series.size());
+        assertPoint(series.get(0), "23:00:00", "00:00:00", "150");
+        assertEquals(DAY.plusDays(1), series.get(0).end());
+        assertEquals(DAY.plusDays(1).plusHours(2), series.get(1).start());
+        assertEquals(0, new BigDecimal("155").compareTo(series.get(1).value()));
+    }
+
+    @Test
+    void testMergeInLogOrderGivesTheSameSeries() {
+        Random random = new Random(10);
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            trades.add(Trade.builder()
+                    .timestamp(DAY.plusSeconds(random.nextInt(3600)))
+                    .ticker(random.nextBoolean() ? "INTRA_A" : "INTRA_B")
+                    .price(BigDecimal.valueOf(random.nextInt(10000), 2))
+                    .quantity(1)
+                    .build());
+        }
+        IntradayIndexAggregator whole = new IntradayIndexAggregator(Duration.ofSeconds(10), symbols);
+        trades.forEach(whole);
+        IntradayIndexAggregator merged = new IntradayIndexAggregator(Duration.ofSeconds(10), symbols);
+        for (int from = 0; from < trades.size(); from += 700) {
+            IntradayIndexAggregator partial = new IntradayIndexAggregator(Duration.ofSeconds(10), symbols);
+            trades.subList(from, Math.min(from + 700, trades.size())).forEach(partial);
+            merged.merge(partial);
+        }
+
+        List<IntradayIndexPoint> expected = whole.indexSeries(marketIndexCalculator.incrementalIndex(weights));
+        assertEquals(360, expected.size());
+        assertEquals(expected, merged.indexSeries(marketIndexCalculator.incrementalIndex(weights)));
+    }
+
+    @Test
+    void testMergeWithAnotherIntervalThrows() {
+        IntradayIndexAggregator aggregator = new IntradayIndexAggregator(Duration.ofMinutes(1), symbols);
+
+        assertThrows(IllegalArgumentException.class, () -> aggregator.merge(new IntradayIndexAggregator(Duration.ofMinutes(5), symbols)));
+    }
+
+    @Test
+    void testIntervalMustDivideADay() {
+        assertThrows(IllegalArgumentException.class, () -> new IntradayIndexAggregator(Duration.ZERO, symbols));
+        assertThrows(IllegalArgumentException.class, () -> new IntradayIndexAggregator(Duration.ofMinutes(-1), symbols));
+        assertThrows(IllegalArgumentException.class, () -> new IntradayIndexAggregator(Duration.ofMinutes(7), symbols));
+        assertThrows(IllegalArgumentException.class, () -> new IntradayIndexAggregator(Duration.ofMillis(1500), symbols));
+        assertDoesNotThrow(() -> new IntradayIndexAggregator(Duration.ofSeconds(1), symbols));
+        assertDoesNotThrow(() -> new IntradayIndexAggregator(Duration.ofDays(1), symbols));
+    }
+
+    private static Trade trade(String time, String ticker, String price) {
+        return Trade.builder()
+                .timestamp(LocalDateTime.parse("2025-01-20T" + time))
+                .ticker(ticker)
+                .price(new BigDecimal(price))
+                .quantity(1)
+                .build();
+    }
+
+    private static void assertPoint(IntradayIndexPoint point, String start, String end, String value) {
+        assertEquals(LocalTime.parse(start), point.start().toLocalTime());
+        assertEquals(LocalTime.parse(end), point.end().toLocalTime());
+        if (value == null) {
+            assertNull(point.value());
+        } else {
+            assertEquals(0, new BigDecimal(value).compareTo(point.value()));
+        }
+    }
+}
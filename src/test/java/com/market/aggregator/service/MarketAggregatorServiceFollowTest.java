@@ -0,0 +1,117 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.MarketAggregatorProperties;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.infrastructure.FileMarketWeightsParser;
+import com.market.aggregator.infrastructure.FileTradeParser;
+import com.market.aggregator.infrastructure.MappedTradeParser;
+import com.market.aggregator.infrastructure.MarketWeightsCache;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Follow mode polls a log until the thread is interrupted, the days it changed are printed with their market index.
+@ExtendWith(OutputCaptureExtension.class)
+class MarketAggregatorServiceFollowTest {
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AggregationExecutors executors = new AggregationExecutors(ThreadMode.PLATFORM, 2);
+
+    @TempDir
+    private Path tempDir;
+
+    @AfterEach
+    void shutdownExecutors() {
+        executors.close();
+    }
+
+    @Test
+    void testFollowTrades_givenInvalidWeightsFile_thenFollowsWithCurrentWeights(CapturedOutput output) throws Exception {
+        Path log = Files.writeString(tempDir.resolve("market_log.txt"),
+                "2025-01-20 09:00:01;T0;100;500\n2025-01-20 09:00:02;T1;200;500\n", StandardCharsets.UTF_8);
+        Path weights = Files.writeString(tempDir.resolve("market_weights.txt"), "T0: 0.5\nT1: 0.5\n", StandardCharsets.UTF_8);
+        MarketAggregatorService aggregatorService = newService();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> follow = executor.submit(() -> {
+                aggregatorService.followTrades(log, weights, POLL_INTERVAL);
+                return null;
+            });
+            awaitOutput(output, "Index for 2025-01-20: 150.0");
+
+            // The weights file is half written when it is polled, then a trade of a new day is appended to the log
+            Files.writeString(weights, "T0 0.", StandardCharsets.UTF_8);
+            awaitOutput(output, "cannot be loaded, the current weights are kept");
+            Files.writeString(log, "2025-01-21 09:00:01;T0;110;10\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            // The new day is indexed with the weights loaded before
+            awaitOutput(output, "Index for 2025-01-21: 155.0");
+            assertFalse(follow.isDone());
+            follow.cancel(true);
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testFollowTrades_givenNewTickerInAPoll_thenItIsPrintedInOrder(CapturedOutput output) throws Exception {
+        Path log = Files.writeString(tempDir.resolve("market_log.txt"), "2025-01-20 09:00:01;T1;200;500\n", StandardCharsets.UTF_8);
+        Path weights = Files.writeString(tempDir.resolve("market_weights.txt"), "T0: 0.5\nT1: 0.5\n", StandardCharsets.UTF_8);
+        MarketAggregatorService aggregatorService = newService();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> follow = executor.submit(() -> {
+                aggregatorService.followTrades(log, weights, POLL_INTERVAL);
+                return null;
+            });
+            awaitOutput(output, "Index for 2025-01-20: N/A");
+
+            Files.writeString(log, "2025-01-21 09:00:01;T0;110;10\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+            // The ticker traded before is printed too, after the new one
+            awaitOutput(output, "Date: 2025-01-21" + System.lineSeparator()
+                    + "Ticker: T0, Open: 110.0, Close: 110.0, High: 110.0, Low: 110.0, Volume: 1100.00" + System.lineSeparator()
+                    + "Ticker: T1, Open: N/A");
+            awaitOutput(output, "Index for 2025-01-21: 155.0");
+            follow.cancel(true);
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private MarketAggregatorService newService() {
+        return new MarketAggregatorService(new FileTradeParser(symbols, metrics), new MappedTradeParser(symbols, metrics),
+                new MarketWeightsCache(new FileMarketWeightsParser(), symbols), new MarketIndexCalculator(symbols),
+                new TickerAggregatorManager(symbols), symbols, metrics, MarketAggregatorProperties.defaults(),
+                executors);
+    }
+
+    private static void awaitOutput(CapturedOutput output, String text) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!output.getAll().contains(text)) {
+            assertTrue(System.nanoTime() < deadline, "Not printed: " + text);
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.MarketAggregatorProperties;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.infrastructure.FileMarketWeightsParser;
+import com.market.aggregator.infrastructure.FileTradeParser;
+import com.market.aggregator.infrastructure.MappedTradeParser;
+import com.market.aggregator.infrastructure.MarketWeightsCache;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every ingestion mode must give exactly the same aggregation as reading the log in one go.
+// FAN_OUT is left out because trades of the same ticker at the same second are not recorded in the order of the log.
+class MarketAggregatorServiceIngestionModesTest {
+    private static final String WEIGHTS = "T0: 0.5\nT1: 0.5\n";
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AggregationExecutors executors = new AggregationExecutors(ThreadMode.PLATFORM, 2);
+
+    @TempDir
+    private Path tempDir;
+
+    @AfterEach
+    void shutdownExecutors() {
+        executors.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = IngestionMode.class, names = "FAN_OUT", mode = EnumSource.Mode.EXCLUDE)
+    void testIngestionModeMatchesStreaming(IngestionMode ingestionMode) throws IOException {
+        Path log = writeShuffledLog(5_000);
+
+        TickerAggregatorManager expected = process(log, IngestionMode.STREAMING);
+        TickerAggregatorManager actual = process(log, ingestionMode);
+
+        assertEquals(expected.getAggregationDates(), actual.getAggregationDates());
+        for (LocalDate date : expected.getAggregationDates()) {
+            assertEquals(expected.getAggregationFor(date), actual.getAggregationFor(date), "Aggregation mismatch for " + date);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(IngestionMode.class)
+    void testIngestionModeMetersParsingAndAggregation(IngestionMode ingestionMode) throws IOException {
+        // Enough trades for every chunk of the parallel mode to time one
+        process(writeShuffledLog(10_000), ingestionMode);
+
+        // Every trade is counted once and some are timed, whichever threads parse and aggregate them
+        assertEquals(10_000, metrics.counter(MetricsRegistry.AGGREGATED_TRADES).get());
+        assertTrue(metrics.histogram(MetricsRegistry.PARSE_LATENCY).getCount() > 0, ingestionMode.name());
+        assertTrue(metrics.histogram(MetricsRegistry.AGGREGATE_LATENCY).getCount() > 0, ingestionMode.name());
+    }
+
+    @Test
+    void testSplitLogFilesMatchStreaming() throws IOException {
+        Path log = writeShuffledLog(5_000);
+        // Spread the lines over files of different sizes, like the logs of several venues, keeping their order
+        List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+        Random random = new Random(7);
+        List<Path> files = new ArrayList<>();
+        for (int from = 0; from < lines.size(); ) {
+            int to = Math.min(lines.size(), from + 1 + random.nextInt(800));
+            Path file = tempDir.resolve(String.format("venue-%02d.txt", files.size()));
+            Files.write(file, lines.subList(from, to), StandardCharsets.UTF_8);
+            files.add(file);
+            from = to;
+        }
+
+        TickerAggregatorManager expected = process(log, IngestionMode.STREAMING);
+        for (ThreadMode readThreads : ThreadMode.values()) {
+            TickerAggregatorManager actual = new TickerAggregatorManager(symbols);
+            try (AggregationExecutors readExecutors = new AggregationExecutors(readThreads, 2)) {
+                // Fewer readers than files, so files wait for a reader
+                MarketAggregatorService aggregatorService = newService(actual,
+                        MarketAggregatorProperties.defaults().toBuilder().maxConcurrentFiles(2).build(), readExecutors);
+                aggregatorService.processTrades(files, new ByteArrayInputStream(WEIGHTS.getBytes(StandardCharsets.UTF_8)));
+            }
+
+            assertEquals(expected.getAggregationDates(), actual.getAggregationDates(), readThreads.name());
+            for (LocalDate date : expected.getAggregationDates()) {
+                assertEquals(expected.getAggregationFor(date), actual.getAggregationFor(date), readThreads + " aggregation mismatch for " + date);
+            }
+        }
+    }
+
+    private TickerAggregatorManager process(Path log, IngestionMode ingestionMode) throws IOException {
+        TickerAggregatorManager tickerManager = new TickerAggregatorManager(symbols);
+        newService(tickerManager, MarketAggregatorProperties.defaults(), executors).processTrades(log, new ByteArrayInputStream(WEIGHTS.getBytes(StandardCharsets.UTF_8)), ingestionMode);
+        return tickerManager;
+    }
+
+    private MarketAggregatorService newService(TickerAggregatorManager tickerManager, MarketAggregatorProperties properties,
+                                               AggregationExecutors executors) {
+        return new MarketAggregatorService(new FileTradeParser(symbols, metrics), new MappedTradeParser(symbols, metrics),
+                new MarketWeightsCache(new FileMarketWeightsParser(), symbols), new MarketIndexCalculator(symbols), tickerManager,
+                symbols, metrics, properties, executors);
+    }
+
+    // Writes trades in random order, with many equal timestamps and prices of different scales
+    private Path writeShuffledLog(int trades) throws IOException {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder("date+time;company ticker;price;number of securities traded\n");
+        for (int i = 0; i < trades; i++) {
+            content.append(String.format("2025-01-%02d 09:%02d:%02d;T%d;%d.%s;%d%n",
+                    20 + random.nextInt(3), random.nextInt(60), random.nextInt(60), random.nextInt(20),
+                    1 + random.nextInt(500), random.nextBoolean() ? "5" : "25", 1 + random.nextInt(1000)));
+        }
+        Path log = tempDir.resolve("market_log.txt");
+        Files.writeString(log, content, StandardCharsets.UTF_8);
+        return log;
+    }
+}
@@ -1,8 +1,14 @@
 package com.market.aggregator.service;
 
+import com.market.aggregator.MarketAggregatorConfiguration;
 import com.market.aggregator.domain.AggregationRecord;
-import com.market.aggregator.infrastructure.FileMarketWeightsParser;
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
 import com.market.aggregator.infrastructure.FileTradeParser;
+import com.market.aggregator.infrastructure.MappedTradeParser;
+import com.market.aggregator.infrastructure.MarketWeightsCache;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,30 +26,44 @@ import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.*;
 
-@ContextConfiguration(classes = {MarketAggregatorService.class})
+@ContextConfiguration(classes = {MarketAggregatorService.class, MarketAggregatorConfiguration.class})
 @ExtendWith(SpringExtension.class)
 @DisabledInAotMode
 class MarketAggregatorServiceTest {
     @MockBean
-    private FileMarketWeightsParser fileMarketWeightsParser;
+    private MarketWeightsCache marketWeightsCache;
 
     @MockBean
     private FileTradeParser fileTradeParser;
 
+    @MockBean
+    private MappedTradeParser mappedTradeParser;
+
     @Autowired
     private MarketAggregatorService marketAggregatorService;
 
+    @Autowired
+    private TickerSymbolTable symbols;
+
     @MockBean
     private MarketIndexCalculator marketIndexCalculator;
 
     @MockBean
     private TickerAggregatorManager tickerAggregatorManager;
 
+    @BeforeEach
+    void setUp() {
+        // The index itself is not mocked, it is updated with the close prices given by the aggregator manager
+        when(marketIndexCalculator.incrementalIndex(Mockito.any()))
+                .thenAnswer(invocation -> new MarketIndexCalculator(symbols).incrementalIndex(invocation.getArgument(0)));
+    }
+
     @Test
     @DisplayName("Test getAggregationFor(LocalDate)")
     void testGetAggregationFor() {
@@ -60,11 +80,11 @@ class MarketAggregatorServiceTest {
     @DisplayName("Test processTrades(InputStream, InputStream); given HashMap() 'foo' is BigDecimal(String) with '2.3'; then calls getAggregationFor(LocalDate)")
     void testProcessTrades_givenHashMapFooIsBigDecimalWith23_thenCallsGetAggregationFor() throws IOException {
 
-        when(fileTradeParser.parseTrades(Mockito.any())).thenReturn(new ArrayList<>());
+        when(fileTradeParser.parseTrades(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0L);
 
         HashMap<String, BigDecimal> stringBigDecimalMap = new HashMap<>();
         stringBigDecimalMap.put("foo", new BigDecimal("2.3"));
-        when(fileMarketWeightsParser.parseMarketWeights(Mockito.any())).thenReturn(stringBigDecimalMap);
+        when(marketWeightsCache.load(isA(InputStream.class))).thenReturn(MarketWeights.of(stringBigDecimalMap, symbols));
 
         HashSet<LocalDate> localDateSet = new HashSet<>();
         localDateSet.add(LocalDate.of(1970, 1, 1));
@@ -74,8 +94,8 @@ class MarketAggregatorServiceTest {
 
         marketAggregatorService.processTrades(tradesFile, new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8)));
 
-        verify(fileMarketWeightsParser).parseMarketWeights(isA(InputStream.class));
-        verify(fileTradeParser).parseTrades(isA(InputStream.class));
+        verify(marketWeightsCache).load(isA(InputStream.class));
+        verify(fileTradeParser).parseTrades(isA(InputStream.class), Mockito.any(), Mockito.any());
         verify(tickerAggregatorManager).getAggregationDates();
         verify(tickerAggregatorManager, atLeast(1)).getAggregationFor(isA(LocalDate.class));
     }
@@ -84,9 +104,8 @@ class MarketAggregatorServiceTest {
     @DisplayName("Test processTrades(InputStream, InputStream)")
     void testProcessTrades() throws IOException {
 
-        when(fileTradeParser.parseTrades(Mockito.any())).thenReturn(new ArrayList<>());
-        when(fileMarketWeightsParser.parseMarketWeights(Mockito.any())).thenReturn(new HashMap<>());
-        when(marketIndexCalculator.calculate(Mockito.any(), Mockito.any())).thenReturn(new BigDecimal("2.3"));
+        when(fileTradeParser.parseTrades(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0L);
+        when(marketWeightsCache.load(isA(InputStream.class))).thenReturn(MarketWeights.of(new HashMap<>(), symbols));
 
         HashSet<LocalDate> localDateSet = new HashSet<>();
         localDateSet.add(LocalDate.of(1970, 1, 1));
@@ -94,14 +113,15 @@ class MarketAggregatorServiceTest {
         HashMap<String, AggregationRecord> stringAggregationRecordMap = new HashMap<>();
         stringAggregationRecordMap.put("Index for %s: %.1f%n", AggregationRecord.of("Index for %s: %.1f%n"));
         when(tickerAggregatorManager.getAggregationFor(Mockito.any())).thenReturn(stringAggregationRecordMap);
+        when(tickerAggregatorManager.getTickersFor(Mockito.any())).thenReturn(stringAggregationRecordMap.keySet());
         when(tickerAggregatorManager.getAggregationDates()).thenReturn(localDateSet);
         ByteArrayInputStream tradesFile = new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8));
 
         marketAggregatorService.processTrades(tradesFile, new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8)));
 
-        verify(fileMarketWeightsParser).parseMarketWeights(isA(InputStream.class));
-        verify(fileTradeParser).parseTrades(isA(InputStream.class));
-        verify(marketIndexCalculator).calculate(isA(Map.class), isA(Map.class));
+        verify(marketWeightsCache).load(isA(InputStream.class));
+        verify(fileTradeParser).parseTrades(isA(InputStream.class), Mockito.any(), Mockito.any());
+        verify(marketIndexCalculator).incrementalIndex(isA(MarketWeights.class));
         verify(tickerAggregatorManager).getAggregationDates();
         verify(tickerAggregatorManager, atLeast(1)).getAggregationFor(isA(LocalDate.class));
     }
@@ -111,11 +131,11 @@ class MarketAggregatorServiceTest {
     @DisplayName("Test processTrades(InputStream, InputStream); given HashMap() 'foo' is AggregationRecord with stockName is 'Index for %s: N/A%n'")
     void testProcessTrades_givenHashMapFooIsAggregationRecordWithStockNameIsIndexForSNAN() throws IOException {
 
-        when(fileTradeParser.parseTrades(Mockito.any())).thenReturn(new ArrayList<>());
+        when(fileTradeParser.parseTrades(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0L);
 
         HashMap<String, BigDecimal> stringBigDecimalMap = new HashMap<>();
         stringBigDecimalMap.put("foo", new BigDecimal("2.3"));
-        when(fileMarketWeightsParser.parseMarketWeights(Mockito.any())).thenReturn(stringBigDecimalMap);
+        when(marketWeightsCache.load(isA(InputStream.class))).thenReturn(MarketWeights.of(stringBigDecimalMap, symbols));
 
         HashSet<LocalDate> localDateSet = new HashSet<>();
         localDateSet.add(LocalDate.of(1970, 1, 1));
@@ -123,60 +143,60 @@ class MarketAggregatorServiceTest {
         HashMap<String, AggregationRecord> stringAggregationRecordMap = new HashMap<>();
         stringAggregationRecordMap.put("foo", AggregationRecord.of("Index for %s: N/A%n"));
         when(tickerAggregatorManager.getAggregationFor(Mockito.any())).thenReturn(stringAggregationRecordMap);
+        when(tickerAggregatorManager.getTickersFor(Mockito.any())).thenReturn(stringAggregationRecordMap.keySet());
         when(tickerAggregatorManager.getAggregationDates()).thenReturn(localDateSet);
         ByteArrayInputStream tradesFile = new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8));
 
         marketAggregatorService.processTrades(tradesFile, new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8)));
 
-        verify(fileMarketWeightsParser).parseMarketWeights(isA(InputStream.class));
-        verify(fileTradeParser).parseTrades(isA(InputStream.class));
+        verify(marketWeightsCache).load(isA(InputStream.class));
+        verify(fileTradeParser).parseTrades(isA(InputStream.class), Mockito.any(), Mockito.any());
         verify(tickerAggregatorManager).getAggregationDates();
         verify(tickerAggregatorManager, atLeast(1)).getAggregationFor(isA(LocalDate.class));
     }
 
 
     @Test
-    @DisplayName("Test processTrades(InputStream, InputStream); given MarketIndexCalculator; then calls parseMarketWeights(InputStream)")
-    void testProcessTrades_givenMarketIndexCalculator_thenCallsParseMarketWeights() throws IOException {
+    @DisplayName("Test processTrades(InputStream, InputStream); given MarketIndexCalculator; then calls load(InputStream)")
+    void testProcessTrades_givenMarketIndexCalculator_thenLoadsMarketWeights() throws IOException {
 
-        when(fileTradeParser.parseTrades(Mockito.any())).thenReturn(new ArrayList<>());
-        when(fileMarketWeightsParser.parseMarketWeights(Mockito.any())).thenReturn(new HashMap<>());
+        when(fileTradeParser.parseTrades(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0L);
+        when(marketWeightsCache.load(isA(InputStream.class))).thenReturn(MarketWeights.of(new HashMap<>(), symbols));
         when(tickerAggregatorManager.getAggregationDates()).thenReturn(new HashSet<>());
         ByteArrayInputStream tradesFile = new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8));
 
         marketAggregatorService.processTrades(tradesFile, new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8)));
 
-        verify(fileMarketWeightsParser).parseMarketWeights(isA(InputStream.class));
-        verify(fileTradeParser).parseTrades(isA(InputStream.class));
+        verify(marketWeightsCache).load(isA(InputStream.class));
+        verify(fileTradeParser).parseTrades(isA(InputStream.class), Mockito.any(), Mockito.any());
         verify(tickerAggregatorManager).getAggregationDates();
     }
 
     @Test
-    @DisplayName("Test processTrades(InputStream, InputStream); given MarketIndexCalculator; then calls parseMarketWeights(InputStream)")
-    void testProcessTrades_givenMarketIndexCalculator_thenCallsParseMarketWeights2() throws IOException {
+    @DisplayName("Test processTrades(InputStream, InputStream); given MarketIndexCalculator; then calls load(InputStream)")
+    void testProcessTrades_givenMarketIndexCalculator_thenLoadsMarketWeights2() throws IOException {
 
-        when(fileTradeParser.parseTrades(Mockito.any())).thenReturn(new ArrayList<>());
+        when(fileTradeParser.parseTrades(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0L);
 
         HashMap<String, BigDecimal> stringBigDecimalMap = new HashMap<>();
         stringBigDecimalMap.put("foo", new BigDecimal("2.3"));
-        when(fileMarketWeightsParser.parseMarketWeights(Mockito.any())).thenReturn(stringBigDecimalMap);
+        when(marketWeightsCache.load(isA(InputStream.class))).thenReturn(MarketWeights.of(stringBigDecimalMap, symbols));
         when(tickerAggregatorManager.getAggregationDates()).thenReturn(new HashSet<>());
         ByteArrayInputStream tradesFile = new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8));
 
         marketAggregatorService.processTrades(tradesFile, new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8)));
 
-        verify(fileMarketWeightsParser).parseMarketWeights(isA(InputStream.class));
-        verify(fileTradeParser).parseTrades(isA(InputStream.class));
+        verify(marketWeightsCache).load(isA(InputStream.class));
+        verify(fileTradeParser).parseTrades(isA(InputStream.class), Mockito.any(), Mockito.any());
         verify(tickerAggregatorManager).getAggregationDates();
     }
 
     @Test
-    @DisplayName("Test processTrades(InputStream, InputStream); then calls calculate(Map, Map)")
+    @DisplayName("Test processTrades(InputStream, InputStream); then calls incrementalIndex(MarketWeights)")
     void testProcessTrades_thenCallsCalculate() throws IOException {
 
-        when(fileTradeParser.parseTrades(Mockito.any())).thenReturn(new ArrayList<>());
-        when(fileMarketWeightsParser.parseMarketWeights(Mockito.any())).thenReturn(new HashMap<>());
-        when(marketIndexCalculator.calculate(Mockito.any(), Mockito.any())).thenReturn(new BigDecimal("2.3"));
+        when(fileTradeParser.parseTrades(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0L);
+        when(marketWeightsCache.load(isA(InputStream.class))).thenReturn(MarketWeights.of(new HashMap<>(), symbols));
 
         HashSet<LocalDate> localDateSet = new HashSet<>();
         localDateSet.add(LocalDate.of(1970, 1, 1));
@@ -186,13 +206,36 @@ class MarketAggregatorServiceTest {
 
         marketAggregatorService.processTrades(tradesFile, new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8)));
 
-        verify(fileMarketWeightsParser).parseMarketWeights(isA(InputStream.class));
-        verify(fileTradeParser).parseTrades(isA(InputStream.class));
-        verify(marketIndexCalculator).calculate(isA(Map.class), isA(Map.class));
+        verify(marketWeightsCache).load(isA(InputStream.class));
+        verify(fileTradeParser).parseTrades(isA(InputStream.class), Mockito.any(), Mockito.any());
+        verify(marketIndexCalculator).incrementalIndex(isA(MarketWeights.class));
         verify(tickerAggregatorManager).getAggregationDates();
         verify(tickerAggregatorManager, atLeast(1)).getAggregationFor(isA(LocalDate.class));
     }
 
+    @Test
+    @DisplayName("Test processTrades(InputStream, InputStream, IngestionMode); given STREAMING; then records trades without building a list")
+    void testProcessTrades_givenStreaming_thenRecordsTradesWithoutList() throws IOException {
+
+        Trade trade = Trade.builder().timestamp(LocalDate.of(1970, 1, 1).atStartOfDay()).ticker("foo").price(new BigDecimal("2.3")).quantity(1).build();
+        when(fileTradeParser.parseTrades(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            Consumer<Trade> consumer = invocation.getArgument(1);
+            consumer.accept(trade);
+            return 1L;
+        });
+        when(marketWeightsCache.load(isA(InputStream.class))).thenReturn(MarketWeights.of(new HashMap<>(), symbols));
+        when(tickerAggregatorManager.getAggregationDates()).thenReturn(new HashSet<>());
+        ByteArrayInputStream tradesFile = new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8));
+
+        marketAggregatorService.processTrades(tradesFile, new ByteArrayInputStream("AXAXAXAX".getBytes(StandardCharsets.UTF_8)), IngestionMode.STREAMING);
+
+        verify(marketWeightsCache).load(isA(InputStream.class));
+        verify(fileTradeParser).parseTrades(isA(InputStream.class), Mockito.any());
+        verify(fileTradeParser, never()).parseTrades(isA(InputStream.class));
+        verify(tickerAggregatorManager).recordTrade(trade);
+        verify(tickerAggregatorManager).getAggregationDates();
+    }
+
     @Test
     @DisplayName("Test getAggregationDates()")
     void testGetAggregationDates() {
@@ -1,5 +1,8 @@
 package com.market.aggregator.service;
 
+import com.market.aggregator.MarketAggregatorConfiguration;
+import com.market.aggregator.domain.MarketWeights;
+import com.market.aggregator.domain.TickerSymbolTable;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,16 +10,23 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Objects;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@ContextConfiguration(classes = {MarketIndexCalculator.class})
+@ContextConfiguration(classes = {MarketIndexCalculator.class, MarketAggregatorConfiguration.class})
 @ExtendWith(SpringExtension.class)
 class MarketIndexCalculatorTest {
+
     @Autowired
     private MarketIndexCalculator marketIndexCalculator;
 
+    @Autowired
+    private TickerSymbolTable symbols;
+
     @Test
     void testCalculate() {
         HashMap<String, BigDecimal> weightedPrices = new HashMap<>();
@@ -61,4 +71,87 @@ class MarketIndexCalculatorTest {
 
         assertThrows(IllegalArgumentException.class, () -> marketIndexCalculator.calculate(weightedPrices, marketWeights));
     }
+
+    @Test
+    void testCalculateIndex() {
+        HashMap<String, BigDecimal> marketWeights = new HashMap<>();
+        marketWeights.put("foo", new BigDecimal("2.3"));
+        marketWeights.put("bar", new BigDecimal("0.5"));
+        MarketWeights weights = MarketWeights.of(marketWeights, symbols);
+
+        BigDecimal[] pricesById = new BigDecimal[symbols.size()];
+        pricesById[symbols.idOf("foo")] = new BigDecimal("2.3");
+        pricesById[symbols.idOf("bar")] = new BigDecimal("4");
+
+        assertEquals(new BigDecimal("7.29"), marketIndexCalculator.calculateIndex(pricesById, weights));
+    }
+
+    @Test
+    void testCalculateIndex_givenMissingPrice() {
+        HashMap<String, BigDecimal> marketWeights = new HashMap<>();
+        marketWeights.put("foo", new BigDecimal("2.3"));
+
+        MarketWeights weights = MarketWeights.of(marketWeights, symbols);
+
+        assertThrows(IllegalArgumentException.class, () -> marketIndexCalculator.calculateIndex(new BigDecimal[0], weights));
+    }
+
+    @Test
+    void testIncrementalIndex_givenRandomPriceChanges_thenSameAsFullCalculation() {
+        Random random = new Random(42);
+        HashMap<String, BigDecimal> marketWeights = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            marketWeights.put("IDX" + i, BigDecimal.valueOf(1 + random.nextInt(1000), 3));
+        }
+        MarketWeights weights = MarketWeights.of(marketWeights, symbols);
+        IncrementalMarketIndex index = marketIndexCalculator.incrementalIndex(weights);
+        BigDecimal[] pricesById = new BigDecimal[symbols.size()];
+
+        for (int day = 0; day < 50; day++) {
+            // A few tickers of the index and one ticker outside of it trade every day
+            for (int trade = 0; trade < 40; trade++) {
+                int tickerId = symbols.idOf("IDX" + random.nextInt(200));
+                BigDecimal price = BigDecimal.valueOf(1 + random.nextInt(10_000), 2);
+                pricesById[tickerId] = price;
+                index.updatePrice(tickerId, price);
+            }
+            index.updatePrice(symbols.idOf("NotInIndex"), BigDecimal.TEN);
+
+            boolean complete = Arrays.stream(pricesById, 0, weights.tickerIdLimit()).filter(Objects::nonNull).count() == weights.size();
+            assertEquals(complete, index.isComplete());
+            if (complete) {
+                assertEquals(0, marketIndexCalculator.calculateIndex(pricesById, weights).compareTo(index.getValue()));
+            }
+        }
+        assertTrue(index.isComplete());
+    }
+
+    @Test
+    void testIncrementalIndex_givenMissingPrice_thenIncomplete() {
+        HashMap<String, BigDecimal> marketWeights = new HashMap<>();
+        marketWeights.put("foo", new BigDecimal("2.3"));
+        marketWeights.put("bar", new BigDecimal("0.5"));
+        IncrementalMarketIndex index = marketIndexCalculator.incrementalIndex(MarketWeights.of(marketWeights, symbols));
+
+        index.updatePrice(symbols.idOf("foo"), new BigDecimal("2.3"));
+
+        assertFalse(index.isComplete());
+        assertThrows(IllegalStateException.class, index::getValue);
+
+        index.updatePrice(symbols.idOf("bar"), new BigDecimal("4"));
+        index.updatePrice(symbols.idOf("foo"), new BigDecimal("3.3"));
+
+        assertTrue(index.isComplete());
+        assertEquals(0, new BigDecimal("9.59").compareTo(index.getValue()));
+    }
+
+    @Test
+    void testIncrementalIndex_givenNullWeight() {
+        HashMap<String, BigDecimal> marketWeights = new HashMap<>();
+        marketWeights.put("foo", null);
+
+        MarketWeights weights = MarketWeights.of(marketWeights, symbols);
+
+        assertThrows(IllegalArgumentException.class, () -> marketIndexCalculator.incrementalIndex(weights));
+    }
 }
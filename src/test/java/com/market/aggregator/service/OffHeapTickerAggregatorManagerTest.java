@@ -0,0 +1,70 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.assertSameAggregations;
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.generateTrades;
+import static com.market.aggregator.service.ColumnarTickerAggregatorManagerTest.trade;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The off-heap store must hold the same aggregations as TickerAggregatorManager, its records are checked the same
+// way as the ones of the columnar store.
+class OffHeapTickerAggregatorManagerTest {
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+
+    @Test
+    @DisplayName("Test recordTrade(Trade); given more tickers and days than the initial capacity")
+    void testRecordTrade_givenManyTickersAndDays_thenSameAsHeapStore() {
+        List<Trade> trades = generateTrades(50_000, 300, 40);
+        TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+        OffHeapTickerAggregatorManager actual = new OffHeapTickerAggregatorManager(symbols);
+
+        trades.forEach(expected::recordTrade);
+        trades.forEach(actual::recordTrade);
+
+        assertSameAggregations(symbols, expected, actual);
+    }
+
+    @Test
+    @DisplayName("Test mergeAggregation(LocalDate, AggregationRecord)")
+    void testMergeAggregation_givenPartialsInOrder_thenSameAsRecordingTheTrades() {
+        List<Trade> trades = generateTrades(10_000, 30, 5);
+        TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+        trades.forEach(expected::recordTrade);
+
+        OffHeapTickerAggregatorManager actual = new OffHeapTickerAggregatorManager(symbols);
+        for (int from = 0; from < trades.size(); from += 3_000) {
+            TickerAggregatorManager partial = new TickerAggregatorManager(symbols);
+            trades.subList(from, Math.min(from + 3_000, trades.size())).forEach(partial::recordTrade);
+            for (LocalDate date : partial.getAggregationDates()) {
+                partial.getAggregationFor(date).values().forEach(record -> actual.mergeAggregation(date, record));
+            }
+        }
+
+        assertSameAggregations(symbols, expected, actual);
+    }
+
+    @Test
+    @DisplayName("Test recordTrade(Trade); given more days, then only direct memory grows")
+    void testRecordTrade_givenMoreDays_thenAddsSegments() {
+        OffHeapTickerAggregatorManager manager = new OffHeapTickerAggregatorManager(symbols);
+        long initialBytes = manager.getOffHeapBytes();
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 9, 0);
+
+        for (int day = 0; day < 2_000; day++) {
+            manager.recordTrade(trade(start.plusDays(day), "Daily", "10.5"));
+        }
+
+        assertEquals(2_000, manager.getAggregationDates().size());
+        assertTrue(manager.getOffHeapBytes() > initialBytes);
+        assertEquals(start.toLocalDate(), manager.getFirstAggregationDate());
+        assertEquals(start.plusDays(1_999).toLocalDate(), manager.getLastAggregationDate());
+    }
+}
@@ -1,5 +1,8 @@
 package com.market.aggregator.service;
 
+import com.market.aggregator.MarketAggregatorConfiguration;
+import com.market.aggregator.domain.AggregationRecord;
+import com.market.aggregator.domain.TickerSymbolTable;
 import com.market.aggregator.domain.Trade;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,18 +15,26 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.*;
 
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
-@ContextConfiguration(classes = {TickerAggregatorManager.class})
+@ContextConfiguration(classes = {TickerAggregatorManager.class, MarketAggregatorConfiguration.class})
 @ExtendWith(SpringExtension.class)
 class TickerAggregatorManagerTest {
     @Autowired
     private TickerAggregatorManager tickerAggregatorManager;
 
+    @Autowired
+    private TickerSymbolTable symbols;
+
     @Test
     @DisplayName("Test recordTrade(Trade)")
     void testRecordTrade() {
@@ -58,10 +69,74 @@ class TickerAggregatorManagerTest {
         assertSame(ofResult, tickerAggregatorManager.getLastAggregationDate());
     }
 
+    @Test
+    @DisplayName("Test mergeAggregation(LocalDate, AggregationRecord)")
+    void testMergeAggregation() {
+        LocalDate ofResult = LocalDate.of(1970, 1, 1);
+        Trade trade = Trade.builder().price(new BigDecimal("2.3")).quantity(1).ticker("Ticker").timestamp(ofResult.atStartOfDay()).build();
+        AggregationRecord partial = AggregationRecord.of("Ticker");
+        partial.recordTrade(trade);
+
+        tickerAggregatorManager.mergeAggregation(ofResult, partial);
+        tickerAggregatorManager.mergeAggregation(ofResult, partial);
+
+        AggregationRecord merged = tickerAggregatorManager.getAggregationFor(ofResult).get("Ticker");
+        assertNotSame(partial, merged);
+        assertEquals(new BigDecimal("4.6"), merged.getVolumeOfTrades());
+        assertEquals(partial.getOpenPrice(), merged.getOpenPrice());
+    }
+
+    @Test
+    @DisplayName("Test getAggregationFor(LocalDate, int)")
+    void testGetAggregationForTickerId() {
+        LocalDate ofResult = LocalDate.of(1970, 1, 1);
+        Trade trade = Trade.builder().price(new BigDecimal("2.3")).quantity(1).ticker("Ticker").timestamp(ofResult.atStartOfDay()).build();
+
+        tickerAggregatorManager.recordTrade(trade);
+
+        int tickerId = symbols.idOf("Ticker");
+        // Both lookups hand out a copy of the same record
+        AggregationRecord byId = tickerAggregatorManager.getAggregationFor(ofResult, tickerId);
+        assertEquals(tickerAggregatorManager.getAggregationFor(ofResult).get("Ticker"), byId);
+        assertEquals(new BigDecimal("2.3"), byId.getClosePrice());
+        assertNull(tickerAggregatorManager.getAggregationFor(ofResult.plusDays(1), tickerId));
+        assertNull(tickerAggregatorManager.getAggregationFor(ofResult, symbols.idOf("Other")));
+    }
+
+    @Test
+    @DisplayName("Test recordTrade(Trade) from many threads on the same ticker")
+    void testRecordTrade_givenManyThreads_thenSameAsSequential() throws Exception {
+        // Every trade has its own timestamp, so the open and close do not depend on the order of the threads
+        LocalDate date = LocalDate.of(2025, 1, 20);
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            trades.add(Trade.builder().price(BigDecimal.valueOf(1 + (i * 7919L) % 10_000, 2)).quantity(1 + i % 100)
+                    .ticker("Hot").timestamp(date.atStartOfDay().plusSeconds((i * 7L) % 50_000)).build());
+        }
+        AggregationRecord expected = AggregationRecord.of("Hot");
+        trades.forEach(expected::recordTrade);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Trade trade : trades) {
+                futures.add(executor.submit(() -> tickerAggregatorManager.recordTrade(trade)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(expected, tickerAggregatorManager.getAggregationFor(date).get("Hot"));
+    }
+
     @Test
     @DisplayName("Test getAggregationFor(LocalDate)")
     void testGetAggregationFor() {
         assertTrue(tickerAggregatorManager.getAggregationFor(LocalDate.of(1970, 1, 1)).isEmpty());
+        assertTrue(tickerAggregatorManager.getTickersFor(LocalDate.of(1970, 1, 1)).isEmpty());
     }
 
     @Test
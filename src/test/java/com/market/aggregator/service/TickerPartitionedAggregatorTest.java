@@ -0,0 +1,66 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickerPartitionedAggregatorTest {
+    private static final int WORKERS = 3;
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 1, 20, 9, 0);
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+
+    @Test
+    void testTradesOfATickerGoToOneWorker() {
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        try {
+            TickerPartitionedAggregator aggregator = new TickerPartitionedAggregator(executor, WORKERS, 4, symbols, new MetricsRegistry());
+            try (aggregator) {
+                IntStream.range(0, 100).forEach(i -> aggregator.accept(trade("T" + i % 10, DAY.plusSeconds(i))));
+            }
+
+            List<TickerAggregatorManager> partials = aggregator.getPartialAggregations();
+
+            assertEquals(10, partials.stream().mapToInt(partial -> partial.getAggregationFor(DAY.toLocalDate()).size()).sum());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testClose_givenFailedWorker_thenEveryOtherWorkerStops() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        // The ticker of the first worker, whose failure used to leave the workers after it waiting for trades
+        String ticker = IntStream.range(0, 100).mapToObj(i -> "T" + i)
+                .filter(t -> Math.floorMod(t.hashCode(), WORKERS) == 0).findFirst().orElseThrow();
+        TickerPartitionedAggregator aggregator = new TickerPartitionedAggregator(executor, WORKERS, 1, symbols, new MetricsRegistry());
+
+        // A trade without a timestamp stops its worker, its queue then fills up and the parser fails
+        aggregator.accept(trade(ticker, null));
+        assertThrows(RuntimeException.class, () -> {
+            while (true) {
+                aggregator.accept(trade(ticker, DAY));
+            }
+        });
+        assertThrows(RuntimeException.class, aggregator::close);
+
+        // Every worker returned its thread to the pool
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static Trade trade(String ticker, LocalDateTime timestamp) {
+        return Trade.builder().timestamp(timestamp).ticker(ticker).price(new BigDecimal("100")).quantity(10).build();
+    }
+}
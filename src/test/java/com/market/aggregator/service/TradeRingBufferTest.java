@@ -0,0 +1,129 @@
+package com.market.aggregator.service;
+
+import com.market.aggregator.domain.TickerSymbolTable;
+import com.market.aggregator.domain.Trade;
+import com.market.aggregator.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeRingBufferTest {
+    private static final int RING_SIZE = 64;
+    private static final int CONSUMERS = 3;
+    private static final int TRADES = 5_000;
+
+    private final TickerSymbolTable symbols = new TickerSymbolTable();
+
+    @Test
+    void testEveryConsumerReadsEveryEventInOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(CONSUMERS);
+        try {
+            for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+                TradeRingBuffer ringBuffer = new TradeRingBuffer(RING_SIZE, CONSUMERS, waitStrategy);
+                List<CompletableFuture<Long>> consumers = new ArrayList<>();
+                for (int consumer = 0; consumer < CONSUMERS; consumer++) {
+                    int id = consumer;
+                    consumers.add(CompletableFuture.supplyAsync(() -> readInOrder(ringBuffer, id), executor));
+                }
+
+                // The ring wraps many times, the parser never gets more than a ring ahead of the slowest consumer
+                for (int i = 0; i < TRADES; i++) {
+                    ringBuffer.claim().set(trade("T0", i), i % CONSUMERS);
+                    ringBuffer.publish();
+                    assertTrue(ringBuffer.backlog() <= RING_SIZE, waitStrategy.name());
+                }
+                ringBuffer.close();
+
+                for (CompletableFuture<Long> consumer : consumers) {
+                    assertEquals(TRADES, (long) consumer.join(), waitStrategy.name());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAbandonedConsumerFailsTheParser() {
+        TradeRingBuffer ringBuffer = new TradeRingBuffer(RING_SIZE, 1, WaitStrategy.BLOCKING);
+        for (int i = 0; i < RING_SIZE; i++) {
+            ringBuffer.claim().set(trade("T0", i), 0);
+            ringBuffer.publish();
+        }
+        ringBuffer.abandon();
+
+        // The ring is full and its only consumer stopped
+        assertThrows(IllegalStateException.class, ringBuffer::claim);
+    }
+
+    @Test
+    void testSizeMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TradeRingBuffer(6, 1, WaitStrategy.BLOCKING));
+        assertThrows(IllegalArgumentException.class, () -> new TradeRingBuffer(0, 1, WaitStrategy.BLOCKING));
+        assertThrows(IllegalArgumentException.class, () -> new TradeRingBuffer(8, 0, WaitStrategy.BLOCKING));
+    }
+
+    @Test
+    void testRingBufferAggregatorMatchesSequentialAggregation() {
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < TRADES; i++) {
+            trades.add(trade("T" + i % 7, i));
+        }
+        TickerAggregatorManager expected = new TickerAggregatorManager(symbols);
+        trades.forEach(expected::recordTrade);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONSUMERS);
+        try {
+            for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+                RingBufferAggregator aggregator = new RingBufferAggregator(executor, CONSUMERS, RING_SIZE, waitStrategy, 4, symbols, new MetricsRegistry());
+                try (aggregator) {
+                    trades.forEach(aggregator);
+                }
+                TickerAggregatorManager actual = new TickerAggregatorManager(symbols);
+                for (TickerAggregatorManager partial : aggregator.getPartialAggregations()) {
+                    for (LocalDate date : partial.getAggregationDates()) {
+                        partial.getAggregationFor(date).values().forEach(record -> actual.mergeAggregation(date, record));
+                    }
+                }
+
+                assertEquals(expected.getAggregationDates(), actual.getAggregationDates(), waitStrategy.name());
+                for (LocalDate date : expected.getAggregationDates()) {
+                    assertEquals(expected.getAggregationFor(date), actual.getAggregationFor(date), waitStrategy.name());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Reads every event, checking that they come in the order they were published, and returns how many were read
+    private static long readInOrder(TradeRingBuffer ringBuffer, int consumer) {
+        long next = 0;
+        for (long available = ringBuffer.waitForPublished(next); available >= 0; available = ringBuffer.waitForPublished(next)) {
+            for (; next < available; next++) {
+                TradeRingBuffer.TradeEvent event = ringBuffer.get(next);
+                assertEquals(next, event.getTrade().getQuantity());
+                assertEquals(next % CONSUMERS, event.getConsumer());
+            }
+            ringBuffer.release(consumer, next);
+        }
+        return next;
+    }
+
+    // Trades ten seconds apart, the quantity is the position of the trade
+    private static Trade trade(String ticker, int position) {
+        return Trade.builder().ticker(ticker).timestamp(LocalDateTime.of(2025, 1, 20, 0, 0).plusSeconds(position * 10L))
+                .price(BigDecimal.valueOf(100 + position % 50, 1)).quantity(position).build();
+    }
+}